@@ -0,0 +1,58 @@
+package com.reversi.common;
+
+/**
+ * Fixed positions shared by the benchmarks, taken from seeded random games so
+ * that results stay comparable between builds. Black is to move in each.
+ */
+final class BenchmarkPositions {
+  private BenchmarkPositions() {}
+
+  /** Six plies in, 6 legal moves. */
+  static final String OPENING = "........0"
+                                + "........0"
+                                + "........0"
+                                + "...WWW..0"
+                                + "..BWBB..0"
+                                + "..WB....0"
+                                + "..B.....0"
+                                + "........0";
+
+  /** Thirty plies in, 9 legal moves. */
+  static final String MIDGAME = ".BW.....0"
+                                + ".BBWB...0"
+                                + "..WWWB..0"
+                                + ".WWWBBB.0"
+                                + ".WWBBW..0"
+                                + "WWWWBBWW0"
+                                + "..WW..B.0"
+                                + "...WW...0";
+
+  /** Forty-eight plies in, 7 legal moves. */
+  static final String ENDGAME = ".BBBBWWW0"
+                                + ".BBBWW..0"
+                                + "WBBWWW..0"
+                                + ".BBBWW.W0"
+                                + "BBBWBB.W0"
+                                + "BBWWBWBW0"
+                                + "BWBBWBWW0"
+                                + "W..W.WBW0";
+
+  /**
+   * Returns the board for a named game phase.
+   *
+   * @param phase one of "opening", "midgame" or "endgame"
+   * @return a new board in that position
+   */
+  static Board forPhase(String phase) {
+    switch (phase) {
+    case "opening":
+      return new Board(OPENING);
+    case "midgame":
+      return new Board(MIDGAME);
+    case "endgame":
+      return new Board(ENDGAME);
+    default:
+      throw new IllegalArgumentException("Unknown phase: " + phase);
+    }
+  }
+}
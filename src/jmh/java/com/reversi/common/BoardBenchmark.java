@@ -0,0 +1,68 @@
+package com.reversi.common;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for move validation, generation and execution on {@link Board}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BoardBenchmark {
+  @Param({"opening", "midgame", "endgame"}) public String phase;
+
+  private Board board;
+  private int moveRow;
+  private int moveCol;
+  private int moveSquare;
+
+  @Setup
+  public void setUp() {
+    board = BenchmarkPositions.forPhase(phase);
+    int[] move = board.getValidMoves(Player.Black).get(0);
+    moveRow = move[0];
+    moveCol = move[1];
+    moveSquare = Board.square(moveRow, moveCol);
+  }
+
+  @Benchmark
+  public boolean isValidMove() {
+    return board.isValidMove(moveRow, moveCol, Player.Black);
+  }
+
+  @Benchmark
+  public List<int[]> getValidMoves() {
+    return board.getValidMoves(Player.Black);
+  }
+
+  @Benchmark
+  public long getValidMoveMask() {
+    return board.getValidMoveMask(Player.Black);
+  }
+
+  /**
+   * Plays a move and takes it back so that every invocation starts from the
+   * same position.
+   */
+  @Benchmark
+  public long makeMove() {
+    long flips = board.play(moveSquare, Player.Black);
+    board.unmakeMove(moveSquare, flips, Player.Black);
+    return flips;
+  }
+}
@@ -0,0 +1,53 @@
+package com.reversi.common;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks dispatching an event through {@link EventBus#post(Event)}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EventBusBenchmark {
+  /** An event with no payload, so only the dispatch itself is measured. */
+  public static class PingEvent extends Event {}
+
+  @Param({"1", "4"}) public int listenerCount;
+
+  private EventBus eventBus;
+  private PingEvent event;
+  // Strong references; the bus only holds its listeners weakly.
+  private EventListener<?>[] listeners;
+
+  @Setup
+  public void setUp(Blackhole blackhole) {
+    eventBus = new EventBus();
+    event = new PingEvent();
+    listeners = new EventListener<?>[listenerCount];
+    for (int i = 0; i < listenerCount; i++) {
+      EventListener<PingEvent> listener = e -> blackhole.consume(e);
+      listeners[i] = listener;
+      eventBus.register(PingEvent.class, listener);
+    }
+  }
+
+  @Benchmark
+  public EventBus post() {
+    return eventBus.post(event);
+  }
+}
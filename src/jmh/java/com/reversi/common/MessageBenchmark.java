@@ -0,0 +1,51 @@
+package com.reversi.common;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks JSON encoding and decoding of a {@link Message.GameUpdate}, the
+ * message the server sends after every move.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MessageBenchmark {
+  @Param({"opening", "midgame", "endgame"}) public String phase;
+
+  private final ObjectMapper mapper = JacksonObjMapper.get();
+  private Message message;
+  private String json;
+
+  @Setup
+  public void setUp() throws Exception {
+    ReversiGame game =
+        new ReversiGame(BenchmarkPositions.forPhase(phase), Player.Black);
+    message = new Message(new Message.GameUpdate(game, 95000, 87000));
+    json = mapper.writeValueAsString(message);
+  }
+
+  @Benchmark
+  public String serialize() throws Exception {
+    return mapper.writeValueAsString(message);
+  }
+
+  @Benchmark
+  public Message deserialize() throws Exception {
+    return mapper.readValue(json, Message.class);
+  }
+}
@@ -23,6 +23,11 @@ import org.slf4j.LoggerFactory;
  * The board is serialized to a string representation and deserialized from the
  * same format.
  * </p>
+ * <p>
+ * Internally each colour is stored as a 64-bit bitboard, so legal move
+ * generation and flipping are a handful of shift-and-mask operations that do
+ * not allocate.
+ * </p>
  */
 @JsonSerialize(using = Board.BoardSerializer.class)
 @JsonDeserialize(using = Board.BoardDeserializer.class)
@@ -32,30 +37,56 @@ public class Board {
   /** The dimension of the board (8x8). */
   public static final int BOARD_SIZE = 8;
 
+  /** Bitmask of every square in column 0 (the A file). */
+  private static final long FILE_A = 0x0101010101010101L;
+
+  /** Bitmask of every square in column 7 (the H file). */
+  private static final long FILE_H = 0x8080808080808080L;
+
+  /**
+   * Bit shifts for all 8 directions (N, NE, E, SE, S, SW, W, NW). A positive
+   * value shifts left (towards higher square indices), a negative one right.
+   */
+  private static final int[] SHIFTS = {-8, -7, 1, 9, 8, 7, -1, -9};
+
   /**
-   * Offsets representing all 8 directions (N, NE, E, SE, S, SW, W, NW)
-   * to search for discs that may be captured.
+   * Masks applied after each shift in {@link #SHIFTS} to discard discs that
+   * wrapped around from one edge of the board to the other.
    */
-  private static final int[][] DIRECTIONS = {
-      {-1, 0}, {-1, 1}, {0, 1}, {1, 1}, {1, 0}, {1, -1}, {0, -1}, {-1, -1}};
+  private static final long[] SHIFT_MASKS = {
+      -1L, ~FILE_A, ~FILE_A, ~FILE_A, -1L, ~FILE_H, ~FILE_H, ~FILE_H};
 
   /**
-   * The board state represented as a 2D array of Player values.
-   * Each element indicates which player occupies that position, or Player.None
-   * if empty.
+   * The board state represented as one bitboard per colour. Square (row, col)
+   * maps to bit {@code row * 8 + col}; a cell is empty if neither bit is set.
    */
-  private Player[][] status;
+  private long black;
+  private long white;
+
+  /**
+   * Zobrist hash of the disc configuration, kept up to date incrementally by
+   * every method that changes a disc. See {@link Zobrist}.
+   */
+  private long hash;
 
   /**
    * Default constructor. Initializes the board to an empty state.
    */
   Board() {
-    this.status = new Player[BOARD_SIZE][BOARD_SIZE];
-    for (int i = 0; i < BOARD_SIZE; i++) {
-      for (int j = 0; j < BOARD_SIZE; j++) {
-        status[i][j] = Player.None;
-      }
-    }
+    this.black = 0L;
+    this.white = 0L;
+    this.hash = 0L;
+  }
+
+  /**
+   * Copy constructor. Creates an independent board with the same discs.
+   *
+   * @param other the board to copy
+   */
+  public Board(Board other) {
+    this.black = other.black;
+    this.white = other.white;
+    this.hash = other.hash;
   }
 
   /**
@@ -90,14 +121,7 @@ public class Board {
             "Invalid board format: Incorrect row length.");
       }
       for (int j = 0; j < BOARD_SIZE; j++) {
-        char c = rowLine.charAt(j);
-        if (c == 'W') {
-          status[i][j] = Player.White;
-        } else if (c == 'B') {
-          status[i][j] = Player.Black;
-        } else {
-          status[i][j] = Player.None;
-        }
+        set(i, j, Player.from(rowLine.charAt(j)));
       }
     }
   }
@@ -134,17 +158,7 @@ public class Board {
     StringBuilder sb = new StringBuilder(BOARD_SIZE * BOARD_SIZE + BOARD_SIZE);
     for (int i = 0; i < BOARD_SIZE; i++) {
       for (int j = 0; j < BOARD_SIZE; j++) {
-        switch (status[i][j]) {
-        case Black:
-          sb.append('B');
-          break;
-        case White:
-          sb.append('W');
-          break;
-        default:
-          sb.append('.');
-          break;
-        }
+        sb.append(get(i, j).toChar());
       }
       // Separate rows with a '0' delimiter.
       sb.append('0');
@@ -169,7 +183,12 @@ public class Board {
       logger.error("Column {} out of bounds.", col);
       return Player.None;
     }
-    return this.status[row][col];
+    long bit = 1L << square(row, col);
+    if ((black & bit) != 0)
+      return Player.Black;
+    if ((white & bit) != 0)
+      return Player.White;
+    return Player.None;
   }
 
   /**
@@ -188,7 +207,43 @@ public class Board {
       logger.error("Column {} out of bounds.", col);
       return;
     }
-    this.status[row][col] = status;
+    int sq = square(row, col);
+    long bit = 1L << sq;
+    hash ^= Zobrist.disc(get(row, col), sq) ^ Zobrist.disc(status, sq);
+    black &= ~bit;
+    white &= ~bit;
+    if (status == Player.Black)
+      black |= bit;
+    else if (status == Player.White)
+      white |= bit;
+  }
+
+  /**
+   * Converts a (row, col) coordinate into the bit index used by the
+   * bitboards.
+   *
+   * @param row the row index (0-based)
+   * @param col the column index (0-based)
+   * @return the square index in the range [0, 64)
+   */
+  public static int square(int row, int col) { return row * BOARD_SIZE + col; }
+
+  /**
+   * Returns the bitboard of all discs owned by the given player.
+   *
+   * @param player the player whose discs are requested
+   * @return a bitmask with bit {@code row * 8 + col} set for each disc; 0 for
+   *     Player.None
+   */
+  public long getDiscs(Player player) {
+    switch (player) {
+    case Black:
+      return black;
+    case White:
+      return white;
+    default:
+      return 0L;
+    }
   }
 
   /**
@@ -207,16 +262,28 @@ public class Board {
       return false;
     }
     Board other = (Board)obj;
-    for (int i = 0; i < BOARD_SIZE; ++i) {
-      for (int j = 0; j < BOARD_SIZE; ++j) {
-        if (this.status[i][j] != other.get(i, j)) {
-          return false;
-        }
-      }
-    }
-    return true;
+    return black == other.black && white == other.white;
   }
 
+  /**
+   * Returns a hash code derived from the Zobrist hash, consistent with
+   * {@link #equals(Object)}.
+   *
+   * @return the folded 64-bit Zobrist hash
+   */
+  @Override
+  public int hashCode() {
+    return Long.hashCode(hash);
+  }
+
+  /**
+   * Returns the 64-bit Zobrist hash of the disc configuration. The side to
+   * move is not part of a board; see {@link ReversiGame#getHash()}.
+   *
+   * @return the Zobrist hash
+   */
+  public long getHash() { return hash; }
+
   /**
    * Checks whether the specified coordinates are within the bounds of the
    * board.
@@ -243,32 +310,13 @@ public class Board {
    * @return true if the move is legal; false otherwise
    */
   public boolean isValidMove(int row, int col, Player player) {
-    Player opponent = player.opponent();
-
-    if (!isWithinBounds(row, col) || get(row, col) != Player.None) {
+    if (!isWithinBounds(row, col) || player == Player.None) {
       return false;
     }
-    // Check each direction for a potential capture.
-    for (int[] d : DIRECTIONS) {
-      int r = row + d[0], c = col + d[1];
-      if (!isWithinBounds(r, c) || get(r, c) != opponent) {
-        continue;
-      }
-      // Move further in the same direction.
-      r += d[0];
-      c += d[1];
-      while (isWithinBounds(r, c)) {
-        if (get(r, c) == opponent) {
-          r += d[0];
-          c += d[1];
-        } else if (get(r, c) == player) {
-          return true;
-        } else {
-          break;
-        }
-      }
-    }
-    return false;
+    int sq = square(row, col);
+    long own = getDiscs(player);
+    long opp = getDiscs(player.opponent());
+    return ((own | opp) & (1L << sq)) == 0 && flips(own, opp, sq) != 0;
   }
 
   /**
@@ -284,41 +332,79 @@ public class Board {
    * @return true if the move was successfully executed; false otherwise
    */
   public boolean makeMove(int row, int col, Player player) {
-    if (!isValidMove(row, col, player)) {
+    if (!isWithinBounds(row, col)) {
       return false;
     }
+    return play(square(row, col), player) != 0;
+  }
 
-    Player opponent = player.opponent();
-    // Place the player's disc at the specified location.
-    set(row, col, player);
-
-    // Process all directions to determine if any opponent discs can be
-    // captured.
-    for (int[] d : DIRECTIONS) {
-      List<int[]> discsToFlip = new ArrayList<>();
-      int r = row + d[0], c = col + d[1];
-      // Accumulate positions of consecutive opponent discs.
-      while (isWithinBounds(r, c) && get(r, c) == opponent) {
-        discsToFlip.add(new int[] {r, c});
-        r += d[0];
-        c += d[1];
-      }
-      // If the sequence is bounded by a disc belonging to the current player,
-      // all intermediate opponent discs are captured.
-      if (isWithinBounds(r, c) && get(r, c) == player) {
-        for (int[] pos : discsToFlip) {
-          set(pos[0], pos[1], player);
-        }
-      }
+  /**
+   * Plays a move for the given player on the specified square.
+   * <p>
+   * The captured discs are found in a single pass and applied directly to the
+   * bitboards, so the call does not allocate. If the square is occupied or the
+   * move captures nothing, the board is left untouched.
+   * </p>
+   *
+   * @param square the square index ({@code row * 8 + col}) of the new disc
+   * @param player the player making the move
+   * @return the bitmask of flipped discs, or 0 if the move was illegal
+   */
+  public long play(int square, Player player) {
+    long bit = 1L << square;
+    long own = getDiscs(player);
+    long opp = getDiscs(player.opponent());
+    if (player == Player.None || ((own | opp) & bit) != 0) {
+      return 0L;
+    }
+    long flipped = flips(own, opp, square);
+    if (flipped == 0) {
+      return 0L;
+    }
+    if (player == Player.Black) {
+      black |= flipped | bit;
+      white &= ~flipped;
+    } else {
+      white |= flipped | bit;
+      black &= ~flipped;
     }
-    return true;
+    hash ^= Zobrist.disc(player, square) ^ Zobrist.flips(flipped);
+    return flipped;
+  }
+
+  /**
+   * Takes back a move previously made with {@link #play(int, Player)}.
+   * <p>
+   * The disc on {@code square} is removed and every disc in {@code flips} is
+   * returned to the opponent. The caller is responsible for passing the values
+   * of the most recent move that has not been undone yet.
+   * </p>
+   *
+   * @param square the square index the move was played on
+   * @param flips the bitmask returned by {@code play}
+   * @param player the player who made the move
+   */
+  public void unmakeMove(int square, long flips, Player player) {
+    long bit = 1L << square;
+    if (player == Player.Black) {
+      black &= ~(flips | bit);
+      white |= flips;
+    } else if (player == Player.White) {
+      white &= ~(flips | bit);
+      black |= flips;
+    } else {
+      return;
+    }
+    hash ^= Zobrist.disc(player, square) ^ Zobrist.flips(flips);
   }
 
   /**
    * Returns a list of all valid moves for the specified player.
    * <p>
    * Each move is represented as an integer array of size 2, where the first
-   * element is the row index and the second is the column index.
+   * element is the row index and the second is the column index. Callers on a
+   * hot path should prefer {@link #getValidMoveMask(Player)}, which does not
+   * allocate.
    * </p>
    *
    * @param player the player for whom valid moves are determined
@@ -327,16 +413,90 @@ public class Board {
    */
   public List<int[]> getValidMoves(Player player) {
     List<int[]> validMoves = new ArrayList<>();
-    for (int row = 0; row < BOARD_SIZE; row++) {
-      for (int col = 0; col < BOARD_SIZE; col++) {
-        if (isValidMove(row, col, player)) {
-          validMoves.add(new int[] {row, col});
-        }
-      }
+    long moves = getValidMoveMask(player);
+    while (moves != 0) {
+      int sq = Long.numberOfTrailingZeros(moves);
+      moves &= moves - 1;
+      validMoves.add(new int[] {sq / BOARD_SIZE, sq % BOARD_SIZE});
     }
     return validMoves;
   }
 
+  /**
+   * Returns every legal move for the specified player as a single bitmask.
+   *
+   * @param player the player for whom valid moves are determined
+   * @return a bitmask with bit {@code row * 8 + col} set for each legal move
+   */
+  public long getValidMoveMask(Player player) {
+    if (player == Player.None)
+      return 0L;
+    return legalMoves(getDiscs(player), getDiscs(player.opponent()));
+  }
+
+  // ===================== Bitboard Kernels =====================
+
+  /**
+   * Shifts a bitboard one step in the given direction, dropping discs that
+   * would leave the board.
+   */
+  private static long shift(long bits, int dir) {
+    int s = SHIFTS[dir];
+    return (s > 0 ? bits << s : bits >>> -s) & SHIFT_MASKS[dir];
+  }
+
+  /**
+   * Computes all legal moves for the side owning {@code own} against the
+   * discs in {@code opp}.
+   * <p>
+   * For every direction the opponent runs adjacent to our discs are grown
+   * with a flood fill; an empty square just past such a run is a legal move.
+   * </p>
+   *
+   * @param own the bitboard of the side to move
+   * @param opp the bitboard of the opponent
+   * @return a bitmask of all legal moves
+   */
+  public static long legalMoves(long own, long opp) {
+    long empty = ~(own | opp);
+    long moves = 0L;
+    for (int dir = 0; dir < SHIFTS.length; dir++) {
+      long run = shift(own, dir) & opp;
+      run |= shift(run, dir) & opp;
+      run |= shift(run, dir) & opp;
+      run |= shift(run, dir) & opp;
+      run |= shift(run, dir) & opp;
+      run |= shift(run, dir) & opp;
+      moves |= shift(run, dir) & empty;
+    }
+    return moves;
+  }
+
+  /**
+   * Computes the opponent discs that would be flipped if the side owning
+   * {@code own} placed a disc on {@code square}.
+   *
+   * @param own the bitboard of the side to move
+   * @param opp the bitboard of the opponent
+   * @param square the square index ({@code row * 8 + col}) of the new disc
+   * @return a bitmask of the captured discs; 0 if the move captures nothing
+   */
+  public static long flips(long own, long opp, int square) {
+    long origin = 1L << square;
+    long flipped = 0L;
+    for (int dir = 0; dir < SHIFTS.length; dir++) {
+      long run = 0L;
+      long cur = shift(origin, dir);
+      while ((cur & opp) != 0) {
+        run |= cur;
+        cur = shift(cur, dir);
+      }
+      if ((cur & own) != 0)
+        flipped |= run;
+    }
+    return flipped;
+  }
+
   // ===================== Serialization Support =====================
   public static class BoardSerializer extends JsonSerializer<Board> {
     @Override
@@ -349,7 +509,7 @@ public class Board {
         gen.writeStartArray();
         for (int j = 0; j < BOARD_SIZE; j++) {
           // Map Player status to explicit string values.
-          switch (board.status[i][j]) {
+          switch (board.get(i, j)) {
           case Black:
             gen.writeString("B");
             break;
@@ -419,7 +579,10 @@ public class Board {
                 throw new IOException("Invalid cell value '" + cellValue +
                                       "' at row " + row + " column " + col);
               }
-              board.status[row][col] = cell;
+              if (row >= BOARD_SIZE || col >= BOARD_SIZE)
+                throw new IOException("Cell at row " + row + " column " + col +
+                                      " is outside the board");
+              board.set(row, col, cell);
               col++;
             }
             if (col != BOARD_SIZE)
@@ -1,16 +1,69 @@
 package com.reversi.common;
 
-import java.time.LocalTime;
-
+/**
+ * The base class of everything posted on an {@link EventBus}.
+ * <p>
+ * Every event records when it was created, read from the global
+ * {@link EventClock} without allocating, and optionally a sequence number.
+ * </p>
+ */
 public class Event {
-  private final LocalTime timestamp;
+  private static volatile EventClock clock = EventClock.SYSTEM;
+
+  private final long timestampNanos;
+  private final long sequence;
+
+  /**
+   * Creates an event with an explicit timestamp and no sequence number.
+   *
+   * @param timestampNanos the creation time on the {@link EventClock} scale
+   */
+  public Event(long timestampNanos) {
+    this.timestampNanos = timestampNanos;
+    this.sequence = 0;
+  }
+
+  public Event() {
+    EventClock current = clock;
+    this.timestampNanos = current.nanoTime();
+    this.sequence = current.nextSequence();
+  }
+
+  /**
+   * Replaces the clock that stamps new events, for example with a
+   * deterministic one in tests.
+   *
+   * @param newClock the clock; {@link EventClock#SYSTEM} restores the default
+   */
+  public static void setEventClock(EventClock newClock) { clock = newClock; }
 
-  public Event(LocalTime timestamp) { this.timestamp = timestamp; }
-  public Event() { this(LocalTime.now()); }
+  /** Returns the clock that stamps new events. */
+  public static EventClock getEventClock() { return clock; }
+
+  /**
+   * Returns the timestamp when the event was created, in monotonic
+   * nanoseconds. Only differences between timestamps are meaningful.
+   */
+  public long getTimestampNanos() { return timestampNanos; }
+
+  /**
+   * Returns the sequence number of the event, or 0 if the clock that created
+   * it does not number events.
+   */
+  public long getSequence() { return sequence; }
+
+  /**
+   * Returns how long ago the event was created, such as the time it spent
+   * queued before a listener received it.
+   */
+  public long getAgeNanos() { return clock.nanoTime() - timestampNanos; }
 
   /**
-   * Returns the timestamp when the event was created.
-   * Useful for logging or comparing event times.
+   * Returns the key that orders this event on an asynchronous
+   * {@link EventBus}: events with equal keys are handled one at a time, in
+   * the order posted. Events without a key share one partition.
+   *
+   * @return the partition key, or {@code null} for none
    */
-  public LocalTime getTimestamp() { return timestamp; }
+  public Object getPartitionKey() { return null; }
 }
@@ -1,21 +1,124 @@
 package com.reversi.common;
 
+import java.lang.ref.ReferenceQueue;
 import java.lang.ref.WeakReference;
-import java.util.List;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * A simple generic event bus for registering and dispatching events.
+ * <p>
+ * By default listeners run on the thread that posts the event. A bus created
+ * with {@link #EventBus(int)} dispatches asynchronously instead: each event
+ * is queued on one of a fixed set of single-threaded executors, chosen by its
+ * {@link Event#getPartitionKey() partition key}. Events with the same key are
+ * handled in the order they were posted, events with different keys may be
+ * handled in parallel, and a slow listener only delays its own partition.
+ * </p>
+ * <p>
+ * A listener registered for a type receives events of that class and of all
+ * its subclasses and implementing classes, so registering for {@link Event}
+ * or for an interface observes every matching event.
+ * </p>
+ * <p>
+ * Listeners are held weakly. Each registered type maps to an immutable array
+ * of listener references that is replaced only when a listener is
+ * registered, unregistered or collected. The listeners applicable to an event
+ * class are merged into one array, cached per class by each bus and rebuilt
+ * only after such a change, so a synchronous post walks one array without
+ * locking, allocating or reflecting. The types a class can be assigned to are
+ * shared by all buses in a {@link ClassValue}, which holds only classes and
+ * so keeps no bus alive. Collected listeners are removed by a shared
+ * background thread fed by a {@link ReferenceQueue}.
+ * </p>
  */
-public class EventBus {
+public class EventBus implements AutoCloseable {
+  private static final Logger logger = LoggerFactory.getLogger(EventBus.class);
 
-  // Map event types to their registered listeners, stored as WeakReferences.
-  private Map<Class<? extends Event>,
-              List<WeakReference<EventListener<? extends Event>>>> listeners =
+  private static final ListenerRef[] NONE = {};
+
+  // Collected listeners of every bus, drained by the sweeper thread.
+  private static final ReferenceQueue<EventListener<?>> expired =
+      new ReferenceQueue<>();
+
+  static {
+    Thread sweeper = new Thread(EventBus::sweep, "event-bus-sweeper");
+    sweeper.setDaemon(true);
+    sweeper.start();
+  }
+
+  /** A weak listener reference that knows where it is registered. */
+  private static final class ListenerRef
+      extends WeakReference<EventListener<?>> {
+    final EventBus bus;
+    final Class<?> eventType;
+
+    ListenerRef(EventListener<?> listener, EventBus bus, Class<?> eventType) {
+      super(listener, expired);
+      this.bus = bus;
+      this.eventType = eventType;
+    }
+  }
+
+  /** The listeners applicable to an event class, as of one version. */
+  private record Resolved(int version, ListenerRef[] refs) {}
+
+  // Per event class, the class itself, its superclasses and its interfaces,
+  // in dispatch order.
+  private static final ClassValue<Class<?>[]> ASSIGNABLE_TYPES =
+      new ClassValue<>() {
+        @Override
+        protected Class<?>[] computeValue(Class<?> type) {
+          return assignableTypes(type);
+        }
+      };
+
+  // Map registered types to immutable snapshots of their listeners. Arrays
+  // are never modified once published; changes swap in a new array.
+  private final Map<Class<?>, ListenerRef[]> listeners =
+      new ConcurrentHashMap<>();
+  // Incremented after every change to the listeners map; resolutions made
+  // for an older version are stale.
+  private final AtomicInteger version = new AtomicInteger();
+  // Per event class, the latest merge of its applicable listeners.
+  private final Map<Class<?>, Resolved> resolutions =
       new ConcurrentHashMap<>();
 
+  // Executors of the asynchronous mode; null when posting dispatches inline.
+  private final ExecutorService[] partitions;
+
+  /** Creates a bus that runs listeners on the posting thread. */
+  public EventBus() { this.partitions = null; }
+
+  /**
+   * Creates a bus that runs listeners asynchronously on
+   * {@code partitionCount} threads, partitioned by event key.
+   *
+   * @param partitionCount the number of dispatch threads
+   */
+  public EventBus(int partitionCount) {
+    if (partitionCount < 1)
+      throw new IllegalArgumentException("partitionCount must be positive");
+    partitions = new ExecutorService[partitionCount];
+    for (int i = 0; i < partitionCount; i++) {
+      String name = "event-partition-" + i;
+      partitions[i] = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, name);
+        t.setDaemon(true);
+        return t;
+      });
+    }
+  }
+
   /**
    * Registers a listener for a specific type of event.
    *
@@ -23,46 +126,169 @@ public class EventBus {
    * @param listener  the listener implementation
    * @param <T>       the type of the event
    */
-  public <T extends Event> EventBus register(Class<T> eventType,
-                                             EventListener<T> listener) {
-    // Wrap the listener in a WeakReference.
-    WeakReference<EventListener<? extends Event>> weakListener =
-        new WeakReference<>(listener);
-
-    listeners.computeIfAbsent(eventType, k -> new CopyOnWriteArrayList<>())
-        .add(weakListener);
+  public <T> EventBus register(Class<T> eventType, EventListener<T> listener) {
+    ListenerRef ref = new ListenerRef(listener, this, eventType);
+    listeners.compute(eventType, (type, refs) -> {
+      if (refs == null)
+        return new ListenerRef[] {ref};
+      ListenerRef[] grown = Arrays.copyOf(refs, refs.length + 1);
+      grown[refs.length] = ref;
+      return grown;
+    });
+    version.incrementAndGet();
+    return this;
+  }
+
+  /**
+   * Removes one registration of a listener. Listeners that are no longer
+   * referenced elsewhere need not be unregistered; they are dropped once
+   * collected.
+   *
+   * @param eventType the class type the listener was registered for
+   * @param listener  the listener to remove
+   * @param <T>       the type of the event
+   */
+  public <T> EventBus unregister(Class<T> eventType,
+                                 EventListener<T> listener) {
+    listeners.computeIfPresent(eventType, (type, refs) -> {
+      for (int i = 0; i < refs.length; i++) {
+        if (refs[i].get() == listener)
+          return without(refs, i);
+      }
+      return refs;
+    });
+    version.incrementAndGet();
     return this;
   }
 
   /**
    * Posts an event to all registered listeners that handle this event type.
-   * Expired listeners are removed during traversal.
+   * On an asynchronous bus the listeners run later on the event's partition;
+   * otherwise they run before this method returns.
    *
    * @param event the event to dispatch
    * @param <T>   the type of the event
    */
-  @SuppressWarnings("unchecked")
   public <T extends Event> EventBus post(T event) {
-    List<WeakReference<EventListener<? extends Event>>> registeredListeners =
-        listeners.get(event.getClass());
-
-    if (registeredListeners != null) {
-      // Remove expired (garbage collected) listeners before invoking any
-      // callbacks.
-      registeredListeners.removeIf(ref -> ref.get() == null);
-
-      for (WeakReference<EventListener<? extends Event>> ref :
-           registeredListeners) {
-        EventListener<? extends Event> listener = ref.get();
-        if (listener != null) {
-          // Cast the listener to the proper type and invoke the event handler.
-          ((EventListener<T>)listener).onEvent(event);
-        }
-      }
+    if (partitions == null) {
+      dispatch(event);
+      return this;
     }
+    Object key = event.getPartitionKey();
+    int index = 0;
+    if (key != null) {
+      int h = key.hashCode();
+      // Spread the high bits, as identity and small integer hashes cluster.
+      index = Math.floorMod(h ^ (h >>> 16), partitions.length);
+    }
+    partitions[index].execute(() -> {
+      try {
+        dispatch(event);
+      } catch (RuntimeException e) {
+        logger.error("Listener failed on {}", event, e);
+      }
+    });
     return this;
   }
 
+  /** Invokes the listeners of an event on the current thread. */
+  @SuppressWarnings("unchecked")
+  private <T extends Event> void dispatch(T event) {
+    for (ListenerRef ref : resolve(event.getClass())) {
+      EventListener<?> listener = ref.get();
+      if (listener != null) {
+        // Cast the listener to the proper type and invoke the event handler.
+        ((EventListener<T>)listener).onEvent(event);
+      }
+    }
+  }
+
+  /**
+   * Returns the listeners of every type an event class can be assigned to:
+   * the class itself first, then its superclasses, then its interfaces.
+   */
+  private ListenerRef[] resolve(Class<?> eventClass) {
+    Resolved resolved = resolutions.get(eventClass);
+    int current = version.get();
+    if (resolved != null && resolved.version() == current)
+      return resolved.refs();
+
+    // Read the version before the map, so a change made while merging
+    // leaves this resolution stale rather than silently incomplete.
+    ListenerRef[] merged = NONE;
+    for (Class<?> type : ASSIGNABLE_TYPES.get(eventClass)) {
+      ListenerRef[] refs = listeners.get(type);
+      if (refs == null)
+        continue;
+      int length = merged.length;
+      merged = Arrays.copyOf(merged, length + refs.length);
+      System.arraycopy(refs, 0, merged, length, refs.length);
+    }
+    resolutions.put(eventClass, new Resolved(current, merged));
+    return merged;
+  }
+
+  /** Lists a class, its superclasses and all interfaces it implements. */
+  private static Class<?>[] assignableTypes(Class<?> eventClass) {
+    Set<Class<?>> types = new LinkedHashSet<>();
+    for (Class<?> c = eventClass; c != null; c = c.getSuperclass())
+      types.add(c);
+    ArrayDeque<Class<?>> pending = new ArrayDeque<>(types);
+    while (!pending.isEmpty()) {
+      for (Class<?> i : pending.poll().getInterfaces()) {
+        if (types.add(i))
+          pending.add(i);
+      }
+    }
+    return types.toArray(new Class<?>[0]);
+  }
+
+  /** Returns a copy of {@code refs} without the element at {@code index}. */
+  private static ListenerRef[] without(ListenerRef[] refs, int index) {
+    if (refs.length == 1)
+      return null; // Drops the map entry.
+    ListenerRef[] shrunk = new ListenerRef[refs.length - 1];
+    System.arraycopy(refs, 0, shrunk, 0, index);
+    System.arraycopy(refs, index + 1, shrunk, index, refs.length - index - 1);
+    return shrunk;
+  }
+
+  /** Removes a collected listener from the snapshot it belongs to. */
+  private void expunge(ListenerRef ref) {
+    listeners.computeIfPresent(ref.eventType, (type, refs) -> {
+      for (int i = 0; i < refs.length; i++) {
+        if (refs[i] == ref)
+          return without(refs, i);
+      }
+      return refs;
+    });
+    version.incrementAndGet();
+  }
+
+  /** Body of the sweeper thread. */
+  private static void sweep() {
+    while (true) {
+      try {
+        ListenerRef ref = (ListenerRef)expired.remove();
+        ref.bus.expunge(ref);
+      } catch (InterruptedException e) {
+        return;
+      }
+    }
+  }
+
+  /**
+   * Stops the dispatch threads of an asynchronous bus; events already queued
+   * are still delivered. Does nothing on a synchronous bus.
+   */
+  @Override
+  public void close() {
+    if (partitions != null) {
+      for (ExecutorService partition : partitions)
+        partition.shutdown();
+    }
+  }
+
   /**
    * Returns the number of active (non-expired) listeners registered for the
    * specified event type. This method is provided for testing purposes.
@@ -70,19 +296,25 @@ public class EventBus {
    * @param eventType the class type of the event
    * @return the number of active listeners
    */
-  int getActiveListenersCount(Class<? extends Event> eventType) {
-    List<WeakReference<EventListener<? extends Event>>> registeredListeners =
-        listeners.get(eventType);
-    if (registeredListeners == null) {
-      return 0;
-    }
+  int getActiveListenersCount(Class<?> eventType) {
     int count = 0;
-    for (WeakReference<EventListener<? extends Event>> ref :
-         registeredListeners) {
+    for (ListenerRef ref : listeners.getOrDefault(eventType, NONE)) {
       if (ref.get() != null) {
         count++;
       }
     }
     return count;
   }
+
+  /**
+   * Returns the number of listener references held for the specified event
+   * type, including collected listeners not yet swept. This method is
+   * provided for testing purposes.
+   *
+   * @param eventType the class type of the event
+   * @return the number of registrations
+   */
+  int getRegistrationCount(Class<?> eventType) {
+    return listeners.getOrDefault(eventType, NONE).length;
+  }
 }
@@ -0,0 +1,66 @@
+package com.reversi.common;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The source of {@link Event} timestamps and sequence numbers.
+ * <p>
+ * Timestamps are monotonic nanoseconds with an arbitrary origin, as returned
+ * by {@link System#nanoTime()}: they only make sense relative to each other,
+ * for example to measure how long an event waited before being handled.
+ * Sequence numbers are optional; a clock that does not number events returns
+ * 0. Tests may install a deterministic clock with
+ * {@link Event#setEventClock(EventClock)}.
+ * </p>
+ */
+public interface EventClock {
+  /** Timestamps from {@link System#nanoTime()}; events are not numbered. */
+  EventClock SYSTEM = new EventClock() {
+    @Override
+    public long nanoTime() {
+      return System.nanoTime();
+    }
+
+    @Override
+    public long nextSequence() {
+      return 0;
+    }
+  };
+
+  /**
+   * Returns the current time.
+   *
+   * @return monotonic nanoseconds
+   */
+  long nanoTime();
+
+  /**
+   * Returns the sequence number of a new event.
+   *
+   * @return a positive number larger than any returned before, or 0 if this
+   *     clock does not number events
+   */
+  long nextSequence();
+
+  /**
+   * Returns a clock that timestamps with {@link System#nanoTime()} and
+   * numbers events 1, 2, 3... in creation order, giving a total order even
+   * between events created in the same nanosecond.
+   *
+   * @return the clock
+   */
+  static EventClock sequenced() {
+    AtomicLong counter = new AtomicLong();
+    return new EventClock() {
+      @Override
+      public long nanoTime() {
+        return System.nanoTime();
+      }
+
+      @Override
+      public long nextSequence() {
+        return counter.incrementAndGet();
+      }
+    };
+  }
+}
@@ -2,9 +2,10 @@ package com.reversi.common;
 
 /**
  * The generic listener interface for events.
- * @param <T> the type of event this listener handles
+ * @param <T> the type of event this listener handles: an {@link Event}
+ *     subclass, or any supertype or interface of the events it wants
  */
-public interface EventListener<T extends Event> {
+public interface EventListener<T> {
   /**
    * Called when the event is triggered.
    * @param event the event object containing relevant data
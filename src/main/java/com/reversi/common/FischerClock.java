@@ -148,23 +148,26 @@ public class FischerClock {
    *     player's clock
    */
   private void tick(long deltaMs) {
+    boolean whiteTimeout;
     synchronized (lock) {
       if (isWhiteTurn) {
         whiteTimeMillis -= deltaMs;
-        if (whiteTimeMillis <= 0) {
-          whiteTimeMillis = 0;
-          stop();
-          notifyTimeout(true);
-        }
+        if (whiteTimeMillis > 0)
+          return;
+        whiteTimeMillis = 0;
+        whiteTimeout = true;
       } else {
         blackTimeMillis -= deltaMs;
-        if (blackTimeMillis <= 0) {
-          blackTimeMillis = 0;
-          stop();
-          notifyTimeout(false);
-        }
+        if (blackTimeMillis > 0)
+          return;
+        blackTimeMillis = 0;
+        whiteTimeout = false;
       }
+      stop();
     }
+    // Listeners may do blocking I/O (e.g. notify the players), so they are
+    // invoked after the clock's monitor has been released.
+    notifyTimeout(whiteTimeout);
   }
 
   /**
@@ -186,6 +189,13 @@ public class FischerClock {
     }
   }
 
+  /**
+   * Returns the time added to a player's clock after each move.
+   *
+   * @return the bonus in milliseconds
+   */
+  public long getBonusMillis() { return bonusMillis; }
+
   /**
    * Returns the current remaining time for the white player.
    *
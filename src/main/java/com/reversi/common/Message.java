@@ -13,6 +13,7 @@ import com.fasterxml.jackson.databind.SerializerProvider;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import java.io.IOException;
+import java.util.List;
 import java.util.Map;
 
 @JsonSerialize(using = Message.Serializer.class)
@@ -30,11 +31,18 @@ public class Message {
 
   public static class LobbyCreate {
     private final LobbyRoom room;
+    // Whether the creator plays against a server-side bot instead of waiting
+    // for another client to join. Absent in older clients' messages.
+    private final boolean bot;
+    public LobbyCreate(LobbyRoom room) { this(room, false); }
     @JsonCreator
-    public LobbyCreate(@JsonProperty("room") LobbyRoom room) {
+    public LobbyCreate(@JsonProperty("room") LobbyRoom room,
+                       @JsonProperty("bot") Boolean bot) {
       this.room = room;
+      this.bot = bot != null && bot;
     }
     public LobbyRoom getRoom() { return room; }
+    public boolean isBot() { return bot; }
   }
 
   public static class LobbyReady {
@@ -57,6 +65,21 @@ public class Message {
     public int getCol() { return col; }
   }
 
+  public static class AnalyzeRequest {
+    // Requested search depth in plies and time budget in milliseconds; 0
+    // leaves that bound to the server.
+    private final int depth;
+    private final long timeMs;
+    @JsonCreator
+    public AnalyzeRequest(@JsonProperty("depth") int depth,
+                          @JsonProperty("timeMs") long timeMs) {
+      this.depth = depth;
+      this.timeMs = timeMs;
+    }
+    public int getDepth() { return depth; }
+    public long getTimeMs() { return timeMs; }
+  }
+
   // Nested message types for Server -> Client
   public static class Invalid {
     private final String reason;
@@ -111,6 +134,41 @@ public class Message {
     public Map<String, LobbyRoom> getLobbyRooms() { return lobbyRooms; }
   }
 
+  public static class MoveScore {
+    // Score for the side to move in hundredths of a disc; proven results are
+    // offset by 10000 (see Searcher.WIN_SCORE).
+    private final int row, col, score;
+    @JsonCreator
+    public MoveScore(@JsonProperty("row") int row, @JsonProperty("col") int col,
+                     @JsonProperty("score") int score) {
+      this.row = row;
+      this.col = col;
+      this.score = score;
+    }
+    public int getRow() { return row; }
+    public int getCol() { return col; }
+    public int getScore() { return score; }
+  }
+
+  public static class AnalyzeResult {
+    // Every legal move, best first, as scored by the deepest iteration so
+    // far. Results are sent after each iteration; the last one is complete.
+    private final List<MoveScore> moves;
+    private final int depth;
+    private final boolean complete;
+    @JsonCreator
+    public AnalyzeResult(@JsonProperty("moves") List<MoveScore> moves,
+                         @JsonProperty("depth") int depth,
+                         @JsonProperty("complete") boolean complete) {
+      this.moves = moves;
+      this.depth = depth;
+      this.complete = complete;
+    }
+    public List<MoveScore> getMoves() { return moves; }
+    public int getDepth() { return depth; }
+    public boolean isComplete() { return complete; }
+  }
+
   // Tagged union storage
   private final Object msg;
   private final Type type;
@@ -125,7 +183,9 @@ public class Message {
     LobbyReady,
     GameUpdate,
     LobbyCreate,
-    LobbyUpdate
+    LobbyUpdate,
+    AnalyzeRequest,
+    AnalyzeResult
   }
 
   // Constructors for different message types.
@@ -165,6 +225,14 @@ public class Message {
     this.msg = msg;
     this.type = Type.GameOver;
   }
+  public Message(AnalyzeRequest msg) {
+    this.msg = msg;
+    this.type = Type.AnalyzeRequest;
+  }
+  public Message(AnalyzeResult msg) {
+    this.msg = msg;
+    this.type = Type.AnalyzeResult;
+  }
 
   // No-arg constructor for Jackson
   protected Message() {
@@ -247,6 +315,16 @@ public class Message {
             mapper.treeToValue(msgNode, LobbyUpdate.class);
         return new Message(lobbyUpdate);
 
+      case AnalyzeRequest:
+        AnalyzeRequest analyzeRequest =
+            mapper.treeToValue(msgNode, AnalyzeRequest.class);
+        return new Message(analyzeRequest);
+
+      case AnalyzeResult:
+        AnalyzeResult analyzeResult =
+            mapper.treeToValue(msgNode, AnalyzeResult.class);
+        return new Message(analyzeResult);
+
       default:
         throw new IllegalStateException("Unexpected type: " + typeStr);
       }
@@ -0,0 +1,63 @@
+package com.reversi.common;
+
+/**
+ * An immutable record of a single move played on a {@link ReversiGame}.
+ * <p>
+ * It carries exactly what is needed to take the move back in constant time:
+ * the square that was played, the discs that were flipped, the player who was
+ * to move beforehand and whether the move was a pass.
+ * </p>
+ */
+public final class MoveRecord {
+  private final int square;
+  private final long flips;
+  private final Player previousPlayer;
+  private final boolean pass;
+
+  /**
+   * Constructs a new move record.
+   *
+   * @param square         the square index ({@code row * 8 + col}) played, or
+   *     -1 for a pass
+   * @param flips          the bitmask of discs flipped by the move
+   * @param previousPlayer the player who was to move before the move
+   * @param pass           true if the move was a pass
+   */
+  public MoveRecord(int square, long flips, Player previousPlayer,
+                    boolean pass) {
+    this.square = square;
+    this.flips = flips;
+    this.previousPlayer = previousPlayer;
+    this.pass = pass;
+  }
+
+  /**
+   * Creates the record of a pass by the given player.
+   *
+   * @param previousPlayer the player who passed
+   * @return a record with no square and no flips
+   */
+  public static MoveRecord pass(Player previousPlayer) {
+    return new MoveRecord(-1, 0L, previousPlayer, true);
+  }
+
+  public int getSquare() { return square; }
+
+  public int getRow() { return square / Board.BOARD_SIZE; }
+
+  public int getCol() { return square % Board.BOARD_SIZE; }
+
+  public long getFlips() { return flips; }
+
+  public Player getPreviousPlayer() { return previousPlayer; }
+
+  public boolean isPass() { return pass; }
+
+  @Override
+  public String toString() {
+    if (pass)
+      return previousPlayer.toChar() + ":pass";
+    return previousPlayer.toChar() + ":" + (char)('a' + getCol()) +
+        (getRow() + 1);
+  }
+}
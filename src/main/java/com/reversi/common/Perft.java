@@ -0,0 +1,204 @@
+package com.reversi.common;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Perft ("performance test") counts the leaf nodes of the game tree below a
+ * position to a fixed depth.
+ * <p>
+ * The node counts for a given position are fixed by the rules of the game,
+ * which makes perft a correctness oracle for move generation, and the time
+ * taken to produce them a throughput measure.
+ * </p>
+ * <p>
+ * Passing is handled as follows: a player without a valid move passes, and the
+ * pass consumes one ply of depth. When neither player can move the game is
+ * over and the position counts as a single leaf, regardless of the remaining
+ * depth.
+ * </p>
+ *
+ * <p><b>Usage:</b> {@code Perft <depth> [threads]}</p>
+ */
+public final class Perft {
+  private Perft() {}
+
+  /**
+   * The outcome of a perft run: the leaf count and the time taken.
+   */
+  public static final class Result {
+    private final int depth;
+    private final long nodes;
+    private final long elapsedNanos;
+
+    Result(int depth, long nodes, long elapsedNanos) {
+      this.depth = depth;
+      this.nodes = nodes;
+      this.elapsedNanos = elapsedNanos;
+    }
+
+    public int getDepth() { return depth; }
+
+    public long getNodes() { return nodes; }
+
+    public long getElapsedNanos() { return elapsedNanos; }
+
+    /**
+     * Returns the throughput of the run.
+     *
+     * @return leaf nodes counted per second
+     */
+    public double getNodesPerSecond() {
+      return elapsedNanos == 0 ? 0 : nodes * 1e9 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("perft(%d) = %d in %.3f s (%.0f nodes/s)", depth,
+                           nodes, elapsedNanos / 1e9, getNodesPerSecond());
+    }
+  }
+
+  /**
+   * Counts the leaf nodes below the given position on the calling thread.
+   * The game is restored to its original state before the method returns.
+   *
+   * @param game the position to start from
+   * @param depth the number of plies to search
+   * @return the number of leaf nodes
+   */
+  public static long perft(ReversiGame game, int depth) {
+    return perft(game.getBoard(), game.getCurrentPlayer(), depth);
+  }
+
+  /**
+   * Counts the leaf nodes below the given position using a fork-join pool.
+   * Each subtree of the root is searched as its own task on a copy of the
+   * position, so the game passed in is never modified.
+   *
+   * @param game the position to start from
+   * @param depth the number of plies to search
+   * @param pool the pool that runs the subtree tasks
+   * @return the number of leaf nodes
+   */
+  public static long perft(ReversiGame game, int depth, ForkJoinPool pool) {
+    return pool.invoke(
+        new SubtreeTask(new Board(game.getBoard()), game.getCurrentPlayer(),
+                        depth, PARALLEL_DEPTH));
+  }
+
+  /**
+   * Runs perft and measures how long it takes.
+   *
+   * @param game the position to start from
+   * @param depth the number of plies to search
+   * @param pool the pool to run in, or {@code null} to run on the calling
+   *     thread
+   * @return the node count together with the elapsed time
+   */
+  public static Result run(ReversiGame game, int depth, ForkJoinPool pool) {
+    long start = System.nanoTime();
+    long nodes = pool == null ? perft(game, depth) : perft(game, depth, pool);
+    return new Result(depth, nodes, System.nanoTime() - start);
+  }
+
+  /**
+   * Number of plies near the root that are split into separate fork-join
+   * tasks; deeper subtrees are counted sequentially.
+   */
+  private static final int PARALLEL_DEPTH = 2;
+
+  private static long perft(Board board, Player player, int depth) {
+    if (depth == 0)
+      return 1;
+
+    long moves = board.getValidMoveMask(player);
+    if (moves == 0) {
+      if (board.getValidMoveMask(player.opponent()) == 0)
+        return 1; // Game over.
+      return perft(board, player.opponent(), depth - 1);
+    }
+    if (depth == 1)
+      return Long.bitCount(moves);
+
+    long nodes = 0;
+    while (moves != 0) {
+      int sq = Long.numberOfTrailingZeros(moves);
+      moves &= moves - 1;
+      long flips = board.play(sq, player);
+      nodes += perft(board, player.opponent(), depth - 1);
+      board.unmakeMove(sq, flips, player);
+    }
+    return nodes;
+  }
+
+  /**
+   * Fork-join task counting the subtree below one position. Positions within
+   * {@code splitDepth} plies of the root fork one task per child.
+   * Tasks are never serialized.
+   */
+  @SuppressWarnings("serial")
+  private static class SubtreeTask extends RecursiveTask<Long> {
+    private final Board board;
+    private final Player player;
+    private final int depth;
+    private final int splitDepth;
+
+    SubtreeTask(Board board, Player player, int depth, int splitDepth) {
+      this.board = board;
+      this.player = player;
+      this.depth = depth;
+      this.splitDepth = splitDepth;
+    }
+
+    @Override
+    protected Long compute() {
+      long moves = board.getValidMoveMask(player);
+      if (splitDepth == 0 || depth <= 1 || moves == 0)
+        return perft(board, player, depth);
+
+      List<SubtreeTask> tasks = new ArrayList<>(Long.bitCount(moves));
+      while (moves != 0) {
+        int sq = Long.numberOfTrailingZeros(moves);
+        moves &= moves - 1;
+        Board child = new Board(board);
+        child.play(sq, player);
+        tasks.add(new SubtreeTask(child, player.opponent(), depth - 1,
+                                  splitDepth - 1));
+      }
+      long nodes = 0;
+      for (SubtreeTask task : invokeAll(tasks)) {
+        nodes += task.join();
+      }
+      return nodes;
+    }
+  }
+
+  /**
+   * Command-line entry point. Prints perft results for every depth from 1 up
+   * to the requested one, starting from the default position.
+   *
+   * @param args {@code <depth> [threads]}; with more than one thread the
+   *     subtrees are counted in a fork-join pool
+   */
+  public static void main(String[] args) {
+    if (args.length < 1) {
+      System.err.println("Usage: Perft <depth> [threads]");
+      System.exit(1);
+    }
+    int depth = Integer.parseInt(args[0]);
+    int threads = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+
+    ForkJoinPool pool = threads > 1 ? new ForkJoinPool(threads) : null;
+    try {
+      for (int d = 1; d <= depth; d++) {
+        System.out.println(Perft.run(new ReversiGame(), d, pool));
+      }
+    } finally {
+      if (pool != null)
+        pool.shutdown();
+    }
+  }
+}
@@ -49,6 +49,16 @@ public class ReversiGame {
     this.currentPlayer = currentPlayer;
   }
 
+  /**
+   * Creates an independent copy of this game whose board can be modified
+   * without affecting the original.
+   *
+   * @return a deep copy of this game
+   */
+  public ReversiGame copy() {
+    return new ReversiGame(new Board(board), currentPlayer);
+  }
+
   /**
    * Retrieves the current state of the game board.
    *
@@ -88,12 +98,67 @@ public class ReversiGame {
    *     if invalid
    */
   public boolean makeMove(int row, int col) {
-    if (!board.makeMove(row, col, currentPlayer))
-      return false;
+    return play(row, col) != null;
+  }
+
+  /**
+   * Plays a move for the current player and returns a record that can later be
+   * passed to {@link #unmakeMove(MoveRecord)}.
+   *
+   * @param row the 0-indexed row position where the disc is placed
+   * @param col the 0-indexed column position where the disc is placed
+   * @return the record of the executed move, or {@code null} if it was invalid
+   */
+  public MoveRecord play(int row, int col) {
+    if (row < 0 || row >= Board.BOARD_SIZE || col < 0 ||
+        col >= Board.BOARD_SIZE)
+      return null;
+    int square = Board.square(row, col);
+    long flips = board.play(square, currentPlayer);
+    if (flips == 0)
+      return null;
 
+    MoveRecord record = new MoveRecord(square, flips, currentPlayer, false);
     // Switch the turn to the opponent.
     currentPlayer = currentPlayer.opponent();
-    return true;
+    return record;
+  }
+
+  /**
+   * Passes the turn to the opponent. This is only allowed when the current
+   * player has no valid move.
+   *
+   * @return the record of the pass, or {@code null} if the current player
+   *     still has a valid move
+   */
+  public MoveRecord pass() {
+    if (board.getValidMoveMask(currentPlayer) != 0)
+      return null;
+    MoveRecord record = MoveRecord.pass(currentPlayer);
+    currentPlayer = currentPlayer.opponent();
+    return record;
+  }
+
+  /**
+   * Takes back a move returned by {@link #play(int, int)} or {@link #pass()}.
+   * Moves must be undone in the reverse order in which they were made.
+   *
+   * @param move the record of the most recent move that has not been undone
+   */
+  public void unmakeMove(MoveRecord move) {
+    if (!move.isPass())
+      board.unmakeMove(move.getSquare(), move.getFlips(),
+                       move.getPreviousPlayer());
+    currentPlayer = move.getPreviousPlayer();
+  }
+
+  /**
+   * Returns every valid move for the current player as a bitmask.
+   *
+   * @return a bitmask with bit {@code row * 8 + col} set for each valid move
+   */
+  public long getValidMoveMask() {
+    return board.getValidMoveMask(currentPlayer);
   }
 
   /**
@@ -115,6 +180,26 @@ public class ReversiGame {
     return currentPlayer == other.currentPlayer && board.equals(other.board);
   }
 
+  /**
+   * Returns a hash code consistent with {@link #equals(Object)}.
+   *
+   * @return the folded 64-bit position hash
+   */
+  @Override
+  public int hashCode() {
+    return Long.hashCode(getHash());
+  }
+
+  /**
+   * Returns the 64-bit Zobrist hash of the position, including the side to
+   * move. It is maintained incrementally by the board and costs O(1).
+   *
+   * @return the position hash
+   */
+  public long getHash() {
+    return board.getHash() ^ Zobrist.side(currentPlayer);
+  }
+
   /**
    * Loads the state of this game from another game instance.
    *
@@ -0,0 +1,52 @@
+package com.reversi.common;
+
+/**
+ * A ticker driven by the caller instead of a timer thread.
+ * <p>
+ * Time only passes when {@link #advance(long)} is called, which runs one tick
+ * for every full interval elapsed and carries the remainder over. Clocks
+ * using it can be charged the measured cost of a move at once, which lets
+ * simulations such as engine tournaments run many games without sleeping or
+ * spawning timer threads.
+ * </p>
+ */
+public class VirtualTicker implements ITicker {
+  private Runnable onTick;
+  private long intervalMillis;
+  private long pendingMillis;
+  private boolean running;
+
+  @Override
+  public synchronized void start(Runnable onTick, long tickIntervalMillis) {
+    this.onTick = onTick;
+    this.intervalMillis = tickIntervalMillis;
+    this.pendingMillis = 0;
+    this.running = true;
+  }
+
+  @Override
+  public synchronized void stop() {
+    running = false;
+  }
+
+  /**
+   * Lets time pass, running the ticks that fall due. Ticks run on the calling
+   * thread, without this ticker's lock held, and stop as soon as the ticker
+   * is stopped (for example by a clock that ran out).
+   *
+   * @param millis the time that passed, in milliseconds
+   */
+  public void advance(long millis) {
+    synchronized (this) { pendingMillis += millis; }
+    while (true) {
+      Runnable tick;
+      synchronized (this) {
+        if (!running || pendingMillis < intervalMillis)
+          return;
+        pendingMillis -= intervalMillis;
+        tick = onTick;
+      }
+      tick.run();
+    }
+  }
+}
@@ -0,0 +1,104 @@
+package com.reversi.common;
+
+import java.util.SplittableRandom;
+
+/**
+ * Zobrist keys used to hash Reversi positions.
+ * <p>
+ * Every (colour, square) pair and the side to move has a random 64-bit key; a
+ * position hashes to the XOR of the keys of everything it contains. The keys
+ * are generated from a fixed seed so hashes are stable across runs and can be
+ * persisted.
+ * </p>
+ */
+public final class Zobrist {
+  private static final long SEED = 0x2545F4914F6CDD1DL;
+
+  private static final long[] BLACK = new long[64];
+  private static final long[] WHITE = new long[64];
+
+  /**
+   * Per-square XOR of the black and white keys, used to flip a disc from one
+   * colour to the other in a single step.
+   */
+  private static final long[] FLIP = new long[64];
+
+  /** Key mixed into a position hash when White is to move. */
+  public static final long WHITE_TO_MOVE;
+
+  static {
+    SplittableRandom random = new SplittableRandom(SEED);
+    for (int sq = 0; sq < 64; sq++) {
+      BLACK[sq] = random.nextLong();
+      WHITE[sq] = random.nextLong();
+      FLIP[sq] = BLACK[sq] ^ WHITE[sq];
+    }
+    WHITE_TO_MOVE = random.nextLong();
+  }
+
+  private Zobrist() {}
+
+  /**
+   * Returns the key of a disc of the given colour on the given square.
+   *
+   * @param player the disc colour; Player.None has no key
+   * @param square the square index ({@code row * 8 + col})
+   * @return the key, or 0 for Player.None
+   */
+  public static long disc(Player player, int square) {
+    switch (player) {
+    case Black:
+      return BLACK[square];
+    case White:
+      return WHITE[square];
+    default:
+      return 0L;
+    }
+  }
+
+  /**
+   * Returns the combined key change caused by flipping every disc in
+   * {@code flips} to the other colour.
+   *
+   * @param flips the bitmask of flipped discs
+   * @return the value to XOR into a hash
+   */
+  public static long flips(long flips) {
+    long key = 0L;
+    while (flips != 0) {
+      key ^= FLIP[Long.numberOfTrailingZeros(flips)];
+      flips &= flips - 1;
+    }
+    return key;
+  }
+
+  /**
+   * Computes the hash of a disc configuration from scratch.
+   *
+   * @param black the bitboard of black discs
+   * @param white the bitboard of white discs
+   * @return the XOR of the keys of every disc
+   */
+  public static long hash(long black, long white) {
+    long key = 0L;
+    while (black != 0) {
+      key ^= BLACK[Long.numberOfTrailingZeros(black)];
+      black &= black - 1;
+    }
+    while (white != 0) {
+      key ^= WHITE[Long.numberOfTrailingZeros(white)];
+      white &= white - 1;
+    }
+    return key;
+  }
+
+  /**
+   * Returns the key for the side to move.
+   *
+   * @param player the player to move
+   * @return {@link #WHITE_TO_MOVE} for White, 0 otherwise
+   */
+  public static long side(Player player) {
+    return player == Player.White ? WHITE_TO_MOVE : 0L;
+  }
+}
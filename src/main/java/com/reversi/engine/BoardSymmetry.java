@@ -0,0 +1,80 @@
+package com.reversi.engine;
+
+/**
+ * The eight symmetries of the board (rotations and reflections) applied to
+ * bitboards and square indices.
+ * <p>
+ * A symmetry is numbered 0-7. Bit 0 transposes the board (swaps rows and
+ * columns), bit 1 then mirrors the columns and bit 2 then flips the rows;
+ * symmetry 0 is the identity.
+ * </p>
+ */
+final class BoardSymmetry {
+  static final int COUNT = 8;
+
+  private static final int[][] SQUARES = new int[COUNT][64];
+  private static final int[] INVERSE = new int[COUNT];
+
+  static {
+    for (int s = 0; s < COUNT; s++) {
+      for (int sq = 0; sq < 64; sq++)
+        SQUARES[s][sq] = Long.numberOfTrailingZeros(transform(1L << sq, s));
+    }
+    for (int s = 0; s < COUNT; s++) {
+      for (int t = 0; t < COUNT; t++) {
+        boolean identity = true;
+        for (int sq = 0; sq < 64 && identity; sq++)
+          identity = SQUARES[t][SQUARES[s][sq]] == sq;
+        if (identity)
+          INVERSE[s] = t;
+      }
+    }
+  }
+
+  private BoardSymmetry() {}
+
+  /**
+   * Applies a symmetry to a bitboard.
+   *
+   * @param bits     the bitboard
+   * @param symmetry the symmetry number, 0-7
+   * @return the transformed bitboard
+   */
+  static long transform(long bits, int symmetry) {
+    if ((symmetry & 1) != 0)
+      bits = transpose(bits);
+    if ((symmetry & 2) != 0)
+      bits = mirrorColumns(bits);
+    if ((symmetry & 4) != 0)
+      bits = Long.reverseBytes(bits);
+    return bits;
+  }
+
+  /** Returns the image of a square under a symmetry. */
+  static int square(int square, int symmetry) {
+    return SQUARES[symmetry][square];
+  }
+
+  /** Returns the symmetry that undoes {@code symmetry}. */
+  static int inverse(int symmetry) { return INVERSE[symmetry]; }
+
+  /** Reverses the bits within each row. */
+  private static long mirrorColumns(long x) {
+    x = ((x >>> 1) & 0x5555555555555555L) | ((x & 0x5555555555555555L) << 1);
+    x = ((x >>> 2) & 0x3333333333333333L) | ((x & 0x3333333333333333L) << 2);
+    x = ((x >>> 4) & 0x0F0F0F0F0F0F0F0FL) | ((x & 0x0F0F0F0F0F0F0F0FL) << 4);
+    return x;
+  }
+
+  /** Reflects across the a1-h8 diagonal, mapping (row, col) to (col, row). */
+  private static long transpose(long x) {
+    long t;
+    t = 0x0F0F0F0F00000000L & (x ^ (x << 28));
+    x ^= t ^ (t >>> 28);
+    t = 0x3333000033330000L & (x ^ (x << 14));
+    x ^= t ^ (t >>> 14);
+    t = 0x5500550055005500L & (x ^ (x << 7));
+    x ^= t ^ (t >>> 7);
+    return x;
+  }
+}
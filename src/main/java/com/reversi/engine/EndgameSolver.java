@@ -0,0 +1,413 @@
+package com.reversi.engine;
+
+import com.reversi.common.Board;
+import com.reversi.common.Player;
+import com.reversi.common.ReversiGame;
+import com.reversi.common.Zobrist;
+
+/**
+ * An exact solver for positions with few empty squares.
+ * <p>
+ * It searches every line to the end of the game and returns the final disc
+ * differential under perfect play by both sides, with empty squares counted
+ * for the winner. Compared with {@link Searcher} it has no evaluation function
+ * and uses endgame specific techniques:
+ * </p>
+ * <ul>
+ * <li>fastest-first ordering (moves leaving the opponent the fewest replies)
+ * while many squares are empty;</li>
+ * <li>parity ordering (moves into quadrants with an odd number of empties)
+ * near the leaves, where computing mobility costs more than it saves;</li>
+ * <li>a dedicated routine for the last empty square;</li>
+ * <li>a stability cutoff: discs the opponent can never lose bound the best
+ * achievable score, often before any move is tried;</li>
+ * <li>a transposition table for the upper part of the tree.</li>
+ * </ul>
+ * <p>
+ * Positions with up to about 20 empties solve in seconds; each further empty
+ * square multiplies the cost by roughly three. A solver is not thread-safe.
+ * </p>
+ */
+public class EndgameSolver {
+  /** Below this many empties moves are ordered by parity only. */
+  private static final int FASTEST_FIRST_EMPTIES = 7;
+  /** Below this many empties the table is not consulted. */
+  private static final int TABLE_EMPTIES = 8;
+  /** Below this many empties the stability bound is not computed. */
+  private static final int STABILITY_EMPTIES = 5;
+
+  private static final int CHECK_INTERVAL = 4096;
+  // Each empty square takes at most one move and one pass, and the root may
+  // pass once more.
+  private static final int MAX_PLY = 2 * 64 + 1;
+  // Any board given to solve may have as many legal moves as empties.
+  private static final int MAX_MOVES = 64;
+
+  /** Squares on the outer ring. */
+  private static final long EDGES = 0xFF818181818181FFL;
+  private static final long CORNERS = 0x8100000000000081L;
+  private static final long FILE_A = 0x0101010101010101L;
+  private static final long FILE_H = 0x8080808080808080L;
+  private static final long RANK_1 = 0x00000000000000FFL;
+  private static final long RANK_8 = 0xFF00000000000000L;
+
+  /** Bit for the quadrant of each square, used to track region parity. */
+  private static final int[] QUADRANT = new int[64];
+
+  /** Full lines through each square: horizontal, vertical and diagonals. */
+  private static final long[] ROWS = new long[8];
+  private static final long[] COLUMNS = new long[8];
+  private static final long[] DIAGONALS = new long[15];
+  private static final long[] ANTI_DIAGONALS = new long[15];
+
+  static {
+    for (int sq = 0; sq < 64; sq++) {
+      int row = sq / 8, col = sq % 8;
+      QUADRANT[sq] = 1 << ((row / 4) * 2 + col / 4);
+      ROWS[row] |= 1L << sq;
+      COLUMNS[col] |= 1L << sq;
+      DIAGONALS[row - col + 7] |= 1L << sq;
+      ANTI_DIAGONALS[row + col] |= 1L << sq;
+    }
+  }
+
+  private final TranspositionTable table;
+  private final int[][] moveLists = new int[MAX_PLY][MAX_MOVES];
+  private final int[][] moveKeys = new int[MAX_PLY][MAX_MOVES];
+
+  private volatile boolean stopRequested;
+  private long nodes;
+  private long maxNodes;
+  private long deadline;
+  private boolean aborted;
+  private int rootBestMove;
+
+  /** Creates a solver with a transposition table of 2^20 entries. */
+  public EndgameSolver() { this(new TranspositionTable(1 << 20)); }
+
+  /**
+   * @param table caches results of the upper part of the tree; it should not
+   *     be shared with a {@link Searcher}, whose scores use different units
+   */
+  public EndgameSolver(TranspositionTable table) { this.table = table; }
+
+  /**
+   * Solves the position of a game exactly, without limits.
+   *
+   * @param game the position to solve; it is not modified
+   * @return the best move and its exact final disc differential for the side
+   *     to move; the depth is the number of empty squares
+   */
+  public SearchResult solve(ReversiGame game) {
+    return solve(game.getBoard(), game.getCurrentPlayer(),
+                 new SearchLimits(0, 0, 0));
+  }
+
+  /**
+   * Solves a position exactly within the node and time budget of
+   * {@code limits}; the depth limit is ignored.
+   *
+   * @param board  the position to solve; it is not modified
+   * @param player the side to move
+   * @param limits the node and time budget
+   * @return the best move and its exact final disc differential, or
+   *     {@code null} if the budget ran out first
+   */
+  public SearchResult solve(Board board, Player player, SearchLimits limits) {
+    long start = System.nanoTime();
+    stopRequested = false;
+    aborted = false;
+    nodes = 0;
+    maxNodes = limits.getMaxNodes();
+    deadline = limits.getTimeMillis() > 0
+                   ? start + limits.getTimeMillis() * 1_000_000L
+                   : 0;
+
+    long own = board.getDiscs(player);
+    long opp = board.getDiscs(player.opponent());
+    long empty = ~(own | opp);
+    int empties = Long.bitCount(empty);
+    long hash = board.getHash() ^ Zobrist.side(player);
+
+    long moves = Board.legalMoves(own, opp);
+    int bestMove = SearchResult.PASS;
+    int score;
+    if (moves == 0) {
+      score = Board.legalMoves(opp, own) == 0
+                  ? finalScore(own, opp)
+                  : -solve(opp, own, hash ^ Zobrist.WHITE_TO_MOVE,
+                           player.opponent(), parity(empty), empties, 0, -64,
+                           64);
+    } else {
+      // The root is searched like any node; its best move is then read from
+      // the per-ply scratch space.
+      score = solveRoot(own, opp, hash, player, parity(empty), empties);
+      bestMove = rootBestMove;
+    }
+    if (aborted)
+      return null;
+    return new SearchResult(bestMove, score, empties, nodes,
+                            System.nanoTime() - start);
+  }
+
+  /**
+   * Asks a running solve to stop as soon as possible. May be called from any
+   * thread.
+   */
+  public void stop() { stopRequested = true; }
+
+  private int solveRoot(long own, long opp, long hash, Player color,
+                        int parity, int empties) {
+    int count = orderMoves(own, opp, Board.legalMoves(own, opp),
+                           TranspositionTable.NO_MOVE, parity, empties, 0);
+    int[] list = moveLists[0];
+    int alpha = -65;
+    rootBestMove = list[0];
+    for (int i = 0; i < count; i++) {
+      int sq = list[i];
+      long flips = Board.flips(own, opp, sq);
+      int score = -solve(opp & ~flips, own | flips | (1L << sq),
+                         hash ^ Zobrist.disc(color, sq) ^ Zobrist.flips(flips) ^
+                             Zobrist.WHITE_TO_MOVE,
+                         color.opponent(), parity ^ QUADRANT[sq], empties - 1,
+                         1, -64, -alpha);
+      if (aborted)
+        return 0;
+      if (score > alpha) {
+        alpha = score;
+        rootBestMove = sq;
+      }
+    }
+    return alpha;
+  }
+
+  /**
+   * Negamax over the final disc differential from the point of view of
+   * {@code own}. {@code parity} has one bit per quadrant that holds an odd
+   * number of empty squares.
+   */
+  private int solve(long own, long opp, long hash, Player color, int parity,
+                    int empties, int ply, int alpha, int beta) {
+    if ((++nodes & (CHECK_INTERVAL - 1)) == 0)
+      checkLimits();
+    if (aborted)
+      return 0;
+
+    if (empties == 1)
+      return solveLastEmpty(own, opp);
+
+    // Stability cutoff: discs the opponent can never lose cap our score.
+    if (empties >= STABILITY_EMPTIES) {
+      int upper = 64 - 2 * Long.bitCount(stableDiscs(opp, own));
+      if (upper <= alpha)
+        return upper;
+      if (upper < beta)
+        beta = upper;
+    }
+
+    int ttMove = TranspositionTable.NO_MOVE;
+    if (empties >= TABLE_EMPTIES) {
+      long entry = table.probe(hash);
+      if (entry != 0) {
+        ttMove = TranspositionTable.move(entry);
+        int score = TranspositionTable.score(entry);
+        int bound = TranspositionTable.bound(entry);
+        if (bound == TranspositionTable.EXACT ||
+            (bound == TranspositionTable.LOWER && score >= beta) ||
+            (bound == TranspositionTable.UPPER && score <= alpha))
+          return score;
+      }
+    }
+
+    long moves = Board.legalMoves(own, opp);
+    if (moves == 0) {
+      if (Board.legalMoves(opp, own) == 0)
+        return finalScore(own, opp);
+      return -solve(opp, own, hash ^ Zobrist.WHITE_TO_MOVE, color.opponent(),
+                    parity, empties, ply + 1, -beta, -alpha);
+    }
+
+    int count = orderMoves(own, opp, moves, ttMove, parity, empties, ply);
+    int[] list = moveLists[ply];
+    int alphaOrig = alpha;
+    int best = -65;
+    int bestMove = TranspositionTable.NO_MOVE;
+    for (int i = 0; i < count; i++) {
+      int sq = list[i];
+      long flips = Board.flips(own, opp, sq);
+      long newOwn = own | flips | (1L << sq);
+      long newOpp = opp & ~flips;
+      long childHash = hash ^ Zobrist.disc(color, sq) ^ Zobrist.flips(flips) ^
+                       Zobrist.WHITE_TO_MOVE;
+      int childParity = parity ^ QUADRANT[sq];
+
+      int score;
+      if (i == 0) {
+        score = -solve(newOpp, newOwn, childHash, color.opponent(), childParity,
+                       empties - 1, ply + 1, -beta, -alpha);
+      } else {
+        score = -solve(newOpp, newOwn, childHash, color.opponent(), childParity,
+                       empties - 1, ply + 1, -alpha - 1, -alpha);
+        if (score > alpha && score < beta)
+          score = -solve(newOpp, newOwn, childHash, color.opponent(),
+                         childParity, empties - 1, ply + 1, -beta, -alpha);
+      }
+      if (aborted)
+        return 0;
+
+      if (score > best) {
+        best = score;
+        bestMove = sq;
+        if (score > alpha) {
+          alpha = score;
+          if (alpha >= beta)
+            break;
+        }
+      }
+    }
+
+    if (empties >= TABLE_EMPTIES) {
+      int bound = best <= alphaOrig ? TranspositionTable.UPPER
+                  : best >= beta    ? TranspositionTable.LOWER
+                                    : TranspositionTable.EXACT;
+      table.store(hash, best, empties, bound, bestMove);
+    }
+    return best;
+  }
+
+  /**
+   * Scores a position with exactly one empty square without generating any
+   * move list: either side to move plays it if it can, otherwise the game
+   * ends with the square empty.
+   */
+  private static int solveLastEmpty(long own, long opp) {
+    long empty = ~(own | opp);
+    int sq = Long.numberOfTrailingZeros(empty);
+    long flips = Board.flips(own, opp, sq);
+    if (flips != 0)
+      return finalScore(own | flips | empty, opp & ~flips);
+    flips = Board.flips(opp, own, sq);
+    if (flips != 0)
+      return finalScore(own & ~flips, opp | flips | empty);
+    return finalScore(own, opp);
+  }
+
+  /**
+   * Orders the moves of one node into the per-ply move list. The table move
+   * comes first. With many empties the remaining moves are sorted by the
+   * opponent's mobility after the move (fastest first), with a bonus for
+   * corners; near the leaves they are sorted by region parity only.
+   */
+  private int orderMoves(long own, long opp, long moves, int ttMove,
+                         int parity, int empties, int ply) {
+    int[] list = moveLists[ply];
+    int[] keys = moveKeys[ply];
+    int count = 0;
+    while (moves != 0) {
+      int sq = Long.numberOfTrailingZeros(moves);
+      moves &= moves - 1;
+
+      int key;
+      if (sq == ttMove) {
+        key = Integer.MAX_VALUE;
+      } else {
+        key = (parity & QUADRANT[sq]) != 0 ? 8 : 0;
+        if (empties > FASTEST_FIRST_EMPTIES) {
+          long flips = Board.flips(own, opp, sq);
+          long replies =
+              Board.legalMoves(opp & ~flips, own | flips | (1L << sq));
+          key += -16 * Long.bitCount(replies) -
+                 4 * Long.bitCount(replies & CORNERS) +
+                 ((CORNERS >>> sq & 1) != 0 ? 32 : 0);
+        }
+      }
+
+      int j = count++;
+      while (j > 0 && keys[j - 1] < key) {
+        list[j] = list[j - 1];
+        keys[j] = keys[j - 1];
+        j--;
+      }
+      list[j] = sq;
+      keys[j] = key;
+    }
+    return count;
+  }
+
+  /**
+   * Returns a subset of {@code discs} that can never be flipped. A disc is
+   * stable if along each of the four axes its line is full, or it touches the
+   * edge of the board, or it touches a stable disc of the same colour. The
+   * set is grown from the corners until it no longer changes.
+   *
+   * @param discs the discs of the side whose stability is measured
+   * @param other the discs of the other side
+   * @return a bitmask of provably stable discs
+   */
+  static long stableDiscs(long discs, long other) {
+    if ((discs & EDGES) == 0)
+      return 0L;
+    long occupied = discs | other;
+    long fullH = 0, fullV = 0, fullD = 0, fullA = 0;
+    for (int i = 0; i < 8; i++) {
+      if ((occupied & ROWS[i]) == ROWS[i])
+        fullH |= ROWS[i];
+      if ((occupied & COLUMNS[i]) == COLUMNS[i])
+        fullV |= COLUMNS[i];
+    }
+    for (int i = 0; i < 15; i++) {
+      if ((occupied & DIAGONALS[i]) == DIAGONALS[i])
+        fullD |= DIAGONALS[i];
+      if ((occupied & ANTI_DIAGONALS[i]) == ANTI_DIAGONALS[i])
+        fullA |= ANTI_DIAGONALS[i];
+    }
+
+    long stable = discs & CORNERS;
+    while (true) {
+      long horizontal = fullH | FILE_A | FILE_H | ((stable << 1) & ~FILE_A) |
+                        ((stable >>> 1) & ~FILE_H);
+      long vertical = fullV | RANK_1 | RANK_8 | (stable << 8) | (stable >>> 8);
+      long diagonal = fullD | EDGES | ((stable << 9) & ~FILE_A) |
+                      ((stable >>> 9) & ~FILE_H);
+      long antiDiagonal = fullA | EDGES | ((stable << 7) & ~FILE_H) |
+                          ((stable >>> 7) & ~FILE_A);
+      long next =
+          stable | (discs & horizontal & vertical & diagonal & antiDiagonal);
+      if (next == stable)
+        return stable;
+      stable = next;
+    }
+  }
+
+  /** Computes the quadrant parity bits of a set of empty squares. */
+  private static int parity(long empty) {
+    int parity = 0;
+    while (empty != 0) {
+      parity ^= QUADRANT[Long.numberOfTrailingZeros(empty)];
+      empty &= empty - 1;
+    }
+    return parity;
+  }
+
+  /**
+   * Returns the final disc differential, with empty squares counted for the
+   * winner.
+   */
+  static int finalScore(long own, long opp) {
+    int ownCount = Long.bitCount(own);
+    int oppCount = Long.bitCount(opp);
+    int diff = ownCount - oppCount;
+    int empties = 64 - ownCount - oppCount;
+    if (diff > 0)
+      return diff + empties;
+    if (diff < 0)
+      return diff - empties;
+    return 0;
+  }
+
+  private void checkLimits() {
+    if (stopRequested || (maxNodes > 0 && nodes >= maxNodes) ||
+        (deadline != 0 && System.nanoTime() - deadline >= 0))
+      aborted = true;
+  }
+}
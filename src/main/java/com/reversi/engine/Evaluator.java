@@ -0,0 +1,21 @@
+package com.reversi.engine;
+
+/**
+ * Static evaluation of a position that is not searched any further.
+ * <p>
+ * Positions are given as two bitboards (see {@link com.reversi.common.Board})
+ * from the point of view of the side to move. The result must lie strictly
+ * between {@code -Searcher.WIN_SCORE} and {@code Searcher.WIN_SCORE} so that
+ * any evaluation ranks below a proven win and above a proven loss.
+ * </p>
+ */
+public interface Evaluator {
+  /**
+   * Scores a position for the side to move; higher is better.
+   *
+   * @param own the discs of the side to move
+   * @param opp the discs of the opponent
+   * @return the score, in hundredths of a disc
+   */
+  int evaluate(long own, long opp);
+}
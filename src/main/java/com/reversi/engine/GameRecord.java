@@ -0,0 +1,123 @@
+package com.reversi.engine;
+
+import com.reversi.common.Board;
+import com.reversi.common.Player;
+import com.reversi.common.ReversiGame;
+
+/**
+ * A complete game replayed from its moves, with the position before every
+ * move and the final result. Used to build opening books and to train
+ * evaluators.
+ */
+public final class GameRecord {
+  private final int[] moves;
+  private final long[] blacks;
+  private final long[] whites;
+  private final Player[] players;
+  private final int blackResult;
+
+  private GameRecord(int[] moves, long[] blacks, long[] whites,
+                     Player[] players, int blackResult) {
+    this.moves = moves;
+    this.blacks = blacks;
+    this.whites = whites;
+    this.players = players;
+    this.blackResult = blackResult;
+  }
+
+  /**
+   * Parses a transcript such as {@code "f5d6c3d3c4"}. Passes are implied and
+   * may be omitted.
+   *
+   * @param transcript the moves of the game
+   * @return the game, or {@code null} if the transcript is malformed,
+   *     contains an illegal move or does not reach the end of the game
+   */
+  public static GameRecord parse(String transcript) {
+    String text = transcript.trim().toLowerCase();
+    if (text.length() % 2 != 0)
+      return null;
+    int[] squares = new int[text.length() / 2];
+    for (int i = 0; i < squares.length; i++) {
+      int col = text.charAt(2 * i) - 'a';
+      int row = text.charAt(2 * i + 1) - '1';
+      if (col < 0 || col >= 8 || row < 0 || row >= 8)
+        return null;
+      squares[i] = Board.square(row, col);
+    }
+    return replay(squares);
+  }
+
+  /**
+   * Replays the squares played, in order, from the starting position. Passes
+   * are implied.
+   *
+   * @param squares the moves of the game ({@code row * 8 + col})
+   * @return the game, or {@code null} if it contains an illegal move or does
+   *     not reach the end of the game
+   */
+  public static GameRecord replay(int[] squares) {
+    ReversiGame game = new ReversiGame();
+    long[] blacks = new long[squares.length];
+    long[] whites = new long[squares.length];
+    Player[] players = new Player[squares.length];
+    for (int i = 0; i < squares.length; i++) {
+      if (isOver(game))
+        return null;
+      if (game.getValidMoveMask() == 0)
+        game.pass();
+      blacks[i] = game.getBoard().getDiscs(Player.Black);
+      whites[i] = game.getBoard().getDiscs(Player.White);
+      players[i] = game.getCurrentPlayer();
+      if (game.play(squares[i] / 8, squares[i] % 8) == null)
+        return null;
+    }
+    if (!isOver(game))
+      return null;
+    int result =
+        EndgameSolver.finalScore(game.getBoard().getDiscs(Player.Black),
+                                 game.getBoard().getDiscs(Player.White));
+    return new GameRecord(squares.clone(), blacks, whites, players, result);
+  }
+
+  /**
+   * Returns whether neither side can move.
+   *
+   * @param game the game to test
+   * @return {@code true} if the game is over
+   */
+  public static boolean isOver(ReversiGame game) {
+    Player opponent = game.getCurrentPlayer().opponent();
+    return game.getValidMoveMask() == 0 &&
+        game.getBoard().getValidMoveMask(opponent) == 0;
+  }
+
+  /** Returns the number of moves, passes excluded. */
+  public int size() { return moves.length; }
+
+  /** Returns the square played at move {@code i}. */
+  public int getMove(int i) { return moves[i]; }
+
+  /** Returns the black discs before move {@code i}. */
+  public long getBlack(int i) { return blacks[i]; }
+
+  /** Returns the white discs before move {@code i}. */
+  public long getWhite(int i) { return whites[i]; }
+
+  /** Returns the player who made move {@code i}. */
+  public Player getPlayer(int i) { return players[i]; }
+
+  /**
+   * Returns the final disc differential from Black's point of view, with
+   * empty squares counted for the winner.
+   */
+  public int getBlackResult() { return blackResult; }
+
+  /**
+   * Returns the final disc differential for the player who made move
+   * {@code i}.
+   */
+  public int getResult(int i) {
+    return players[i] == Player.Black ? blackResult : -blackResult;
+  }
+}
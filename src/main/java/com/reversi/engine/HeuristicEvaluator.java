@@ -0,0 +1,53 @@
+package com.reversi.engine;
+
+import com.reversi.common.Board;
+
+/**
+ * A cheap hand-tuned evaluator based on corners, the squares next to empty
+ * corners, mobility and, late in the game, the disc count.
+ */
+public class HeuristicEvaluator implements Evaluator {
+  private static final long CORNERS = 0x8100000000000081L;
+
+  /** X-squares: diagonally adjacent to a corner. */
+  private static final long[] X_SQUARES = {1L << 9, 1L << 14, 1L << 49,
+                                           1L << 54};
+
+  /** C-squares: orthogonally adjacent to a corner. */
+  private static final long[] C_SQUARES = {
+      (1L << 1) | (1L << 8), (1L << 6) | (1L << 15), (1L << 48) | (1L << 57),
+      (1L << 55) | (1L << 62)};
+
+  private static final long[] CORNER_BITS = {1L, 1L << 7, 1L << 56, 1L << 63};
+
+  private static final int CORNER_WEIGHT = 800;
+  private static final int X_SQUARE_WEIGHT = 300;
+  private static final int C_SQUARE_WEIGHT = 100;
+  private static final int MOBILITY_WEIGHT = 60;
+  private static final int DISC_WEIGHT = 20;
+
+  @Override
+  public int evaluate(long own, long opp) {
+    int score = CORNER_WEIGHT * (Long.bitCount(own & CORNERS) -
+                                 Long.bitCount(opp & CORNERS));
+
+    long empty = ~(own | opp);
+    for (int i = 0; i < CORNER_BITS.length; i++) {
+      if ((empty & CORNER_BITS[i]) == 0)
+        continue;
+      // Discs next to an empty corner tend to hand that corner over.
+      score -= X_SQUARE_WEIGHT * (Long.bitCount(own & X_SQUARES[i]) -
+                                  Long.bitCount(opp & X_SQUARES[i]));
+      score -= C_SQUARE_WEIGHT * (Long.bitCount(own & C_SQUARES[i]) -
+                                  Long.bitCount(opp & C_SQUARES[i]));
+    }
+
+    score += MOBILITY_WEIGHT * (Long.bitCount(Board.legalMoves(own, opp)) -
+                                Long.bitCount(Board.legalMoves(opp, own)));
+
+    // Disc count matters only once the board is mostly full.
+    if (Long.bitCount(empty) < 16)
+      score += DISC_WEIGHT * (Long.bitCount(own) - Long.bitCount(opp));
+    return score;
+  }
+}
@@ -0,0 +1,393 @@
+package com.reversi.engine;
+
+import com.reversi.common.Board;
+import com.reversi.common.Player;
+import com.reversi.common.ReversiGame;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A Monte Carlo tree searcher using UCT selection and random playouts.
+ * <p>
+ * Each playout walks down the tree choosing the child with the best upper
+ * confidence bound, expands the first node it reaches that has no children
+ * yet, and plays random moves on bitboards to the end of the game. The result
+ * is propagated back up the path. With the light policy, playouts take
+ * corners when they can and avoid squares next to empty corners.
+ * </p>
+ * <p>
+ * The cost of a search is proportional to its playout budget (the node limit
+ * of {@link SearchLimits}), which makes it a cheap opponent of tunable
+ * strength. Playouts may run on several threads sharing the tree: a thread
+ * counts its visit on the way down, before the result is known, so that the
+ * pending playout reads as a loss (virtual loss) and other threads explore
+ * elsewhere. The tree is kept between searches: if the next position is the
+ * root or lies one or two moves below it, that subtree becomes the new root.
+ * </p>
+ * <p>
+ * A searcher serves one game at a time; its {@code search} methods must not
+ * be called concurrently.
+ * </p>
+ */
+public class MctsSearcher implements AutoCloseable {
+  /** Exploration constant of the UCT formula, for results in [0, 1]. */
+  public static final double DEFAULT_EXPLORATION = 1.0;
+
+  private static final long CORNERS = 0x8100000000000081L;
+  private static final long[] CORNER_BITS = {1L, 1L << 7, 1L << 56, 1L << 63};
+  /** Squares next to each corner (C- and X-squares), same order. */
+  private static final long[] CORNER_NEIGHBOURS = {
+      (1L << 1) | (1L << 8) | (1L << 9), (1L << 6) | (1L << 14) | (1L << 15),
+      (1L << 48) | (1L << 49) | (1L << 57),
+      (1L << 54) | (1L << 55) | (1L << 62)};
+
+  /** Results are counted in half points: 2 win, 1 draw, 0 loss. */
+  private static final int WIN = 2;
+
+  /** A position in the tree, seen from its side to move. */
+  static final class Node {
+    private static final VarHandle VISITS;
+    private static final VarHandle SCORE;
+
+    static {
+      try {
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        VISITS = lookup.findVarHandle(Node.class, "visits", int.class);
+        SCORE = lookup.findVarHandle(Node.class, "score", long.class);
+      } catch (ReflectiveOperationException e) {
+        throw new ExceptionInInitializerError(e);
+      }
+    }
+
+    final long own;
+    final long opp;
+    /** The move that led here, or {@link SearchResult#PASS}. */
+    final int move;
+    /** Children; null until expanded, empty when the game is over. */
+    private volatile Node[] children;
+    /** Playouts through this node, including ones still running. */
+    private volatile int visits;
+    /** Half points won by the player who made {@link #move}. */
+    private volatile long score;
+
+    Node(long own, long opp, int move) {
+      this.own = own;
+      this.opp = opp;
+      this.move = move;
+    }
+
+    int visits() { return visits; }
+
+    long score() { return score; }
+
+    Node[] children() { return children; }
+
+    private Node[] expand() {
+      Node[] result = children;
+      if (result != null)
+        return result;
+      synchronized (this) {
+        if (children != null)
+          return children;
+        long moves = Board.legalMoves(own, opp);
+        if (moves == 0) {
+          result = Board.legalMoves(opp, own) == 0
+                       ? new Node[0]
+                       : new Node[] {new Node(opp, own, SearchResult.PASS)};
+        } else {
+          result = new Node[Long.bitCount(moves)];
+          for (int i = 0; moves != 0; i++) {
+            int sq = Long.numberOfTrailingZeros(moves);
+            moves &= moves - 1;
+            long flips = Board.flips(own, opp, sq);
+            result[i] = new Node(opp & ~flips, own | flips | (1L << sq), sq);
+          }
+        }
+        children = result;
+        return result;
+      }
+    }
+  }
+
+  private final int threads;
+  private final double exploration;
+  private final boolean lightPolicy;
+  private final ExecutorService helpers;
+  private long seed = System.nanoTime();
+
+  private Node root;
+  private int maxDepth;
+
+  /**
+   * Creates a single-threaded searcher with random playouts.
+   */
+  public MctsSearcher() { this(1, DEFAULT_EXPLORATION, false); }
+
+  /**
+   * @param threads     the number of threads running playouts, including the
+   *     calling one
+   * @param exploration the UCT exploration constant; higher values spread
+   *     playouts more evenly between moves
+   * @param lightPolicy whether playouts prefer corners over random moves
+   */
+  public MctsSearcher(int threads, double exploration, boolean lightPolicy) {
+    if (threads < 1)
+      throw new IllegalArgumentException("threads must be positive");
+    this.threads = threads;
+    this.exploration = exploration;
+    this.lightPolicy = lightPolicy;
+    AtomicInteger counter = new AtomicInteger();
+    helpers = threads > 1 ? Executors.newFixedThreadPool(threads - 1, r -> {
+      Thread t = new Thread(r, "mcts-helper-" + counter.incrementAndGet());
+      t.setDaemon(true);
+      return t;
+    }) : null;
+  }
+
+  /** Seeds the playout generators, for reproducible single-threaded runs. */
+  void setSeed(long seed) { this.seed = seed; }
+
+  /**
+   * Searches the position of a game for the side to move. The game is not
+   * modified.
+   *
+   * @param game   the position to search
+   * @param limits the playout budget (node limit) and time limit; at least
+   *     one must be set
+   * @return the most visited move; its score is the expected result from
+   *     -100 (certain loss) to 100 (certain win), its node count the number
+   *     of playouts run and its depth the deepest node reached
+   */
+  public SearchResult search(ReversiGame game, SearchLimits limits) {
+    return search(game.getBoard(), game.getCurrentPlayer(), limits);
+  }
+
+  /**
+   * Searches a position for the given side to move.
+   *
+   * @param board  the position to search; it is not modified
+   * @param player the side to move
+   * @param limits the playout budget (node limit) and time limit
+   * @return the most visited move
+   * @see #search(ReversiGame, SearchLimits)
+   */
+  public SearchResult search(Board board, Player player, SearchLimits limits) {
+    if (limits.getMaxNodes() == 0 && limits.getTimeMillis() == 0)
+      throw new IllegalArgumentException("MCTS needs a playout or time limit");
+    long start = System.nanoTime();
+    long own = board.getDiscs(player);
+    long opp = board.getDiscs(player.opponent());
+    if (Board.legalMoves(own, opp) == 0)
+      return new SearchResult(SearchResult.PASS, 0, 0, 0,
+                              System.nanoTime() - start);
+
+    root = reuse(own, opp);
+    maxDepth = 0;
+    AtomicLong budget = new AtomicLong(
+        limits.getMaxNodes() > 0 ? limits.getMaxNodes() : Long.MAX_VALUE);
+    long deadline = limits.getTimeMillis() > 0
+                        ? start + limits.getTimeMillis() * 1_000_000L
+                        : 0;
+
+    long playouts;
+    if (helpers == null) {
+      playouts = run(budget, deadline, new SplittableRandom(seed++));
+    } else {
+      List<Future<Long>> futures = new ArrayList<>();
+      for (int i = 1; i < threads; i++) {
+        SplittableRandom random = new SplittableRandom(seed++);
+        futures.add(helpers.submit(() -> run(budget, deadline, random)));
+      }
+      playouts = run(budget, deadline, new SplittableRandom(seed++));
+      for (Future<Long> future : futures) {
+        try {
+          playouts += future.get();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          break;
+        } catch (ExecutionException e) {
+          throw new IllegalStateException("Playout thread failed",
+                                          e.getCause());
+        }
+      }
+    }
+
+    Node best = null;
+    for (Node child : root.expand()) {
+      if (best == null || child.visits() > best.visits())
+        best = child;
+    }
+    int score = best.visits() == 0
+                    ? 0
+                    : (int)Math.round(100.0 * (best.score() - best.visits()) /
+                                      best.visits());
+    return new SearchResult(best.move, score, maxDepth, playouts,
+                            System.nanoTime() - start);
+  }
+
+  /**
+   * Returns the node for a position if it is the current root or one of its
+   * descendants at most two moves down, or a fresh node otherwise.
+   */
+  private Node reuse(long own, long opp) {
+    Node current = root;
+    if (current != null) {
+      if (current.own == own && current.opp == opp)
+        return current;
+      Node[] children = current.children();
+      if (children != null) {
+        for (Node child : children) {
+          Node[] grandchildren = child.children();
+          if (grandchildren == null)
+            continue;
+          for (Node grandchild : grandchildren) {
+            if (grandchild.own == own && grandchild.opp == opp)
+              return grandchild;
+          }
+        }
+      }
+    }
+    return new Node(own, opp, SearchResult.PASS);
+  }
+
+  /** Returns the number of playouts through the current root. */
+  int getRootVisits() { return root == null ? 0 : root.visits(); }
+
+  /** Runs playouts until the shared budget or the deadline runs out. */
+  private long run(AtomicLong budget, long deadline, SplittableRandom random) {
+    Node[] path = new Node[Board.BOARD_SIZE * Board.BOARD_SIZE * 2];
+    long playouts = 0;
+    while (budget.getAndDecrement() > 0) {
+      if (deadline != 0 && (playouts & 63) == 0 &&
+          System.nanoTime() - deadline >= 0)
+        break;
+      playout(path, random);
+      playouts++;
+    }
+    return playouts;
+  }
+
+  private void playout(Node[] path, SplittableRandom random) {
+    Node node = root;
+    int length = 0;
+    path[length++] = node;
+    Node.VISITS.getAndAdd(node, 1);
+    while (true) {
+      Node[] children = node.children();
+      if (children == null) {
+        // Expand the leaf and descend into one of its new children.
+        children = node.expand();
+        if (children.length > 0) {
+          node = children[random.nextInt(children.length)];
+          path[length++] = node;
+          Node.VISITS.getAndAdd(node, 1);
+        }
+        break;
+      }
+      if (children.length == 0)
+        break;
+      node = select(node, children);
+      path[length++] = node;
+      // Counted before the result is known: a virtual loss.
+      Node.VISITS.getAndAdd(node, 1);
+    }
+    if (length - 1 > maxDepth)
+      maxDepth = length - 1;
+
+    // Result for the side to move at the last node, then alternate upwards.
+    int result = rollout(node.own, node.opp, random);
+    for (int i = length - 1; i >= 0; i--) {
+      // A node's score belongs to the player who moved into it.
+      Node.SCORE.getAndAdd(path[i], (long)(WIN - result));
+      result = WIN - result;
+    }
+  }
+
+  private Node select(Node parent, Node[] children) {
+    double logVisits = Math.log(Math.max(1, parent.visits()));
+    Node best = children[0];
+    double bestValue = Double.NEGATIVE_INFINITY;
+    for (Node child : children) {
+      int visits = child.visits();
+      if (visits == 0)
+        return child;
+      double value = child.score() / (2.0 * visits) +
+                     exploration * Math.sqrt(logVisits / visits);
+      if (value > bestValue) {
+        bestValue = value;
+        best = child;
+      }
+    }
+    return best;
+  }
+
+  /**
+   * Plays random moves to the end of the game.
+   *
+   * @return the result for the side to move at the start, in half points
+   */
+  private int rollout(long own, long opp, SplittableRandom random) {
+    boolean flipped = false;
+    boolean passed = false;
+    while (true) {
+      long moves = Board.legalMoves(own, opp);
+      if (moves == 0) {
+        if (passed)
+          break;
+        passed = true;
+      } else {
+        passed = false;
+        int sq = pick(moves, own, opp, random);
+        long flips = Board.flips(own, opp, sq);
+        own |= flips | (1L << sq);
+        opp &= ~flips;
+      }
+      long tmp = own;
+      own = opp;
+      opp = tmp;
+      flipped = !flipped;
+    }
+    int diff = Long.bitCount(own) - Long.bitCount(opp);
+    if (flipped)
+      diff = -diff;
+    return diff > 0 ? WIN : diff < 0 ? 0 : 1;
+  }
+
+  private int pick(long moves, long own, long opp, SplittableRandom random) {
+    if (lightPolicy) {
+      long corners = moves & CORNERS;
+      if (corners != 0) {
+        moves = corners;
+      } else {
+        long empty = ~(own | opp);
+        long risky = 0;
+        for (int i = 0; i < CORNER_BITS.length; i++) {
+          if ((empty & CORNER_BITS[i]) != 0)
+            risky |= CORNER_NEIGHBOURS[i];
+        }
+        if ((moves & ~risky) != 0)
+          moves &= ~risky;
+      }
+    }
+    int pick = random.nextInt(Long.bitCount(moves));
+    for (int i = 0; i < pick; i++)
+      moves &= moves - 1;
+    return Long.numberOfTrailingZeros(moves);
+  }
+
+  /** Shuts down the helper threads. */
+  @Override
+  public void close() {
+    if (helpers != null)
+      helpers.shutdownNow();
+  }
+}
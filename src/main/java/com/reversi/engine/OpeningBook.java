@@ -0,0 +1,192 @@
+package com.reversi.engine;
+
+import com.reversi.common.Board;
+import com.reversi.common.Player;
+import com.reversi.common.ReversiGame;
+import com.reversi.common.Zobrist;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A read-only opening book backed by a memory-mapped file.
+ * <p>
+ * The file starts with a 16-byte header (magic number, format version and
+ * record count) followed by fixed 16-byte records sorted by key:
+ * </p>
+ * <pre>
+ *   long  key     canonical Zobrist hash of the position and side to move
+ *   short move    best square in the canonical orientation
+ *   short score   mean final disc differential for the side to move
+ *   int   visits  number of games that played the move
+ * </pre>
+ * <p>
+ * Positions are folded over the eight board symmetries: a position is stored
+ * once, under the orientation with the smallest hash. Lookups binary search
+ * the mapped file directly, so the book never occupies the Java heap and
+ * pages are loaded by the operating system on demand. Files are written by
+ * {@link OpeningBookBuilder}. An open book is safe to share between threads.
+ * </p>
+ */
+public final class OpeningBook implements AutoCloseable {
+  static final int MAGIC = 0x52564242; // "RVBB"
+  static final int VERSION = 1;
+  static final int HEADER_BYTES = 16;
+  static final int RECORD_BYTES = 16;
+
+  /** A book move, expressed in the orientation of the queried position. */
+  public static final class Entry {
+    private final int move;
+    private final int score;
+    private final int visits;
+
+    Entry(int move, int score, int visits) {
+      this.move = move;
+      this.score = score;
+      this.visits = visits;
+    }
+
+    /** Returns the book move ({@code row * 8 + col}). */
+    public int getMove() { return move; }
+
+    public int getRow() { return move / Board.BOARD_SIZE; }
+
+    public int getCol() { return move % Board.BOARD_SIZE; }
+
+    /** Returns the mean final disc differential for the side to move. */
+    public int getScore() { return score; }
+
+    /** Returns the number of games behind the move. */
+    public int getVisits() { return visits; }
+
+    @Override
+    public String toString() {
+      return String.format("%c%d score=%d visits=%d", 'a' + getCol(),
+                           getRow() + 1, score, visits);
+    }
+  }
+
+  private final FileChannel channel;
+  private final MappedByteBuffer buffer;
+  private final int size;
+
+  private OpeningBook(FileChannel channel, MappedByteBuffer buffer, int size) {
+    this.channel = channel;
+    this.buffer = buffer;
+    this.size = size;
+  }
+
+  /**
+   * Maps a book file into memory.
+   *
+   * @param path the book file
+   * @return the open book
+   * @throws IOException if the file cannot be read or is not a valid book
+   */
+  public static OpeningBook open(Path path) throws IOException {
+    FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+    try {
+      long length = channel.size();
+      if (length < HEADER_BYTES || length > Integer.MAX_VALUE)
+        throw new IOException("Invalid opening book size: " + length);
+      MappedByteBuffer buffer =
+          channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+      if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION)
+        throw new IOException("Not an opening book: " + path);
+      long size = buffer.getLong(8);
+      if (size < 0 || HEADER_BYTES + size * RECORD_BYTES != length)
+        throw new IOException("Truncated opening book: " + path);
+      return new OpeningBook(channel, buffer, (int)size);
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  /** Returns the number of positions in the book. */
+  public int size() { return size; }
+
+  /**
+   * Looks up the current position of a game.
+   *
+   * @param game the game to look up
+   * @return the book move, or {@code null} if the position is not in the book
+   */
+  public Entry lookup(ReversiGame game) {
+    return lookup(game.getBoard(), game.getCurrentPlayer());
+  }
+
+  /**
+   * Looks up a position.
+   *
+   * @param board  the position
+   * @param player the side to move
+   * @return the book move, or {@code null} if the position is not in the book
+   */
+  public Entry lookup(Board board, Player player) {
+    long black = board.getDiscs(Player.Black);
+    long white = board.getDiscs(Player.White);
+    int symmetry = canonicalSymmetry(black, white, player);
+    int index = find(key(black, white, player, symmetry));
+    if (index < 0)
+      return null;
+    int offset = HEADER_BYTES + index * RECORD_BYTES;
+    int move = BoardSymmetry.square(buffer.getShort(offset + 8),
+                                    BoardSymmetry.inverse(symmetry));
+    return new Entry(move, buffer.getShort(offset + 10),
+                     buffer.getInt(offset + 12));
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+
+  private int find(long key) {
+    int low = 0;
+    int high = size - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      long midKey = buffer.getLong(HEADER_BYTES + mid * RECORD_BYTES);
+      if (midKey < key)
+        low = mid + 1;
+      else if (midKey > key)
+        high = mid - 1;
+      else
+        return mid;
+    }
+    return -1;
+  }
+
+  /**
+   * Returns the symmetry whose image of the position has the smallest key.
+   * Equivalent positions share that image, so it identifies them in the book.
+   */
+  static int canonicalSymmetry(long black, long white, Player player) {
+    int best = 0;
+    long bestKey = key(black, white, player, 0);
+    for (int s = 1; s < BoardSymmetry.COUNT; s++) {
+      long key = key(black, white, player, s);
+      if (key < bestKey) {
+        bestKey = key;
+        best = s;
+      }
+    }
+    return best;
+  }
+
+  /** Returns the key of the image of a position under a symmetry. */
+  static long key(long black, long white, Player player, int symmetry) {
+    return Zobrist.hash(BoardSymmetry.transform(black, symmetry),
+                        BoardSymmetry.transform(white, symmetry)) ^
+        Zobrist.side(player);
+  }
+
+  /** Writes a book header into {@code header}. */
+  static void writeHeader(ByteBuffer header, long size) {
+    header.putInt(MAGIC).putInt(VERSION).putLong(size);
+  }
+}
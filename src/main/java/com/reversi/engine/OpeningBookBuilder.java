@@ -0,0 +1,297 @@
+package com.reversi.engine;
+
+import com.reversi.common.Player;
+import com.reversi.common.ReversiGame;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Builds {@link OpeningBook} files from complete games.
+ * <p>
+ * Every position among the first {@code maxPlies} moves of a game is folded
+ * to its canonical orientation and credited with the move played and the
+ * final result. When the book is written, each position keeps the move that
+ * was played most often, with ties broken by the better mean result.
+ * </p>
+ * <p>
+ * Games come from transcripts in the usual notation ({@code f5d6c3...},
+ * passes omitted) or from self-play with a {@link Searcher}.
+ * </p>
+ */
+public class OpeningBookBuilder {
+  /** Statistics of one move in one canonical position. */
+  private static final class MoveStats {
+    int visits;
+    long scoreSum;
+  }
+
+  private final int maxPlies;
+  private final int minVisits;
+  private final Map<Long, Map<Integer, MoveStats>> positions = new HashMap<>();
+  private int games;
+
+  /**
+   * @param maxPlies  the number of opening moves of each game to record
+   * @param minVisits the number of games a move needs to enter the book
+   */
+  public OpeningBookBuilder(int maxPlies, int minVisits) {
+    this.maxPlies = maxPlies;
+    this.minVisits = minVisits;
+  }
+
+  /** Returns the number of games added so far. */
+  public int getGames() { return games; }
+
+  /** Returns the number of distinct positions recorded so far. */
+  public int getPositions() { return positions.size(); }
+
+  /**
+   * Adds a game given as a transcript such as {@code "f5d6c3d3c4"}. Passes
+   * are implied and may be omitted.
+   *
+   * @param transcript the moves of the game
+   * @return {@code true} if the game was added, {@code false} if the
+   *     transcript contains an illegal move or does not reach the end of the
+   *     game
+   */
+  public boolean addGame(String transcript) {
+    GameRecord record = GameRecord.parse(transcript);
+    return record != null && addGame(record);
+  }
+
+  /**
+   * Adds a game given as the squares played, in order, from the starting
+   * position. Passes are implied.
+   *
+   * @param squares the moves of the game ({@code row * 8 + col})
+   * @return {@code true} if the game was added, {@code false} if it contains
+   *     an illegal move or does not reach the end of the game
+   */
+  public boolean addGame(int[] squares) {
+    GameRecord record = GameRecord.replay(squares);
+    return record != null && addGame(record);
+  }
+
+  /**
+   * Adds a replayed game.
+   *
+   * @param record the game
+   * @return always {@code true}
+   */
+  public boolean addGame(GameRecord record) {
+    int plies = Math.min(maxPlies, record.size());
+    for (int i = 0; i < plies; i++) {
+      long black = record.getBlack(i);
+      long white = record.getWhite(i);
+      Player player = record.getPlayer(i);
+      int symmetry = OpeningBook.canonicalSymmetry(black, white, player);
+      long key = OpeningBook.key(black, white, player, symmetry);
+      MoveStats stats =
+          positions.computeIfAbsent(key, k -> new HashMap<>())
+              .computeIfAbsent(
+                  canonicalMove(black, white, player, key, record.getMove(i)),
+                  m -> new MoveStats());
+      stats.visits++;
+      stats.scoreSum += record.getResult(i);
+    }
+    games++;
+    return true;
+  }
+
+  /**
+   * Reads one transcript per line; blank lines and lines starting with
+   * {@code #} are skipped.
+   *
+   * @param path the transcript file
+   * @return the number of games added
+   * @throws IOException if the file cannot be read
+   */
+  public int addGames(Path path) throws IOException {
+    int added = 0;
+    try (BufferedReader reader = Files.newBufferedReader(path)) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        line = line.trim();
+        if (line.isEmpty() || line.startsWith("#"))
+          continue;
+        if (addGame(line))
+          added++;
+      }
+    }
+    return added;
+  }
+
+  /**
+   * Plays games of a searcher against itself and adds them. The first
+   * {@code randomPlies} moves of each game are random so the games differ.
+   *
+   * @param searcher    the engine for both sides
+   * @param limits      the limits of every search
+   * @param count       the number of games to play
+   * @param randomPlies the number of random opening moves
+   * @param random      the source of the random moves
+   */
+  public void addSelfPlay(Searcher searcher, SearchLimits limits, int count,
+                          int randomPlies, Random random) {
+    for (int g = 0; g < count; g++) {
+      ReversiGame game = new ReversiGame();
+      List<Integer> moves = new ArrayList<>();
+      while (true) {
+        if (GameRecord.isOver(game))
+          break;
+        long mask = game.getValidMoveMask();
+        if (mask == 0) {
+          game.pass();
+          continue;
+        }
+        int sq;
+        if (moves.size() < randomPlies) {
+          int pick = random.nextInt(Long.bitCount(mask));
+          for (int i = 0; i < pick; i++)
+            mask &= mask - 1;
+          sq = Long.numberOfTrailingZeros(mask);
+        } else {
+          sq = searcher.search(game, limits).getMove();
+        }
+        game.play(sq / 8, sq % 8);
+        moves.add(sq);
+      }
+      addGame(moves.stream().mapToInt(Integer::intValue).toArray());
+    }
+  }
+
+  /**
+   * Writes the book, sorted by key, to {@code path}.
+   *
+   * @param path the output file; it is replaced if it exists
+   * @return the number of positions written
+   * @throws IOException if the file cannot be written
+   */
+  public int write(Path path) throws IOException {
+    List<long[]> records = new ArrayList<>();
+    for (Map.Entry<Long, Map<Integer, MoveStats>> position :
+         positions.entrySet()) {
+      int bestMove = -1;
+      MoveStats best = null;
+      for (Map.Entry<Integer, MoveStats> move :
+           position.getValue().entrySet()) {
+        MoveStats stats = move.getValue();
+        if (best == null || stats.visits > best.visits ||
+            (stats.visits == best.visits &&
+             stats.scoreSum * best.visits > best.scoreSum * stats.visits)) {
+          best = stats;
+          bestMove = move.getKey();
+        }
+      }
+      if (best.visits < minVisits)
+        continue;
+      long score = Math.round((double)best.scoreSum / best.visits);
+      records.add(new long[] {position.getKey(), bestMove, score, best.visits});
+    }
+    records.sort((a, b) -> Long.compare(a[0], b[0]));
+
+    try (FileChannel channel = FileChannel.open(
+             path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+             StandardOpenOption.TRUNCATE_EXISTING)) {
+      ByteBuffer buffer = ByteBuffer.allocate(
+          OpeningBook.HEADER_BYTES + 4096 * OpeningBook.RECORD_BYTES);
+      OpeningBook.writeHeader(buffer, records.size());
+      for (long[] record : records) {
+        if (buffer.remaining() < OpeningBook.RECORD_BYTES)
+          drain(channel, buffer);
+        buffer.putLong(record[0])
+            .putShort((short)record[1])
+            .putShort((short)record[2])
+            .putInt((int)Math.min(record[3], Integer.MAX_VALUE));
+      }
+      drain(channel, buffer);
+    }
+    return records.size();
+  }
+
+  /**
+   * Maps a move into the canonical orientation. A position with symmetries of
+   * its own has several orientations with the canonical key; the move is
+   * folded over all of them so equivalent moves share their statistics.
+   */
+  private static int canonicalMove(long black, long white, Player player,
+                                   long key, int square) {
+    int move = Integer.MAX_VALUE;
+    for (int s = 0; s < BoardSymmetry.COUNT; s++) {
+      if (OpeningBook.key(black, white, player, s) == key)
+        move = Math.min(move, BoardSymmetry.square(square, s));
+    }
+    return move;
+  }
+
+  private static void drain(FileChannel channel, ByteBuffer buffer)
+      throws IOException {
+    buffer.flip();
+    while (buffer.hasRemaining())
+      channel.write(buffer);
+    buffer.clear();
+  }
+
+  /**
+   * Builds a book from the command line.
+   * <p>
+   * Usage: {@code OpeningBookBuilder <book> [--games=<file>]
+   * [--self-play=N] [--time=ms] [--plies=N] [--min-visits=N]}
+   * </p>
+   *
+   * @param args the command-line arguments
+   * @throws IOException if a file cannot be read or written
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length < 1) {
+      System.err.println("Usage: OpeningBookBuilder <book> [--games=<file>] " +
+                         "[--self-play=N] [--time=ms] [--plies=N] " +
+                         "[--min-visits=N]");
+      System.exit(1);
+    }
+    Path book = Path.of(args[0]);
+    Path gamesFile = null;
+    int selfPlay = 0;
+    long time = 100;
+    int plies = 20;
+    int minVisits = 1;
+    for (int i = 1; i < args.length; i++) {
+      String arg = args[i];
+      if (arg.startsWith("--games=")) {
+        gamesFile = Path.of(arg.substring("--games=".length()));
+      } else if (arg.startsWith("--self-play=")) {
+        selfPlay = Integer.parseInt(arg.substring("--self-play=".length()));
+      } else if (arg.startsWith("--time=")) {
+        time = Long.parseLong(arg.substring("--time=".length()));
+      } else if (arg.startsWith("--plies=")) {
+        plies = Integer.parseInt(arg.substring("--plies=".length()));
+      } else if (arg.startsWith("--min-visits=")) {
+        minVisits = Integer.parseInt(arg.substring("--min-visits=".length()));
+      } else {
+        System.err.println("Unknown option: " + arg);
+        System.exit(1);
+      }
+    }
+
+    OpeningBookBuilder builder = new OpeningBookBuilder(plies, minVisits);
+    if (gamesFile != null)
+      System.out.println("Imported " + builder.addGames(gamesFile) + " games");
+    if (selfPlay > 0) {
+      builder.addSelfPlay(new Searcher(), SearchLimits.time(time), selfPlay, 4,
+                          new Random());
+      System.out.println("Played " + selfPlay + " games");
+    }
+    System.out.println("Wrote " + builder.write(book) + " positions to " +
+                       book);
+  }
+}
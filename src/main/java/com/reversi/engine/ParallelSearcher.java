@@ -0,0 +1,154 @@
+package com.reversi.engine;
+
+import com.reversi.common.Board;
+import com.reversi.common.Player;
+import com.reversi.common.ReversiGame;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A multi-threaded searcher using Lazy SMP.
+ * <p>
+ * Every worker runs an ordinary {@link Searcher} on its own copy of the root
+ * position, all sharing one lock-free {@link TranspositionTable}. Helpers
+ * differ slightly in move ordering and starting depth, so they fill the table
+ * with results the other workers then pick up instead of repeating the same
+ * work. The main worker runs on the calling thread; when it finishes, every
+ * helper is told to stop and the deepest completed result is returned.
+ * </p>
+ * <p>
+ * Workers share nothing but the table and a stop flag, so the node rate
+ * scales with the number of cores. Call {@link #close()} to release the
+ * helper threads.
+ * </p>
+ */
+public class ParallelSearcher implements AutoCloseable {
+  private final Searcher[] workers;
+  private final ExecutorService helpers;
+  private final AtomicBoolean stopSignal = new AtomicBoolean();
+
+  /**
+   * @param threads   the total number of searching threads, at least 1
+   * @param evaluator scores the leaves of the search; must be thread-safe
+   * @param table     the table shared by every worker
+   */
+  public ParallelSearcher(int threads, Evaluator evaluator,
+                          TranspositionTable table) {
+    if (threads < 1)
+      throw new IllegalArgumentException("threads must be at least 1");
+    workers = new Searcher[threads];
+    for (int i = 0; i < threads; i++) {
+      workers[i] = new Searcher(evaluator, table);
+      workers[i].configureWorker(i, stopSignal);
+    }
+
+    AtomicInteger counter = new AtomicInteger();
+    helpers = threads > 1 ? Executors.newFixedThreadPool(threads - 1, r -> {
+      Thread t = new Thread(r, "search-helper-" + counter.incrementAndGet());
+      t.setDaemon(true);
+      return t;
+    }) : null;
+  }
+
+  /**
+   * Creates a searcher using every available processor, the
+   * {@link HeuristicEvaluator} and a table of 2^22 entries.
+   */
+  public ParallelSearcher() {
+    this(Runtime.getRuntime().availableProcessors(), new HeuristicEvaluator(),
+         new TranspositionTable(1 << 22));
+  }
+
+  /**
+   * Returns the number of searching threads, including the calling one.
+   *
+   * @return the thread count
+   */
+  public int getThreads() { return workers.length; }
+
+  /**
+   * Searches the position of a game for the side to move. The game is not
+   * modified. The node budget of {@code limits}, if any, is shared evenly
+   * between the workers.
+   *
+   * @param game   the position to search
+   * @param limits the depth, node and time bounds of the search
+   * @return the deepest completed result of any worker, with the node count
+   *     and elapsed time of the whole search
+   */
+  public SearchResult search(ReversiGame game, SearchLimits limits) {
+    return search(game, limits, null);
+  }
+
+  /**
+   * Searches like {@link #search(ReversiGame, SearchLimits)}, with the main
+   * worker consulting a time manager between iterations. Helpers stop when
+   * the main worker does.
+   *
+   * @param game   the position to search
+   * @param limits the depth, node and time bounds of the search
+   * @param time   the time manager, or {@code null} for none
+   * @return the deepest completed result of any worker
+   */
+  public SearchResult search(ReversiGame game, SearchLimits limits,
+                             TimeManager time) {
+    long start = System.nanoTime();
+    Board board = game.getBoard();
+    Player player = game.getCurrentPlayer();
+    SearchLimits workerLimits = new SearchLimits(
+        limits.getMaxDepth(),
+        limits.getMaxNodes() == 0 ? 0 : Math.max(1, limits.getMaxNodes() /
+                                                        workers.length),
+        limits.getTimeMillis());
+
+    stopSignal.set(false);
+    List<Future<SearchResult>> futures = new ArrayList<>();
+    for (int i = 1; i < workers.length; i++) {
+      Searcher worker = workers[i];
+      Board copy = new Board(board);
+      futures.add(
+          helpers.submit(() -> worker.search(copy, player, workerLimits)));
+    }
+
+    SearchResult best = workers[0].search(new Board(board), player,
+                                          workerLimits, time);
+    stopSignal.set(true);
+
+    long nodes = best.getNodes();
+    for (Future<SearchResult> future : futures) {
+      SearchResult result;
+      try {
+        result = future.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        break;
+      } catch (ExecutionException e) {
+        throw new IllegalStateException("Search helper failed", e.getCause());
+      }
+      nodes += result.getNodes();
+      if (result.getDepth() > best.getDepth())
+        best = result;
+    }
+    return new SearchResult(best.getMove(), best.getScore(), best.getDepth(),
+                            nodes, System.nanoTime() - start);
+  }
+
+  /**
+   * Asks a running search to stop as soon as possible. May be called from any
+   * thread.
+   */
+  public void stop() { stopSignal.set(true); }
+
+  /** Shuts down the helper threads. */
+  @Override
+  public void close() {
+    if (helpers != null)
+      helpers.shutdownNow();
+  }
+}
@@ -0,0 +1,265 @@
+package com.reversi.engine;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * An evaluator that sums table weights over the standard Othello patterns.
+ * <p>
+ * The board is cut into overlapping patterns: the edges with their two
+ * X-squares, the 3x3 corners, the 2x5 corner blocks and the diagonals of
+ * length 4 to 8. Every pattern appears in each of its orientations on the
+ * board; all orientations share one table. The state of a pattern is a base-3
+ * number (0 empty, 1 own, 2 opponent) that indexes the table directly. Each
+ * game stage (by disc count) has its own set of tables.
+ * </p>
+ * <p>
+ * Indices are computed without looping over squares: the discs of an
+ * orientation are gathered with {@link Long#compress} and mapped to base 3
+ * through a small per-orientation table. Weights are read from the binary
+ * format written by {@link #save(Path)} and fitted by {@link PatternTrainer}.
+ * An evaluator is immutable and may be shared between threads.
+ * </p>
+ */
+public class PatternEvaluator implements Evaluator {
+  static final int MAGIC = 0x52565057; // "RVPW"
+  static final int VERSION = 1;
+
+  /** Number of game stages, each with its own weights. */
+  static final int STAGES = 12;
+  private static final int DISCS_PER_STAGE = 5;
+
+  /** Squares of each pattern family in its base orientation. */
+  private static final int[][] FAMILIES = {
+      // Edge and the two X-squares.
+      {0, 1, 2, 3, 4, 5, 6, 7, 9, 14},
+      // Corner 3x3.
+      {0, 1, 2, 8, 9, 10, 16, 17, 18},
+      // Corner 2x5.
+      {0, 1, 2, 3, 4, 8, 9, 10, 11, 12},
+      // Diagonals of length 8 down to 4.
+      {0, 9, 18, 27, 36, 45, 54, 63},
+      {1, 10, 19, 28, 37, 46, 55},
+      {2, 11, 20, 29, 38, 47},
+      {3, 12, 21, 30, 39},
+      {4, 13, 22, 31}};
+
+  /** Number of families. */
+  static final int FAMILY_COUNT = FAMILIES.length;
+
+  /** Table size of each family: 3 to the number of squares. */
+  static final int[] TABLE_SIZES = new int[FAMILY_COUNT];
+
+  /**
+   * Family, squares in pattern order, square mask and base-3 digit table of
+   * every orientation.
+   */
+  static final int[] INSTANCE_FAMILY;
+  static final int[][] INSTANCE_SQUARES;
+  static final long[] INSTANCE_MASK;
+  private static final char[][] INSTANCE_DIGITS;
+
+  /** Number of pattern orientations on the board. */
+  static final int INSTANCE_COUNT;
+
+  static {
+    List<Integer> families = new ArrayList<>();
+    List<int[]> orderedSquares = new ArrayList<>();
+    List<Long> masks = new ArrayList<>();
+    List<char[]> digits = new ArrayList<>();
+    for (int f = 0; f < FAMILY_COUNT; f++) {
+      int[] squares = FAMILIES[f];
+      int size = 1;
+      for (int i = 0; i < squares.length; i++)
+        size *= 3;
+      TABLE_SIZES[f] = size;
+
+      Set<Long> seen = new HashSet<>();
+      for (int s = 0; s < BoardSymmetry.COUNT; s++) {
+        int[] image = new int[squares.length];
+        long mask = 0;
+        for (int i = 0; i < squares.length; i++) {
+          image[i] = BoardSymmetry.square(squares[i], s);
+          mask |= 1L << image[i];
+        }
+        // Orientations covering the same squares would count them twice.
+        if (!seen.add(mask))
+          continue;
+        families.add(f);
+        orderedSquares.add(image);
+        masks.add(mask);
+        digits.add(digitTable(image, mask));
+      }
+    }
+    INSTANCE_COUNT = families.size();
+    INSTANCE_FAMILY = new int[INSTANCE_COUNT];
+    INSTANCE_SQUARES = new int[INSTANCE_COUNT][];
+    INSTANCE_MASK = new long[INSTANCE_COUNT];
+    INSTANCE_DIGITS = new char[INSTANCE_COUNT][];
+    for (int i = 0; i < INSTANCE_COUNT; i++) {
+      INSTANCE_FAMILY[i] = families.get(i);
+      INSTANCE_SQUARES[i] = orderedSquares.get(i);
+      INSTANCE_MASK[i] = masks.get(i);
+      INSTANCE_DIGITS[i] = digits.get(i);
+    }
+  }
+
+  /**
+   * Builds the table that maps the discs of an orientation, gathered in
+   * square order, to their base-3 value with the digits in pattern order.
+   */
+  private static char[] digitTable(int[] squares, long mask) {
+    int n = squares.length;
+    int[] power = new int[n];
+    // Bit j of a gathered value is the j-th lowest square of the mask.
+    for (int i = 0; i < n; i++) {
+      int bit = Long.bitCount(mask & ((1L << squares[i]) - 1));
+      int value = 1;
+      for (int k = 0; k < n - 1 - i; k++)
+        value *= 3;
+      power[bit] = value;
+    }
+    char[] table = new char[1 << n];
+    for (int bits = 1; bits < table.length; bits++) {
+      int low = Integer.numberOfTrailingZeros(bits);
+      table[bits] = (char)(table[bits & (bits - 1)] + power[low]);
+    }
+    return table;
+  }
+
+  /** Weights by stage, family and pattern index, in hundredths of a disc. */
+  private final short[][][] weights;
+
+  /** Creates an evaluator whose weights are all zero. */
+  public PatternEvaluator() { this(emptyWeights()); }
+
+  PatternEvaluator(short[][][] weights) { this.weights = weights; }
+
+  static short[][][] emptyWeights() {
+    short[][][] weights = new short[STAGES][FAMILY_COUNT][];
+    for (int stage = 0; stage < STAGES; stage++) {
+      for (int f = 0; f < FAMILY_COUNT; f++)
+        weights[stage][f] = new short[TABLE_SIZES[f]];
+    }
+    return weights;
+  }
+
+  @Override
+  public int evaluate(long own, long opp) {
+    short[][] table = weights[stage(own, opp)];
+    int score = 0;
+    for (int i = 0; i < INSTANCE_COUNT; i++) {
+      long mask = INSTANCE_MASK[i];
+      char[] digits = INSTANCE_DIGITS[i];
+      score += table[INSTANCE_FAMILY[i]]
+                    [digits[(int)Long.compress(own, mask)] +
+                     2 * digits[(int)Long.compress(opp, mask)]];
+    }
+    return score;
+  }
+
+  /** Returns the game stage of a position, from 0 to {@code STAGES - 1}. */
+  static int stage(long own, long opp) {
+    int stage = (Long.bitCount(own | opp) - 4) / DISCS_PER_STAGE;
+    return Math.min(stage, STAGES - 1);
+  }
+
+  /**
+   * Computes the table index of every pattern orientation.
+   *
+   * @param own     the discs of the side to move
+   * @param opp     the discs of the opponent
+   * @param indices receives one index per orientation; its length must be at
+   *     least {@link #INSTANCE_COUNT}
+   */
+  static void indices(long own, long opp, int[] indices) {
+    for (int i = 0; i < INSTANCE_COUNT; i++) {
+      long mask = INSTANCE_MASK[i];
+      char[] digits = INSTANCE_DIGITS[i];
+      indices[i] = digits[(int)Long.compress(own, mask)] +
+                   2 * digits[(int)Long.compress(opp, mask)];
+    }
+  }
+
+  /**
+   * Reads weights written by {@link #save(Path)}.
+   *
+   * @param path the weight file
+   * @return the evaluator
+   * @throws IOException if the file cannot be read or has the wrong format
+   */
+  public static PatternEvaluator load(Path path) throws IOException {
+    try (InputStream in = Files.newInputStream(path)) {
+      return load(in);
+    }
+  }
+
+  /**
+   * Reads weights written by {@link #save(OutputStream)}.
+   *
+   * @param in the stream to read; it is not closed
+   * @return the evaluator
+   * @throws IOException if the stream cannot be read or has the wrong format
+   */
+  public static PatternEvaluator load(InputStream in) throws IOException {
+    DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+    if (data.readInt() != MAGIC || data.readInt() != VERSION)
+      throw new IOException("Not a pattern weight file");
+    if (data.readInt() != STAGES || data.readInt() != FAMILY_COUNT)
+      throw new IOException("Pattern weight file has a different layout");
+    short[][][] weights = emptyWeights();
+    for (short[][] stage : weights) {
+      for (short[] table : stage) {
+        for (int i = 0; i < table.length; i++)
+          table[i] = data.readShort();
+      }
+    }
+    return new PatternEvaluator(weights);
+  }
+
+  /**
+   * Writes the weights to a file.
+   *
+   * @param path the output file; it is replaced if it exists
+   * @throws IOException if the file cannot be written
+   */
+  public void save(Path path) throws IOException {
+    try (OutputStream out = Files.newOutputStream(path)) {
+      save(out);
+    }
+  }
+
+  /**
+   * Writes the weights: a header (magic number, version, stage and family
+   * counts) followed by every table as big-endian shorts, stage by stage.
+   *
+   * @param out the stream to write; it is flushed but not closed
+   * @throws IOException if the stream cannot be written
+   */
+  public void save(OutputStream out) throws IOException {
+    DataOutputStream data =
+        new DataOutputStream(new BufferedOutputStream(out));
+    data.writeInt(MAGIC);
+    data.writeInt(VERSION);
+    data.writeInt(STAGES);
+    data.writeInt(FAMILY_COUNT);
+    for (short[][] stage : weights) {
+      for (short[] table : stage) {
+        for (short weight : table)
+          data.writeShort(weight);
+      }
+    }
+    data.flush();
+  }
+}
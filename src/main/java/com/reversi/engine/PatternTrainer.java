@@ -0,0 +1,194 @@
+package com.reversi.engine;
+
+import com.reversi.common.Player;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Fits the weights of a {@link PatternEvaluator} to game records.
+ * <p>
+ * Every position of every game becomes a sample whose target is the final
+ * disc differential for the side to move. The weights are fitted by
+ * stochastic gradient descent on the squared error, with the samples of each
+ * stage training that stage's tables.
+ * </p>
+ */
+public class PatternTrainer {
+  private long[] owns = new long[1024];
+  private long[] opps = new long[1024];
+  private int[] targets = new int[1024];
+  private int samples;
+
+  private final float[][][] weights;
+
+  public PatternTrainer() {
+    weights = new float[PatternEvaluator.STAGES]
+                       [PatternEvaluator.FAMILY_COUNT][];
+    for (float[][] stage : weights) {
+      for (int f = 0; f < PatternEvaluator.FAMILY_COUNT; f++)
+        stage[f] = new float[PatternEvaluator.TABLE_SIZES[f]];
+    }
+  }
+
+  /** Returns the number of training positions. */
+  public int getSamples() { return samples; }
+
+  /**
+   * Adds every position of a game as a training sample.
+   *
+   * @param record the game
+   */
+  public void addGame(GameRecord record) {
+    for (int i = 0; i < record.size(); i++) {
+      long black = record.getBlack(i);
+      long white = record.getWhite(i);
+      boolean blackToMove = record.getPlayer(i) == Player.Black;
+      addSample(blackToMove ? black : white, blackToMove ? white : black,
+                record.getResult(i) * 100);
+    }
+  }
+
+  /**
+   * Reads one transcript per line; blank lines, lines starting with {@code #}
+   * and incomplete games are skipped.
+   *
+   * @param path the transcript file
+   * @return the number of games added
+   * @throws IOException if the file cannot be read
+   */
+  public int addGames(Path path) throws IOException {
+    int added = 0;
+    try (BufferedReader reader = Files.newBufferedReader(path)) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        line = line.trim();
+        if (line.isEmpty() || line.startsWith("#"))
+          continue;
+        GameRecord record = GameRecord.parse(line);
+        if (record != null) {
+          addGame(record);
+          added++;
+        }
+      }
+    }
+    return added;
+  }
+
+  private void addSample(long own, long opp, int target) {
+    if (samples == owns.length) {
+      owns = Arrays.copyOf(owns, samples * 2);
+      opps = Arrays.copyOf(opps, samples * 2);
+      targets = Arrays.copyOf(targets, samples * 2);
+    }
+    owns[samples] = own;
+    opps[samples] = opp;
+    targets[samples] = target;
+    samples++;
+  }
+
+  /**
+   * Runs stochastic gradient descent over the samples.
+   *
+   * @param epochs the number of passes over the samples
+   * @param rate   the learning rate; it should stay well below the inverse of
+   *     the number of pattern orientations for the descent to converge
+   * @param random the source of the sample order
+   * @return the mean squared error of the last pass, in discs squared
+   */
+  public double train(int epochs, double rate, Random random) {
+    int[] order = new int[samples];
+    for (int i = 0; i < samples; i++)
+      order[i] = i;
+    int[] indices = new int[PatternEvaluator.INSTANCE_COUNT];
+    double error = 0;
+    for (int epoch = 0; epoch < epochs; epoch++) {
+      for (int i = samples - 1; i > 0; i--) {
+        int j = random.nextInt(i + 1);
+        int tmp = order[i];
+        order[i] = order[j];
+        order[j] = tmp;
+      }
+      error = 0;
+      for (int k = 0; k < samples; k++) {
+        int n = order[k];
+        float[][] stage = weights[PatternEvaluator.stage(owns[n], opps[n])];
+        PatternEvaluator.indices(owns[n], opps[n], indices);
+        double prediction = 0;
+        for (int i = 0; i < indices.length; i++)
+          prediction += stage[PatternEvaluator.INSTANCE_FAMILY[i]][indices[i]];
+        double delta = targets[n] - prediction;
+        error += delta * delta;
+        float step = (float)(rate * delta);
+        for (int i = 0; i < indices.length; i++)
+          stage[PatternEvaluator.INSTANCE_FAMILY[i]][indices[i]] += step;
+      }
+    }
+    return samples == 0 ? 0 : error / samples / 10_000;
+  }
+
+  /**
+   * Returns an evaluator with the current weights rounded to whole
+   * hundredths of a disc.
+   *
+   * @return the evaluator
+   */
+  public PatternEvaluator toEvaluator() {
+    short[][][] rounded = PatternEvaluator.emptyWeights();
+    for (int s = 0; s < PatternEvaluator.STAGES; s++) {
+      for (int f = 0; f < PatternEvaluator.FAMILY_COUNT; f++) {
+        float[] from = weights[s][f];
+        short[] to = rounded[s][f];
+        for (int i = 0; i < from.length; i++)
+          to[i] = (short)Math.max(Short.MIN_VALUE,
+                                  Math.min(Short.MAX_VALUE,
+                                           Math.round(from[i])));
+      }
+    }
+    return new PatternEvaluator(rounded);
+  }
+
+  /**
+   * Trains weights from the command line.
+   * <p>
+   * Usage: {@code PatternTrainer <games> <weights> [--epochs=N] [--rate=x]}
+   * </p>
+   *
+   * @param args the command-line arguments
+   * @throws IOException if a file cannot be read or written
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length < 2) {
+      System.err.println(
+          "Usage: PatternTrainer <games> <weights> [--epochs=N] [--rate=x]");
+      System.exit(1);
+    }
+    int epochs = 20;
+    double rate = 0.002;
+    for (int i = 2; i < args.length; i++) {
+      String arg = args[i];
+      if (arg.startsWith("--epochs=")) {
+        epochs = Integer.parseInt(arg.substring("--epochs=".length()));
+      } else if (arg.startsWith("--rate=")) {
+        rate = Double.parseDouble(arg.substring("--rate=".length()));
+      } else {
+        System.err.println("Unknown option: " + arg);
+        System.exit(1);
+      }
+    }
+
+    PatternTrainer trainer = new PatternTrainer();
+    int games = trainer.addGames(Path.of(args[0]));
+    System.out.println("Loaded " + games + " games, " + trainer.getSamples() +
+                       " positions");
+    Random random = new Random(1);
+    for (int epoch = 1; epoch <= epochs; epoch++) {
+      double error = trainer.train(1, rate, random);
+      System.out.printf("epoch %d: mean squared error %.2f%n", epoch, error);
+    }
+    trainer.toEvaluator().save(Path.of(args[1]));
+  }
+}
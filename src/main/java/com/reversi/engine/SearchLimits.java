@@ -0,0 +1,61 @@
+package com.reversi.engine;
+
+/**
+ * Bounds on a single search: a maximum depth, a node budget and a time
+ * budget. A value of 0 means the corresponding bound is not applied.
+ */
+public final class SearchLimits {
+  /** The deepest iteration ever started, whatever the limits say. */
+  public static final int MAX_DEPTH = 60;
+
+  private final int maxDepth;
+  private final long maxNodes;
+  private final long timeMillis;
+
+  /**
+   * @param maxDepth   the deepest iteration to search, or 0 for no limit
+   * @param maxNodes   the number of nodes after which the search stops, or 0
+   *     for no limit
+   * @param timeMillis the wall-clock budget in milliseconds, or 0 for no
+   *     limit
+   */
+  public SearchLimits(int maxDepth, long maxNodes, long timeMillis) {
+    this.maxDepth = maxDepth;
+    this.maxNodes = maxNodes;
+    this.timeMillis = timeMillis;
+  }
+
+  /**
+   * Limits a search to a fixed depth only.
+   *
+   * @param depth the depth in plies
+   * @return the limits
+   */
+  public static SearchLimits depth(int depth) {
+    return new SearchLimits(depth, 0, 0);
+  }
+
+  /**
+   * Limits a search to a time budget only.
+   *
+   * @param millis the budget in milliseconds
+   * @return the limits
+   */
+  public static SearchLimits time(long millis) {
+    return new SearchLimits(0, 0, millis);
+  }
+
+  /**
+   * Returns the deepest iteration to search, taking {@link #MAX_DEPTH} into
+   * account.
+   *
+   * @return the effective maximum depth
+   */
+  public int getMaxDepth() {
+    return maxDepth <= 0 ? MAX_DEPTH : Math.min(maxDepth, MAX_DEPTH);
+  }
+
+  public long getMaxNodes() { return maxNodes; }
+
+  public long getTimeMillis() { return timeMillis; }
+}
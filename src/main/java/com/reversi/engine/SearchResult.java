@@ -0,0 +1,65 @@
+package com.reversi.engine;
+
+import com.reversi.common.Board;
+
+/**
+ * The outcome of a search: the best move found and what it cost to find it.
+ */
+public final class SearchResult {
+  /** Value of {@link #getMove()} when the side to move has to pass. */
+  public static final int PASS = -1;
+
+  private final int move;
+  private final int score;
+  private final int depth;
+  private final long nodes;
+  private final long elapsedNanos;
+
+  /**
+   * @param move         the best square, or {@link #PASS}
+   * @param score        the score of the best move for the side to move
+   * @param depth        the depth of the deepest completed iteration
+   * @param nodes        the number of positions visited
+   * @param elapsedNanos the wall-clock time taken
+   */
+  public SearchResult(int move, int score, int depth, long nodes,
+                      long elapsedNanos) {
+    this.move = move;
+    this.score = score;
+    this.depth = depth;
+    this.nodes = nodes;
+    this.elapsedNanos = elapsedNanos;
+  }
+
+  /** Returns the best square ({@code row * 8 + col}) or {@link #PASS}. */
+  public int getMove() { return move; }
+
+  public int getRow() { return move / Board.BOARD_SIZE; }
+
+  public int getCol() { return move % Board.BOARD_SIZE; }
+
+  public int getScore() { return score; }
+
+  public int getDepth() { return depth; }
+
+  public long getNodes() { return nodes; }
+
+  public long getElapsedNanos() { return elapsedNanos; }
+
+  /**
+   * Returns the search speed.
+   *
+   * @return positions visited per second
+   */
+  public double getNodesPerSecond() {
+    return elapsedNanos == 0 ? 0 : nodes * 1e9 / elapsedNanos;
+  }
+
+  @Override
+  public String toString() {
+    String square = move == PASS ? "pass"
+                                 : "" + (char)('a' + getCol()) + (getRow() + 1);
+    return String.format("%s score=%d depth=%d nodes=%d (%.0f nodes/s)", square,
+                         score, depth, nodes, getNodesPerSecond());
+  }
+}
@@ -0,0 +1,442 @@
+package com.reversi.engine;
+
+import com.reversi.common.Board;
+import com.reversi.common.Player;
+import com.reversi.common.ReversiGame;
+import com.reversi.common.Zobrist;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * An iterative-deepening negamax searcher with alpha-beta pruning.
+ * <p>
+ * The search runs directly on the bitboard kernels of {@link Board}, keeping
+ * the Zobrist hash up to date incrementally, so visiting a node allocates
+ * nothing. Results are cached in a {@link TranspositionTable}; its best move
+ * is tried first, followed by the remaining moves ordered by square quality
+ * and by how few replies they leave the opponent. Iterations after the first
+ * use principal variation search (null windows for all but the first move).
+ * </p>
+ * <p>
+ * Node and time budgets are checked every {@value #CHECK_INTERVAL} nodes; once
+ * either is exhausted the running iteration is abandoned and the result of the
+ * last completed one is returned. A searcher is not thread-safe; use one per
+ * thread.
+ * </p>
+ */
+public class Searcher {
+  /**
+   * Base score of a won game. A finished game scores {@code WIN_SCORE} plus
+   * 100 per disc of margin, so any proven win outranks any evaluation.
+   */
+  public static final int WIN_SCORE = 10_000;
+
+  private static final int INFINITY = 1_000_000;
+  private static final int MAX_PLY = 128;
+  private static final int CHECK_INTERVAL = 1024;
+
+  /** Static square values used to order moves, indexed by square. */
+  private static final int[] SQUARE_VALUES = {
+      100, -20, 10, 5,  5,  10, -20, 100, //
+      -20, -50, -2, -2, -2, -2, -50, -20, //
+      10,  -2,  -1, -1, -1, -1, -2,  10,  //
+      5,   -2,  -1, -1, -1, -1, -2,  5,   //
+      5,   -2,  -1, -1, -1, -1, -2,  5,   //
+      10,  -2,  -1, -1, -1, -1, -2,  10,  //
+      -20, -50, -2, -2, -2, -2, -50, -20, //
+      100, -20, 10, 5,  5,  10, -20, 100};
+
+  private final Evaluator evaluator;
+  private final TranspositionTable table;
+
+  // Per-ply scratch space for move ordering, so nodes do not allocate.
+  private final int[][] moveLists = new int[MAX_PLY][64];
+  private final int[][] moveKeys = new int[MAX_PLY][64];
+
+  private volatile boolean stopRequested;
+  // Optional stop signal shared by all workers of a parallel search.
+  private AtomicBoolean stopSignal;
+  // Lazy SMP helper index; 0 for the main (or only) searcher.
+  private int helperId;
+  private long nodes;
+  private long maxNodes;
+  private long deadline;
+  private boolean aborted;
+  private int rootBestMove;
+
+  /**
+   * Creates a searcher with the {@link HeuristicEvaluator} and a transposition
+   * table of 2^20 entries.
+   */
+  public Searcher() {
+    this(new HeuristicEvaluator(), new TranspositionTable(1 << 20));
+  }
+
+  /**
+   * @param evaluator scores the leaves of the search
+   * @param table     caches results between nodes and between searches
+   */
+  public Searcher(Evaluator evaluator, TranspositionTable table) {
+    this.evaluator = evaluator;
+    this.table = table;
+  }
+
+  /**
+   * Turns this searcher into a Lazy SMP helper. Helpers perturb their move
+   * ordering and odd-numbered helpers skip the first iteration, so that
+   * threads sharing one transposition table explore different parts of the
+   * tree. They also stop as soon as {@code stopSignal} is set.
+   *
+   * @param helperId   the helper index; 0 means a normal searcher
+   * @param stopSignal set by the coordinating thread to stop the search
+   */
+  void configureWorker(int helperId, AtomicBoolean stopSignal) {
+    this.helperId = helperId;
+    this.stopSignal = stopSignal;
+  }
+
+  /**
+   * Searches the position of a game for the side to move. The game is not
+   * modified.
+   *
+   * @param game   the position to search
+   * @param limits the depth, node and time bounds of the search
+   * @return the best move found
+   */
+  public SearchResult search(ReversiGame game, SearchLimits limits) {
+    return search(game.getBoard(), game.getCurrentPlayer(), limits, null);
+  }
+
+  /**
+   * Searches the position of a game for the side to move, spending the time
+   * allotted by {@code time}. The game is not modified.
+   *
+   * @param game   the position to search
+   * @param limits further depth and node bounds; its time bound also applies
+   * @param time   decides between iterations whether to go deeper, and sets
+   *     the deadline at which the search is abandoned
+   * @return the best move found
+   */
+  public SearchResult search(ReversiGame game, SearchLimits limits,
+                             TimeManager time) {
+    return search(game.getBoard(), game.getCurrentPlayer(), limits, time);
+  }
+
+  /**
+   * Searches a position for the given side to move. The board is not
+   * modified.
+   *
+   * @param board  the position to search
+   * @param player the side to move
+   * @param limits the depth, node and time bounds of the search
+   * @return the best move found
+   */
+  public SearchResult search(Board board, Player player, SearchLimits limits) {
+    return search(board, player, limits, null);
+  }
+
+  /**
+   * Searches a position for the given side to move, optionally under a time
+   * manager. The board is not modified.
+   *
+   * @param board  the position to search
+   * @param player the side to move
+   * @param limits the depth, node and time bounds of the search
+   * @param time   the time manager, or {@code null} for none
+   * @return the best move found
+   */
+  public SearchResult search(Board board, Player player, SearchLimits limits,
+                             TimeManager time) {
+    long start = System.nanoTime();
+    begin(start, limits, time);
+
+    long own = board.getDiscs(player);
+    long opp = board.getDiscs(player.opponent());
+    long hash = board.getHash() ^ Zobrist.side(player);
+    long moves = Board.legalMoves(own, opp);
+    if (moves == 0)
+      return new SearchResult(SearchResult.PASS, 0, 0, 0,
+                              System.nanoTime() - start);
+    if (Long.bitCount(moves) == 1)
+      return new SearchResult(Long.numberOfTrailingZeros(moves),
+                              clamp(evaluator.evaluate(own, opp)), 0, 0,
+                              System.nanoTime() - start);
+
+    int empties = Long.bitCount(~(own | opp));
+    int bestMove = Long.numberOfTrailingZeros(moves);
+    int bestScore = 0;
+    int completedDepth = 0;
+    int firstDepth = 1 + (helperId & 1);
+    for (int depth = firstDepth; depth <= limits.getMaxDepth(); depth++) {
+      int score = negamax(own, opp, hash, player, depth, 0, -INFINITY,
+                          INFINITY);
+      if (aborted)
+        break;
+      bestMove = rootBestMove;
+      bestScore = score;
+      completedDepth = depth;
+      // Deeper iterations cannot change the result of a fully solved game.
+      if (depth >= empties)
+        break;
+      if (time != null && !time.onIteration(depth, bestMove, bestScore))
+        break;
+    }
+    return new SearchResult(bestMove, bestScore, completedDepth, nodes,
+                            System.nanoTime() - start);
+  }
+
+  /** Receives the scores of all root moves during {@link #analyze}. */
+  public interface AnalysisListener {
+    /**
+     * Called after each completed iteration.
+     *
+     * @param depth  the depth of the iteration
+     * @param moves  the legal squares, best first
+     * @param scores the exact score of each move for the side to move
+     */
+    void onIteration(int depth, int[] moves, int[] scores);
+  }
+
+  /**
+   * Scores every legal move of a position, rather than only proving which is
+   * best. Each iteration searches every root move with a full window, so the
+   * scores are exact to that depth; they are reported after every completed
+   * iteration. This costs more than {@link #search} and is meant for move
+   * hints and analysis. The board is not modified.
+   *
+   * @param board    the position to analyse
+   * @param player   the side to move
+   * @param limits   the depth, node and time bounds of the analysis
+   * @param listener receives the scores after each iteration
+   * @return the best move of the last completed iteration
+   */
+  public SearchResult analyze(Board board, Player player, SearchLimits limits,
+                              AnalysisListener listener) {
+    long start = System.nanoTime();
+    begin(start, limits, null);
+
+    long own = board.getDiscs(player);
+    long opp = board.getDiscs(player.opponent());
+    long hash = board.getHash() ^ Zobrist.side(player);
+    long moves = Board.legalMoves(own, opp);
+    int count = Long.bitCount(moves);
+    if (count == 0)
+      return new SearchResult(SearchResult.PASS, 0, 0, 0,
+                              System.nanoTime() - start);
+
+    int[] list = new int[count];
+    int[] scores = new int[count];
+    for (int i = 0; i < count; i++) {
+      list[i] = Long.numberOfTrailingZeros(moves);
+      moves &= moves - 1;
+    }
+    int empties = Long.bitCount(~(own | opp));
+    int completedDepth = 0;
+    for (int depth = 1; depth <= limits.getMaxDepth(); depth++) {
+      int[] iteration = new int[count];
+      for (int i = 0; i < count && !aborted; i++) {
+        int sq = list[i];
+        long flips = Board.flips(own, opp, sq);
+        long childHash = hash ^ Zobrist.disc(player, sq) ^
+                         Zobrist.flips(flips) ^ Zobrist.WHITE_TO_MOVE;
+        iteration[i] = -negamax(opp & ~flips, own | flips | (1L << sq),
+                                childHash, player.opponent(), depth - 1, 1,
+                                -INFINITY, INFINITY);
+      }
+      if (aborted)
+        break;
+      // Sort best first, which is also the best order for the next iteration.
+      for (int i = 1; i < count; i++) {
+        int sq = list[i];
+        int score = iteration[i];
+        int j = i;
+        while (j > 0 && iteration[j - 1] < score) {
+          list[j] = list[j - 1];
+          iteration[j] = iteration[j - 1];
+          j--;
+        }
+        list[j] = sq;
+        iteration[j] = score;
+      }
+      scores = iteration;
+      completedDepth = depth;
+      listener.onIteration(depth, list.clone(), scores.clone());
+      if (depth >= empties)
+        break;
+    }
+    return new SearchResult(list[0], completedDepth > 0 ? scores[0] : 0,
+                            completedDepth, nodes, System.nanoTime() - start);
+  }
+
+  /**
+   * Asks a running search to stop as soon as possible. May be called from any
+   * thread.
+   */
+  public void stop() { stopRequested = true; }
+
+  /** Resets the per-search state and sets the node and time budgets. */
+  private void begin(long start, SearchLimits limits, TimeManager time) {
+    stopRequested = false;
+    aborted = false;
+    nodes = 0;
+    maxNodes = limits.getMaxNodes();
+    deadline = limits.getTimeMillis() > 0
+                   ? start + limits.getTimeMillis() * 1_000_000L
+                   : 0;
+    if (time != null && (deadline == 0 || time.getDeadlineNanos() < deadline))
+      deadline = time.getDeadlineNanos();
+  }
+
+  /**
+   * Negamax with alpha-beta pruning from the point of view of {@code own}.
+   * Passing does not consume depth, so for a given number of discs the
+   * remaining depth is always the same and table entries stay comparable.
+   */
+  private int negamax(long own, long opp, long hash, Player color, int depth,
+                      int ply, int alpha, int beta) {
+    if ((++nodes & (CHECK_INTERVAL - 1)) == 0)
+      checkLimits();
+    if (aborted)
+      return 0;
+
+    long moves = Board.legalMoves(own, opp);
+    if (moves == 0) {
+      if (Board.legalMoves(opp, own) == 0)
+        return finalScore(own, opp);
+      return -negamax(opp, own, hash ^ Zobrist.WHITE_TO_MOVE, color.opponent(),
+                      depth, ply + 1, -beta, -alpha);
+    }
+    if (depth == 0)
+      return clamp(evaluator.evaluate(own, opp));
+
+    int ttMove = TranspositionTable.NO_MOVE;
+    long entry = table.probe(hash);
+    if (entry != 0) {
+      ttMove = TranspositionTable.move(entry);
+      // No cutoff at the root: the root must be searched to record its move.
+      if (ply > 0 && TranspositionTable.depth(entry) >= depth) {
+        int score = TranspositionTable.score(entry);
+        int bound = TranspositionTable.bound(entry);
+        if (bound == TranspositionTable.EXACT ||
+            (bound == TranspositionTable.LOWER && score >= beta) ||
+            (bound == TranspositionTable.UPPER && score <= alpha))
+          return score;
+      }
+    }
+
+    int count = orderMoves(own, opp, moves, ttMove, depth, ply);
+    int[] list = moveLists[ply];
+    int alphaOrig = alpha;
+    int best = -INFINITY;
+    int bestMove = TranspositionTable.NO_MOVE;
+    for (int i = 0; i < count; i++) {
+      int sq = list[i];
+      long flips = Board.flips(own, opp, sq);
+      long newOwn = own | flips | (1L << sq);
+      long newOpp = opp & ~flips;
+      long childHash = hash ^ Zobrist.disc(color, sq) ^ Zobrist.flips(flips) ^
+                       Zobrist.WHITE_TO_MOVE;
+
+      int score;
+      if (i == 0) {
+        score = -negamax(newOpp, newOwn, childHash, color.opponent(),
+                         depth - 1, ply + 1, -beta, -alpha);
+      } else {
+        score = -negamax(newOpp, newOwn, childHash, color.opponent(),
+                         depth - 1, ply + 1, -alpha - 1, -alpha);
+        if (score > alpha && score < beta)
+          score = -negamax(newOpp, newOwn, childHash, color.opponent(),
+                           depth - 1, ply + 1, -beta, -alpha);
+      }
+      if (aborted)
+        return 0;
+
+      if (score > best) {
+        best = score;
+        bestMove = sq;
+        if (ply == 0)
+          rootBestMove = sq;
+        if (score > alpha) {
+          alpha = score;
+          if (alpha >= beta)
+            break;
+        }
+      }
+    }
+
+    int bound = best <= alphaOrig ? TranspositionTable.UPPER
+                : best >= beta    ? TranspositionTable.LOWER
+                                  : TranspositionTable.EXACT;
+    table.store(hash, best, depth, bound, bestMove);
+    return best;
+  }
+
+  /**
+   * Fills the move list of the given ply in the order they should be
+   * searched and returns how many there are. The table move comes first; the
+   * rest are sorted by square value and, away from the leaves, by the
+   * opponent's mobility after the move.
+   */
+  private int orderMoves(long own, long opp, long moves, int ttMove, int depth,
+                         int ply) {
+    int[] list = moveLists[ply];
+    int[] keys = moveKeys[ply];
+    int count = 0;
+    while (moves != 0) {
+      int sq = Long.numberOfTrailingZeros(moves);
+      moves &= moves - 1;
+
+      int key;
+      if (sq == ttMove) {
+        key = INFINITY;
+      } else {
+        key = SQUARE_VALUES[sq];
+        if (helperId != 0)
+          key += ((sq * 0x9E3779B1 + helperId * 0x85EBCA6B) >>> 27) - 16;
+        if (depth > 2) {
+          long flips = Board.flips(own, opp, sq);
+          long replies =
+              Board.legalMoves(opp & ~flips, own | flips | (1L << sq));
+          key -= 16 * Long.bitCount(replies);
+        }
+      }
+
+      // Insertion sort, descending by key.
+      int j = count++;
+      while (j > 0 && keys[j - 1] < key) {
+        list[j] = list[j - 1];
+        keys[j] = keys[j - 1];
+        j--;
+      }
+      list[j] = sq;
+      keys[j] = key;
+    }
+    return count;
+  }
+
+  /**
+   * Scores a finished game: empty squares go to the winner, as in tournament
+   * scoring.
+   */
+  static int finalScore(long own, long opp) {
+    int ownCount = Long.bitCount(own);
+    int oppCount = Long.bitCount(opp);
+    int empties = 64 - ownCount - oppCount;
+    int diff = ownCount - oppCount;
+    if (diff > 0)
+      return WIN_SCORE + 100 * (diff + empties);
+    if (diff < 0)
+      return -WIN_SCORE + 100 * (diff - empties);
+    return 0;
+  }
+
+  private static int clamp(int score) {
+    return Math.max(-WIN_SCORE + 1, Math.min(WIN_SCORE - 1, score));
+  }
+
+  private void checkLimits() {
+    if (stopRequested || (stopSignal != null && stopSignal.get()) ||
+        (maxNodes > 0 && nodes >= maxNodes) ||
+        (deadline != 0 && System.nanoTime() - deadline >= 0))
+      aborted = true;
+  }
+}
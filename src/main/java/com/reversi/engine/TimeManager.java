@@ -0,0 +1,148 @@
+package com.reversi.engine;
+
+import com.reversi.common.FischerClock;
+import com.reversi.common.Player;
+import com.reversi.common.ReversiGame;
+import java.util.function.LongSupplier;
+
+/**
+ * Turns the time left on a {@link FischerClock} into the time to spend on one
+ * move.
+ * <p>
+ * The remaining time is spread over the moves still to be played, estimated
+ * as half the empty squares, and most of the per-move bonus is added on top.
+ * That gives a soft budget, consulted between iterations of a
+ * {@link Searcher}, and a hard one, after which the search is abandoned
+ * through its polled deadline. Between iterations the manager stretches the
+ * soft budget while the best move keeps changing and stops early once the
+ * result is proven or the best move has been stable for many iterations.
+ * </p>
+ * <p>
+ * A manager serves a single search; it is not thread-safe.
+ * </p>
+ */
+public final class TimeManager {
+  /** Time never spent, so that scheduling delays cannot flag the player. */
+  static final long SAFETY_MILLIS = 50;
+  /** Iterations with the same best move after which a search is decided. */
+  private static final int STABLE_ITERATIONS = 6;
+
+  private final LongSupplier clock;
+  private final long startNanos;
+  private long softNanos;
+  private long hardNanos;
+
+  private int lastMove = SearchResult.PASS;
+  private int stableIterations;
+  private double instability;
+
+  /**
+   * Budgets a move for the side to move in {@code game}.
+   *
+   * @param clock      the clock of the game
+   * @param game       the position to move in
+   * @param startNanos when the move was requested, from
+   *     {@link System#nanoTime()}; time since then counts against the budget
+   * @return the time manager
+   */
+  public static TimeManager forClock(FischerClock clock, ReversiGame game,
+                                     long startNanos) {
+    Player player = game.getCurrentPlayer();
+    long remaining = player == Player.White ? clock.getWhiteTimeMillis()
+                                            : clock.getBlackTimeMillis();
+    long discs = game.getBoard().getDiscs(Player.Black) |
+                 game.getBoard().getDiscs(Player.White);
+    return new TimeManager(remaining, clock.getBonusMillis(),
+                           64 - Long.bitCount(discs), startNanos);
+  }
+
+  /**
+   * @param remainingMillis the time left on the mover's clock
+   * @param bonusMillis     the time added to the clock after each move
+   * @param empties         the number of empty squares
+   * @param startNanos      when the move was requested, from
+   *     {@link System#nanoTime()}
+   */
+  public TimeManager(long remainingMillis, long bonusMillis, int empties,
+                     long startNanos) {
+    this(remainingMillis, bonusMillis, empties, startNanos, System::nanoTime);
+  }
+
+  TimeManager(long remainingMillis, long bonusMillis, int empties,
+              long startNanos, LongSupplier clock) {
+    this.clock = clock;
+    this.startNanos = startNanos;
+    long usable = Math.max(0, remainingMillis - SAFETY_MILLIS);
+    int movesLeft = Math.max(1, (empties + 1) / 2);
+    long soft = Math.min(usable / movesLeft + bonusMillis * 3 / 4, usable / 3);
+    long hard = Math.min(usable, soft * 3);
+    this.softNanos = soft * 1_000_000L;
+    this.hardNanos = hard * 1_000_000L;
+  }
+
+  /**
+   * Caps both budgets, for example to bound the time any single move may
+   * take on a busy server.
+   *
+   * @param maxMillis the longest time to spend on the move
+   * @return this manager
+   */
+  public TimeManager limitTo(long maxMillis) {
+    long max = maxMillis * 1_000_000L;
+    softNanos = Math.min(softNanos, max);
+    hardNanos = Math.min(hardNanos, max);
+    return this;
+  }
+
+  /** Returns the time a search normally takes, in milliseconds. */
+  public long getSoftMillis() { return softNanos / 1_000_000L; }
+
+  /** Returns the time after which a search is abandoned, in milliseconds. */
+  public long getHardMillis() { return hardNanos / 1_000_000L; }
+
+  /**
+   * Returns the hard deadline, comparable with {@link System#nanoTime()}.
+   *
+   * @return the deadline in nanoseconds
+   */
+  public long getDeadlineNanos() { return startNanos + hardNanos; }
+
+  /**
+   * Returns whether there is any time left to search at all.
+   *
+   * @return {@code false} if the hard deadline has already passed
+   */
+  public boolean hasTime() {
+    return clock.getAsLong() - getDeadlineNanos() < 0;
+  }
+
+  /**
+   * Reports a completed iteration and decides whether to start the next.
+   * The next iteration usually costs more than all previous ones together,
+   * so it is only started while less than half the budget is spent.
+   *
+   * @param depth the depth just completed
+   * @param move  the best move of the iteration
+   * @param score its score
+   * @return {@code true} to search one ply deeper
+   */
+  public boolean onIteration(int depth, int move, int score) {
+    if (Math.abs(score) >= Searcher.WIN_SCORE)
+      return false;
+
+    instability *= 0.5;
+    if (depth > 1 && move != lastMove) {
+      instability += 1.0;
+      stableIterations = 0;
+    } else {
+      stableIterations++;
+    }
+    lastMove = move;
+
+    long elapsed = clock.getAsLong() - startNanos;
+    if (stableIterations >= STABLE_ITERATIONS && elapsed > softNanos / 4)
+      return false;
+    double budget = Math.min(softNanos * (1.0 + instability), hardNanos);
+    return elapsed < budget / 2;
+  }
+}
@@ -0,0 +1,482 @@
+package com.reversi.engine;
+
+import com.reversi.common.FischerClock;
+import com.reversi.common.Player;
+import com.reversi.common.ReversiGame;
+import com.reversi.common.VirtualTicker;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Plays engine-against-engine matches to measure strength differences.
+ * <p>
+ * Games start from balanced openings. Each opening is played twice, once
+ * with each engine as Black, which cancels most of the bias of the opening.
+ * Games run concurrently on a fixed pool of threads. Every thread has its own
+ * engine instances, since searchers are not thread-safe. Games are played
+ * directly on {@link ReversiGame} with a {@link FischerClock} driven by a
+ * {@link VirtualTicker}. After each move the clock is charged the search time
+ * the engine reports, so no thread ever sleeps and an engine that overspends
+ * still loses on time.
+ * </p>
+ */
+public class Tournament {
+  /** An engine taking part in a match. */
+  public interface Engine {
+    /**
+     * Chooses a move for the side to move.
+     *
+     * @param game  the position; it must not be modified
+     * @param clock the clock of the game, to budget the search
+     * @return the chosen move, with the nodes searched and time taken
+     */
+    SearchResult play(ReversiGame game, FischerClock clock);
+  }
+
+  /** The outcome of a match from the first engine's point of view. */
+  public static final class Result {
+    private final int wins;
+    private final int draws;
+    private final int losses;
+    private final long[] nodes;
+    private final long[] searchNanos;
+    private final long elapsedNanos;
+
+    Result(int wins, int draws, int losses, long[] nodes, long[] searchNanos,
+           long elapsedNanos) {
+      this.wins = wins;
+      this.draws = draws;
+      this.losses = losses;
+      this.nodes = nodes;
+      this.searchNanos = searchNanos;
+      this.elapsedNanos = elapsedNanos;
+    }
+
+    public int getWins() { return wins; }
+
+    public int getDraws() { return draws; }
+
+    public int getLosses() { return losses; }
+
+    public int getGames() { return wins + draws + losses; }
+
+    /** Returns the first engine's mean score, from 0 to 1. */
+    public double getScore() {
+      return getGames() == 0 ? 0.5 : (wins + 0.5 * draws) / getGames();
+    }
+
+    /** Returns the first engine's Elo advantage. */
+    public double getElo() { return elo(clampScore(getScore())); }
+
+    /**
+     * Returns half the width of the 95% confidence interval of
+     * {@link #getElo()}. The interval is the Wilson score interval of the
+     * mean score, which stays open when every game has the same result.
+     * Counting a draw as half a win and half a loss overstates its variance,
+     * so the margin errs on the wide side.
+     */
+    public double getEloMargin() {
+      int n = getGames();
+      if (n == 0)
+        return Double.POSITIVE_INFINITY;
+      double p = getScore();
+      double z = 1.96;
+      double z2n = z * z / n;
+      double center = (p + z2n / 2) / (1 + z2n);
+      double error =
+          z / (1 + z2n) * Math.sqrt(p * (1 - p) / n + z2n / (4 * n));
+      double upper = elo(clampScore(center + error));
+      double lower = elo(clampScore(center - error));
+      return (upper - lower) / 2;
+    }
+
+    /** Returns the number of games finished per second of wall time. */
+    public double getGamesPerSecond() {
+      return elapsedNanos == 0 ? 0 : getGames() * 1e9 / elapsedNanos;
+    }
+
+    /**
+     * Returns the search speed of one engine.
+     *
+     * @param engine 0 for the first engine, 1 for the second
+     * @return nodes per second of search time
+     */
+    public double getNodesPerSecond(int engine) {
+      return searchNanos[engine] == 0
+          ? 0
+          : nodes[engine] * 1e9 / searchNanos[engine];
+    }
+
+    private double clampScore(double p) {
+      double epsilon = 0.5 / Math.max(1, getGames());
+      return Math.min(1 - epsilon, Math.max(epsilon, p));
+    }
+
+    @Override
+    public String toString() {
+      return String.format(
+          "games %d: +%d =%d -%d, score %.1f%%, Elo %+.1f +/- %.1f (95%%)%n" +
+              "%.1f games/s, %.0f / %.0f nodes/s",
+          getGames(), wins, draws, losses, 100 * getScore(), getElo(),
+          getEloMargin(), getGamesPerSecond(), getNodesPerSecond(0),
+          getNodesPerSecond(1));
+    }
+  }
+
+  private final Supplier<Engine> first;
+  private final Supplier<Engine> second;
+  private final long initialMillis;
+  private final long bonusMillis;
+  private final int threads;
+
+  /**
+   * @param first         creates instances of the engine under test
+   * @param second        creates instances of the reference engine
+   * @param initialMillis the time on each clock at the start of a game
+   * @param bonusMillis   the time added to a clock after each move
+   * @param threads       the number of games played at once
+   */
+  public Tournament(Supplier<Engine> first, Supplier<Engine> second,
+                    long initialMillis, long bonusMillis, int threads) {
+    this.first = first;
+    this.second = second;
+    this.initialMillis = initialMillis;
+    this.bonusMillis = bonusMillis;
+    this.threads = threads;
+  }
+
+  /**
+   * Plays a match. Openings are used in order, each for a pair of games with
+   * colours reversed, and reused from the start if there are fewer pairs
+   * than openings.
+   *
+   * @param openings the opening moves of the games
+   * @param pairs    the number of game pairs to play
+   * @return the result for the first engine
+   */
+  public Result run(List<int[]> openings, int pairs) {
+    long start = System.nanoTime();
+    LongAdder wins = new LongAdder();
+    LongAdder draws = new LongAdder();
+    LongAdder losses = new LongAdder();
+    LongAdder[] nodes = {new LongAdder(), new LongAdder()};
+    LongAdder[] nanos = {new LongAdder(), new LongAdder()};
+    ThreadLocal<Engine[]> engines =
+        ThreadLocal.withInitial(() -> new Engine[] {first.get(), second.get()});
+
+    ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+      Thread t = new Thread(r, "tournament");
+      t.setDaemon(true);
+      return t;
+    });
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int i = 0; i < pairs; i++) {
+        int[] opening = openings.get(i % openings.size());
+        futures.add(pool.submit(() -> {
+          Engine[] pair = engines.get();
+          for (int firstColour = 0; firstColour < 2; firstColour++) {
+            // firstColour 0: the first engine plays Black.
+            long[] gameNodes = new long[2];
+            long[] gameNanos = new long[2];
+            int blackResult =
+                playGame(pair[firstColour], pair[1 - firstColour], opening,
+                         gameNodes, gameNanos);
+            int result = firstColour == 0 ? blackResult : -blackResult;
+            (result > 0 ? wins : result < 0 ? losses : draws).increment();
+            nodes[firstColour].add(gameNodes[0]);
+            nanos[firstColour].add(gameNanos[0]);
+            nodes[1 - firstColour].add(gameNodes[1]);
+            nanos[1 - firstColour].add(gameNanos[1]);
+          }
+        }));
+      }
+      for (Future<?> future : futures)
+        future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Tournament game failed", e.getCause());
+    } finally {
+      pool.shutdownNow();
+    }
+    return new Result(wins.intValue(), draws.intValue(), losses.intValue(),
+                      new long[] {nodes[0].sum(), nodes[1].sum()},
+                      new long[] {nanos[0].sum(), nanos[1].sum()},
+                      System.nanoTime() - start);
+  }
+
+  /**
+   * Plays one game from an opening.
+   *
+   * @param black   the engine playing Black
+   * @param white   the engine playing White
+   * @param opening the opening moves
+   * @param nodes   receives the nodes searched by Black and White
+   * @param nanos   receives the search time of Black and White
+   * @return 1 if Black wins, -1 if White wins, 0 for a draw
+   */
+  int playGame(Engine black, Engine white, int[] opening, long[] nodes,
+               long[] nanos) {
+    ReversiGame game = new ReversiGame();
+    for (int sq : opening)
+      game.makeMove(sq / 8, sq % 8);
+
+    FischerClock clock = new FischerClock(
+        initialMillis, bonusMillis, game.getCurrentPlayer() == Player.White);
+    VirtualTicker ticker = new VirtualTicker();
+    clock.setTicker(ticker);
+    clock.start();
+    try {
+      while (!GameRecord.isOver(game)) {
+        if (game.getValidMoveMask() == 0) {
+          game.pass();
+          clock.swap();
+          continue;
+        }
+        Player mover = game.getCurrentPlayer();
+        int side = mover == Player.Black ? 0 : 1;
+        SearchResult result = (side == 0 ? black : white).play(game, clock);
+        nodes[side] += result.getNodes();
+        nanos[side] += result.getElapsedNanos();
+        ticker.advance(result.getElapsedNanos() / 1_000_000);
+        long left = mover == Player.Black ? clock.getBlackTimeMillis()
+                                          : clock.getWhiteTimeMillis();
+        if (left <= 0)
+          return mover == Player.Black ? -1 : 1;
+        if (!game.makeMove(result.getRow(), result.getCol()))
+          throw new IllegalStateException("Engine played an illegal move " +
+                                          result + " in " + game.getBoard());
+        clock.swap();
+      }
+    } finally {
+      clock.stop();
+    }
+    return Integer.signum(
+        Long.bitCount(game.getBoard().getDiscs(Player.Black)) -
+        Long.bitCount(game.getBoard().getDiscs(Player.White)));
+  }
+
+  /**
+   * Converts a mean score into an Elo difference.
+   *
+   * @param score the mean score, strictly between 0 and 1
+   * @return the Elo difference
+   */
+  static double elo(double score) {
+    return -400 * Math.log10(1 / score - 1);
+  }
+
+  /**
+   * Generates distinct openings whose positions are roughly even. Openings
+   * that are symmetric images of each other count as the same.
+   *
+   * @param plies    the number of moves in each opening
+   * @param count    the number of openings wanted
+   * @param maxScore the largest acceptable depth-4 search score, in
+   *     hundredths of a disc
+   * @param random   the source of the opening moves
+   * @return up to {@code count} openings
+   */
+  public static List<int[]> balancedOpenings(int plies, int count,
+                                             int maxScore, Random random) {
+    Searcher searcher = new Searcher(new HeuristicEvaluator(),
+                                     new TranspositionTable(1 << 16));
+    Set<Long> seen = new HashSet<>();
+    List<int[]> openings = new ArrayList<>();
+    for (int attempt = 0; attempt < count * 100 && openings.size() < count;
+         attempt++) {
+      ReversiGame game = new ReversiGame();
+      int[] moves = new int[plies];
+      boolean complete = true;
+      for (int i = 0; i < plies && complete; i++) {
+        long mask = game.getValidMoveMask();
+        if (mask == 0) {
+          complete = false;
+          break;
+        }
+        int pick = random.nextInt(Long.bitCount(mask));
+        for (int k = 0; k < pick; k++)
+          mask &= mask - 1;
+        moves[i] = Long.numberOfTrailingZeros(mask);
+        game.makeMove(moves[i] / 8, moves[i] % 8);
+      }
+      if (!complete || game.getValidMoveMask() == 0)
+        continue;
+
+      long blackDiscs = game.getBoard().getDiscs(Player.Black);
+      long whiteDiscs = game.getBoard().getDiscs(Player.White);
+      Player player = game.getCurrentPlayer();
+      long key = OpeningBook.key(
+          blackDiscs, whiteDiscs, player,
+          OpeningBook.canonicalSymmetry(blackDiscs, whiteDiscs, player));
+      if (!seen.add(key))
+        continue;
+      if (Math.abs(searcher.search(game, SearchLimits.depth(4)).getScore()) >
+          maxScore)
+        continue;
+      openings.add(moves);
+    }
+    return openings;
+  }
+
+  /**
+   * Creates engines from a specification such as {@code ab:depth=6},
+   * {@code ab:eval=weights.bin} or {@code mcts:playouts=5000,light}.
+   * <p>
+   * {@code ab} is the alpha-beta {@link Searcher}: {@code depth=N} or
+   * {@code nodes=N} fix its effort, otherwise it is budgeted by the clock;
+   * {@code eval=<file>} loads {@link PatternEvaluator} weights and
+   * {@code tt=N} sets the table to 2^N entries. {@code mcts} is the
+   * {@link MctsSearcher}: {@code playouts=N}, {@code c=x} for the exploration
+   * constant and {@code light} for the light playout policy.
+   * </p>
+   *
+   * @param spec the specification
+   * @return a factory of independent engine instances
+   * @throws IllegalArgumentException if the specification is invalid
+   */
+  public static Supplier<Engine> parseEngine(String spec) {
+    int colon = spec.indexOf(':');
+    String kind = colon < 0 ? spec : spec.substring(0, colon);
+    int depth = 0;
+    long nodes = 0;
+    int tableBits = 20;
+    Evaluator evaluator = new HeuristicEvaluator();
+    long playouts = 10_000;
+    double exploration = MctsSearcher.DEFAULT_EXPLORATION;
+    boolean light = false;
+    if (colon >= 0) {
+      for (String option : spec.substring(colon + 1).split(",")) {
+        int eq = option.indexOf('=');
+        String key = eq < 0 ? option : option.substring(0, eq);
+        String value = eq < 0 ? "" : option.substring(eq + 1);
+        try {
+          switch (key) {
+          case "depth":
+            depth = Integer.parseInt(value);
+            break;
+          case "nodes":
+            nodes = Long.parseLong(value);
+            break;
+          case "tt":
+            tableBits = Integer.parseInt(value);
+            break;
+          case "eval":
+            evaluator = PatternEvaluator.load(Path.of(value));
+            break;
+          case "playouts":
+            playouts = Long.parseLong(value);
+            break;
+          case "c":
+            exploration = Double.parseDouble(value);
+            break;
+          case "light":
+            light = true;
+            break;
+          default:
+            throw new IllegalArgumentException("Unknown engine option: " +
+                                               option);
+          }
+        } catch (NumberFormatException | IOException e) {
+          throw new IllegalArgumentException("Invalid engine option: " +
+                                             option, e);
+        }
+      }
+    }
+
+    switch (kind) {
+    case "ab": {
+      Evaluator eval = evaluator;
+      int bits = tableBits;
+      SearchLimits limits = new SearchLimits(depth, nodes, 0);
+      boolean fixed = depth > 0 || nodes > 0;
+      return () -> {
+        Searcher searcher =
+            new Searcher(eval, new TranspositionTable(1 << bits));
+        return (game, clock)
+                   -> fixed ? searcher.search(game, limits)
+                            : searcher.search(
+                                  game, limits,
+                                  TimeManager.forClock(clock, game,
+                                                       System.nanoTime()));
+      };
+    }
+    case "mcts": {
+      SearchLimits limits = new SearchLimits(0, playouts, 0);
+      double c = exploration;
+      boolean policy = light;
+      return () -> {
+        MctsSearcher searcher = new MctsSearcher(1, c, policy);
+        return (game, clock) -> searcher.search(game, limits);
+      };
+    }
+    default:
+      throw new IllegalArgumentException("Unknown engine: " + kind);
+    }
+  }
+
+  /**
+   * Runs a match from the command line.
+   * <p>
+   * Usage: {@code Tournament <engine> <engine> [--pairs=N] [--threads=N]
+   * [--time=ms] [--bonus=ms] [--plies=N] [--seed=N]}
+   * </p>
+   *
+   * @param args the command-line arguments
+   */
+  public static void main(String[] args) {
+    if (args.length < 2) {
+      System.err.println("Usage: Tournament <engine> <engine> [--pairs=N] " +
+                         "[--threads=N] [--time=ms] [--bonus=ms] " +
+                         "[--plies=N] [--seed=N]");
+      System.exit(1);
+    }
+    int pairs = 500;
+    int threads = Runtime.getRuntime().availableProcessors();
+    long time = 10_000;
+    long bonus = 100;
+    int plies = 6;
+    long seed = 1;
+    for (int i = 2; i < args.length; i++) {
+      String arg = args[i];
+      if (arg.startsWith("--pairs=")) {
+        pairs = Integer.parseInt(arg.substring("--pairs=".length()));
+      } else if (arg.startsWith("--threads=")) {
+        threads = Integer.parseInt(arg.substring("--threads=".length()));
+      } else if (arg.startsWith("--time=")) {
+        time = Long.parseLong(arg.substring("--time=".length()));
+      } else if (arg.startsWith("--bonus=")) {
+        bonus = Long.parseLong(arg.substring("--bonus=".length()));
+      } else if (arg.startsWith("--plies=")) {
+        plies = Integer.parseInt(arg.substring("--plies=".length()));
+      } else if (arg.startsWith("--seed=")) {
+        seed = Long.parseLong(arg.substring("--seed=".length()));
+      } else {
+        System.err.println("Unknown option: " + arg);
+        System.exit(1);
+      }
+    }
+
+    List<int[]> openings =
+        balancedOpenings(plies, pairs, 200, new Random(seed));
+    System.out.println("Using " + openings.size() + " openings of " + plies +
+                       " moves");
+    Tournament tournament =
+        new Tournament(parseEngine(args[0]), parseEngine(args[1]), time,
+                       bonus, threads);
+    System.out.println(args[0] + " vs " + args[1]);
+    System.out.println(tournament.run(openings, pairs));
+  }
+}
@@ -0,0 +1,119 @@
+package com.reversi.engine;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed-size hash table of search results keyed by the Zobrist hash of a
+ * position (see {@link com.reversi.common.ReversiGame#getHash()}).
+ * <p>
+ * Each entry packs the score, the searched depth, the bound type and the best
+ * move into a single {@code long} stored next to the full key, so a probe is
+ * two array reads and never allocates. Newer results always replace older
+ * ones in the same slot.
+ * </p>
+ * <p>
+ * The table can be shared by several searching threads without locks. Each
+ * slot stores {@code key ^ data} next to {@code data}; if two threads write a
+ * slot at the same time and a reader sees the key of one entry with the data
+ * of the other, the XOR no longer matches and the probe is a miss instead of
+ * returning a corrupt entry.
+ * </p>
+ */
+public class TranspositionTable {
+  /** The stored score is exact. */
+  public static final int EXACT = 0;
+  /** The stored score is a lower bound (the search failed high). */
+  public static final int LOWER = 1;
+  /** The stored score is an upper bound (the search failed low). */
+  public static final int UPPER = 2;
+
+  /** Move value stored when no best move is known. */
+  public static final int NO_MOVE = 64;
+
+  // Set in every packed entry so that a stored entry is never 0.
+  private static final long VALID = 1L << 49;
+
+  // Opaque accesses keep each long read and write atomic without adding
+  // memory fences; consistency between the two arrays comes from the XOR.
+  private final AtomicLongArray keys;
+  private final AtomicLongArray data;
+  private final int mask;
+
+  /**
+   * Creates a table with at least the requested number of entries, rounded up
+   * to a power of two.
+   *
+   * @param entries the minimum number of entries
+   */
+  public TranspositionTable(int entries) {
+    int size = Integer.highestOneBit(Math.max(1, entries - 1)) << 1;
+    keys = new AtomicLongArray(size);
+    data = new AtomicLongArray(size);
+    mask = size - 1;
+  }
+
+  /**
+   * Packs an entry into a single value.
+   *
+   * @param score the score
+   * @param depth the remaining depth the score was searched to
+   * @param bound one of {@link #EXACT}, {@link #LOWER}, {@link #UPPER}
+   * @param move  the best move, or {@link #NO_MOVE}
+   * @return the packed entry
+   */
+  static long pack(int score, int depth, int bound, int move) {
+    return (score & 0xFFFFFFFFL) | ((long)(depth & 0xFF) << 32) |
+        ((long)(bound & 0x3) << 40) | ((long)(move & 0x7F) << 42) | VALID;
+  }
+
+  /** Extracts the score from a packed entry. */
+  public static int score(long entry) { return (int)entry; }
+
+  /** Extracts the depth from a packed entry. */
+  public static int depth(long entry) { return (int)(entry >>> 32) & 0xFF; }
+
+  /** Extracts the bound type from a packed entry. */
+  public static int bound(long entry) { return (int)(entry >>> 40) & 0x3; }
+
+  /** Extracts the best move from a packed entry. */
+  public static int move(long entry) { return (int)(entry >>> 42) & 0x7F; }
+
+  /**
+   * Looks up a position.
+   *
+   * @param key the position hash
+   * @return the packed entry, or 0 if the position is not stored
+   */
+  public long probe(long key) {
+    int index = (int)key & mask;
+    long entry = data.getOpaque(index);
+    return (keys.getOpaque(index) ^ entry) == key && entry != 0 ? entry : 0L;
+  }
+
+  /**
+   * Stores the result of searching a position.
+   *
+   * @param key   the position hash
+   * @param score the score
+   * @param depth the remaining depth the score was searched to
+   * @param bound one of {@link #EXACT}, {@link #LOWER}, {@link #UPPER}
+   * @param move  the best move, or {@link #NO_MOVE}
+   */
+  public void store(long key, int score, int depth, int bound, int move) {
+    int index = (int)key & mask;
+    long entry = pack(score, depth, bound, move);
+    keys.setOpaque(index, key ^ entry);
+    data.setOpaque(index, entry);
+  }
+
+  /** Removes every entry. Must not run concurrently with a search. */
+  public void clear() {
+    for (int i = 0; i < data.length(); i++) {
+      keys.setOpaque(i, 0L);
+      data.setOpaque(i, 0L);
+    }
+  }
+
+  /** Returns the number of slots in the table. */
+  public int capacity() { return data.length(); }
+}
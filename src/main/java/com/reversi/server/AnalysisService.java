@@ -0,0 +1,272 @@
+package com.reversi.server;
+
+import com.reversi.common.Message;
+import com.reversi.common.ReversiGame;
+import com.reversi.engine.HeuristicEvaluator;
+import com.reversi.engine.SearchLimits;
+import com.reversi.engine.Searcher;
+import com.reversi.engine.TranspositionTable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Scores every legal move of a position for clients asking for hints.
+ * <p>
+ * Analyses run on a bounded pool of search threads, apart from the threads
+ * serving clients and the bots' {@link BotEngine}. Each iteration of
+ * {@link Searcher#analyze} is streamed to the requester as a partial
+ * {@link Message.AnalyzeResult}, followed by a complete one. Finished results
+ * are cached by position hash, and a request for a position that is already
+ * being analysed deeply enough joins the running job, so a popular position
+ * is only searched once. Each client has a token bucket limiting how often it
+ * may ask.
+ * </p>
+ */
+public class AnalysisService implements AutoCloseable {
+  private static final Logger logger =
+      LoggerFactory.getLogger(AnalysisService.class);
+
+  /** Deepest analysis a client may ask for. */
+  static final int MAX_DEPTH = 16;
+  /** Longest analysis a client may ask for, in milliseconds. */
+  static final long MAX_TIME_MILLIS = 5000;
+  /** Time given to requests that set neither a depth nor a time. */
+  static final long DEFAULT_TIME_MILLIS = 1000;
+  /** Requests a client may make in a burst. */
+  static final int BURST = 5;
+  /** Time for a client to earn back one request, in milliseconds. */
+  static final long REFILL_MILLIS = 2000;
+
+  private static final int TABLE_ENTRIES = 1 << 18;
+  private static final int CACHE_ENTRIES = 4096;
+
+  /** The outcome of {@link #submit}. */
+  public enum Admission {
+    /** The analysis was answered from the cache, joined or queued. */
+    ACCEPTED,
+    /** The client has used up its requests for now. */
+    RATE_LIMITED,
+    /** The analysis pool is saturated. */
+    BUSY
+  }
+
+  /** An analysis in progress and the clients waiting for it. */
+  private static final class Job {
+    final long key;
+    final int depth;
+    final List<Consumer<Message.AnalyzeResult>> subscribers =
+        new ArrayList<>();
+    Message.AnalyzeResult latest;
+
+    Job(long key, int depth) {
+      this.key = key;
+      this.depth = depth;
+    }
+  }
+
+  private final ThreadPoolExecutor executor;
+  private final ThreadLocal<Searcher> searchers =
+      ThreadLocal.withInitial(() -> new Searcher(
+          new HeuristicEvaluator(), new TranspositionTable(TABLE_ENTRIES)));
+  private final LongSupplier clock;
+
+  // Guarded by itself.
+  private final Map<Long, Message.AnalyzeResult> cache =
+      new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(
+            Map.Entry<Long, Message.AnalyzeResult> eldest) {
+          return size() > CACHE_ENTRIES;
+        }
+      };
+  // Guarded by itself; jobs are also locked while their subscribers change.
+  private final Map<Long, Job> running = new HashMap<>();
+  // Per client: {tokens scaled by REFILL_MILLIS, last refill time}. Entries
+  // are dropped by forgetClient when the client disconnects.
+  private final Map<Integer, long[]> buckets = new ConcurrentHashMap<>();
+
+  /**
+   * @param threads       the number of analysis threads
+   * @param queueCapacity the number of analyses that may wait for a thread
+   */
+  public AnalysisService(int threads, int queueCapacity) {
+    this(threads, queueCapacity, () -> System.nanoTime() / 1_000_000);
+  }
+
+  /**
+   * @param clock the current time in milliseconds, for the rate limits
+   */
+  AnalysisService(int threads, int queueCapacity, LongSupplier clock) {
+    this.clock = clock;
+    AtomicInteger counter = new AtomicInteger();
+    executor = new ThreadPoolExecutor(
+        threads, threads, 0L, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(queueCapacity), r -> {
+          Thread thread =
+              new Thread(r, "analysis-" + counter.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        });
+  }
+
+  /**
+   * Analyses the position of a game for the side to move.
+   *
+   * @param clientId the requesting client, for the rate limit
+   * @param game     a private copy of the game; the service takes ownership
+   * @param request  the requested depth and time; out-of-range values are
+   *     capped
+   * @param onResult receives the partial and complete results, on an
+   *     analysis thread or on the calling thread for cached positions
+   * @return whether the request was accepted
+   */
+  public Admission submit(int clientId, ReversiGame game,
+                          Message.AnalyzeRequest request,
+                          Consumer<Message.AnalyzeResult> onResult) {
+    if (!tryAcquire(clientId))
+      return Admission.RATE_LIMITED;
+
+    // Requests without a depth take whatever the time allows, so any cached
+    // or running analysis of the position serves them as well.
+    boolean anyDepth = request.getDepth() <= 0;
+    int depth = anyDepth ? MAX_DEPTH : Math.min(request.getDepth(), MAX_DEPTH);
+    long time = request.getTimeMs() > 0
+                    ? Math.min(request.getTimeMs(), MAX_TIME_MILLIS)
+                : anyDepth ? DEFAULT_TIME_MILLIS
+                           : MAX_TIME_MILLIS;
+    long key = game.getHash();
+
+    Message.AnalyzeResult cached;
+    synchronized (cache) { cached = cache.get(key); }
+    if (cached != null && (anyDepth || cached.getDepth() >= depth)) {
+      onResult.accept(cached);
+      return Admission.ACCEPTED;
+    }
+
+    Job job;
+    synchronized (running) {
+      Job current = running.get(key);
+      if (current != null && (anyDepth || current.depth >= depth)) {
+        Message.AnalyzeResult latest;
+        synchronized (current) {
+          current.subscribers.add(onResult);
+          latest = current.latest;
+        }
+        if (latest != null)
+          onResult.accept(latest);
+        return Admission.ACCEPTED;
+      }
+      job = new Job(key, depth);
+      job.subscribers.add(onResult);
+      // A deeper job replaces a shallower one; both keep running.
+      running.put(key, job);
+    }
+
+    SearchLimits limits = new SearchLimits(job.depth, 0, time);
+    try {
+      executor.execute(() -> run(job, game, limits));
+    } catch (RejectedExecutionException e) {
+      synchronized (running) { running.remove(key, job); }
+      return Admission.BUSY;
+    }
+    return Admission.ACCEPTED;
+  }
+
+  /**
+   * Drops the rate limit state of a client that has disconnected.
+   *
+   * @param clientId the id of the client
+   */
+  public void forgetClient(int clientId) {
+    buckets.remove(clientId);
+  }
+
+  /** Returns the number of clients with rate limit state. */
+  int getClientCount() { return buckets.size(); }
+
+  /** Returns the number of finished analyses kept in the cache. */
+  int getCacheSize() {
+    synchronized (cache) { return cache.size(); }
+  }
+
+  private void run(Job job, ReversiGame game, SearchLimits limits) {
+    Message.AnalyzeResult[] last = new Message.AnalyzeResult[1];
+    try {
+      searchers.get().analyze(
+          game.getBoard(), game.getCurrentPlayer(), limits,
+          (depth, moves, scores) -> {
+            last[0] = toResult(depth, moves, scores, false);
+            publish(job, last[0]);
+          });
+    } catch (RuntimeException e) {
+      logger.error("Analysis failed", e);
+    }
+
+    Message.AnalyzeResult result =
+        last[0] == null
+            ? new Message.AnalyzeResult(List.of(), 0, true)
+            : new Message.AnalyzeResult(last[0].getMoves(),
+                                        last[0].getDepth(), true);
+    synchronized (running) { running.remove(job.key, job); }
+    if (result.getDepth() > 0) {
+      synchronized (cache) {
+        Message.AnalyzeResult previous = cache.get(job.key);
+        if (previous == null || previous.getDepth() < result.getDepth())
+          cache.put(job.key, result);
+      }
+    }
+    publish(job, result);
+  }
+
+  private static void publish(Job job, Message.AnalyzeResult result) {
+    List<Consumer<Message.AnalyzeResult>> subscribers;
+    synchronized (job) {
+      job.latest = result;
+      subscribers = new ArrayList<>(job.subscribers);
+    }
+    for (Consumer<Message.AnalyzeResult> subscriber : subscribers)
+      subscriber.accept(result);
+  }
+
+  private static Message.AnalyzeResult toResult(int depth, int[] moves,
+                                                int[] scores,
+                                                boolean complete) {
+    List<Message.MoveScore> list = new ArrayList<>(moves.length);
+    for (int i = 0; i < moves.length; i++)
+      list.add(new Message.MoveScore(moves[i] / 8, moves[i] % 8, scores[i]));
+    return new Message.AnalyzeResult(list, depth, complete);
+  }
+
+  /** Takes one request from the client's token bucket if it has any. */
+  private boolean tryAcquire(int clientId) {
+    long[] bucket = buckets.computeIfAbsent(
+        clientId, id -> new long[] {BURST * REFILL_MILLIS, clock.getAsLong()});
+    synchronized (bucket) {
+      long now = clock.getAsLong();
+      bucket[0] = Math.min(BURST * REFILL_MILLIS, bucket[0] + now - bucket[1]);
+      bucket[1] = now;
+      if (bucket[0] < REFILL_MILLIS)
+        return false;
+      bucket[0] -= REFILL_MILLIS;
+      return true;
+    }
+  }
+
+  @Override
+  public void close() {
+    executor.shutdownNow();
+  }
+}
@@ -0,0 +1,167 @@
+package com.reversi.server;
+
+import com.reversi.common.Board;
+import com.reversi.common.FischerClock;
+import com.reversi.common.Player;
+import com.reversi.common.ReversiGame;
+import com.reversi.engine.HeuristicEvaluator;
+import com.reversi.engine.MctsSearcher;
+import com.reversi.engine.OpeningBook;
+import com.reversi.engine.SearchLimits;
+import com.reversi.engine.SearchResult;
+import com.reversi.engine.Searcher;
+import com.reversi.engine.TimeManager;
+import com.reversi.engine.TranspositionTable;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Computes moves for {@link BotPlayer}s on a bounded pool of search threads,
+ * kept apart from the threads that serve network clients.
+ * <p>
+ * Each search thread owns its {@link Searcher}. The time for a move is set by
+ * a {@link TimeManager} from the bot's {@link FischerClock}, counted from the
+ * moment the move is requested so that time spent queued is not lost. When
+ * the queue is full the bot answers at once with a one-ply move instead of
+ * waiting. Positions found in the optional {@link OpeningBook} are answered
+ * without searching, unless the book move is illegal there, as it can be in
+ * a corrupt or mismatched book.
+ * </p>
+ */
+public class BotEngine implements AutoCloseable {
+  private static final Logger logger = LoggerFactory.getLogger(BotEngine.class);
+
+  /** Upper bound on the time spent on a single move. */
+  private static final long MAX_MOVE_MILLIS = 2000;
+  private static final int TABLE_ENTRIES = 1 << 18;
+
+  private final ThreadPoolExecutor executor;
+  private final ThreadLocal<Searcher> searchers =
+      ThreadLocal.withInitial(() -> new Searcher(
+          new HeuristicEvaluator(), new TranspositionTable(TABLE_ENTRIES)));
+  private final HeuristicEvaluator quickEvaluator = new HeuristicEvaluator();
+  private volatile OpeningBook book;
+
+  /**
+   * @param threads       the number of search threads
+   * @param queueCapacity the number of move requests that may wait for a
+   *     thread before bots fall back to instant moves
+   */
+  public BotEngine(int threads, int queueCapacity) {
+    AtomicInteger counter = new AtomicInteger();
+    executor = new ThreadPoolExecutor(
+        threads, threads, 0L, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(queueCapacity), r -> {
+          Thread thread =
+              new Thread(r, "bot-search-" + counter.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        });
+  }
+
+  /**
+   * Sets the opening book consulted before searching.
+   *
+   * @param book the book, or {@code null} for none
+   */
+  public void setOpeningBook(OpeningBook book) { this.book = book; }
+
+  /**
+   * Chooses a move for the side to move in {@code game}, asynchronously.
+   *
+   * @param game   a private copy of the game; the engine takes ownership
+   * @param clock  the clock of the game, read to budget the search
+   * @param onMove receives the chosen square ({@code row * 8 + col}) on a
+   *     search thread, or on the calling thread if the pool is saturated
+   */
+  public void requestMove(ReversiGame game, FischerClock clock,
+                          IntConsumer onMove) {
+    requestMove(game, clock, null, 0, onMove);
+  }
+
+  /**
+   * Chooses a move asynchronously with Monte Carlo tree search. The cost of
+   * the move is bounded by {@code playouts}, and the clock still caps it.
+   *
+   * @param game     a private copy of the game; the engine takes ownership
+   * @param clock    the clock of the game
+   * @param mcts     the bot's own searcher, which keeps its tree between
+   *     moves; {@code null} to use alpha-beta search instead
+   * @param playouts the playout budget of the move
+   * @param onMove   receives the chosen square
+   */
+  public void requestMove(ReversiGame game, FischerClock clock,
+                          MctsSearcher mcts, long playouts,
+                          IntConsumer onMove) {
+    long requested = System.nanoTime();
+    try {
+      executor.execute(() -> onMove.accept(
+          chooseMove(game, clock, mcts, playouts, requested)));
+    } catch (RejectedExecutionException e) {
+      logger.warn("Bot search queue full; playing an instant move");
+      onMove.accept(quickMove(game));
+    }
+  }
+
+  private int chooseMove(ReversiGame game, FischerClock clock,
+                         MctsSearcher mcts, long playouts,
+                         long requestedNanos) {
+    OpeningBook current = book;
+    if (current != null) {
+      OpeningBook.Entry entry = current.lookup(game);
+      if (entry != null) {
+        if ((game.getValidMoveMask() & (1L << entry.getMove())) != 0)
+          return entry.getMove();
+        logger.warn("Ignoring illegal book move {}", entry);
+      }
+    }
+
+    TimeManager time = TimeManager.forClock(clock, game, requestedNanos)
+                           .limitTo(MAX_MOVE_MILLIS);
+    if (!time.hasTime())
+      return quickMove(game);
+    SearchResult result;
+    if (mcts != null) {
+      long millis = (time.getDeadlineNanos() - System.nanoTime()) / 1_000_000;
+      result = mcts.search(
+          game, new SearchLimits(0, playouts, Math.max(1, millis)));
+    } else {
+      result = searchers.get().search(game, new SearchLimits(0, 0, 0), time);
+    }
+    return result.getMove() == SearchResult.PASS ? quickMove(game)
+                                                 : result.getMove();
+  }
+
+  /** Returns the move with the best static evaluation after it. */
+  private int quickMove(ReversiGame game) {
+    Player player = game.getCurrentPlayer();
+    long own = game.getBoard().getDiscs(player);
+    long opp = game.getBoard().getDiscs(player.opponent());
+    long moves = Board.legalMoves(own, opp);
+    int best = Long.numberOfTrailingZeros(moves);
+    int bestScore = Integer.MIN_VALUE;
+    while (moves != 0) {
+      int sq = Long.numberOfTrailingZeros(moves);
+      moves &= moves - 1;
+      long flips = Board.flips(own, opp, sq);
+      int score =
+          -quickEvaluator.evaluate(opp & ~flips, own | flips | (1L << sq));
+      if (score > bestScore) {
+        bestScore = score;
+        best = sq;
+      }
+    }
+    return best;
+  }
+
+  @Override
+  public void close() {
+    executor.shutdownNow();
+  }
+}
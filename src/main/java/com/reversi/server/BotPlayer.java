@@ -0,0 +1,104 @@
+package com.reversi.server;
+
+import com.reversi.common.EventBus;
+import com.reversi.common.Message;
+import com.reversi.common.Player;
+import com.reversi.common.ReversiGame;
+import com.reversi.engine.MctsSearcher;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An in-process computer player. It is seated in a {@link GameSession} like
+ * any {@link ClientConnection}, but has no socket: it reads the game state
+ * directly when {@link SessionHub} tells it the game changed, and submits its
+ * moves through the same {@link MessageSink} as network clients.
+ */
+public class BotPlayer implements ClientConnection {
+  private final int clientId;
+  private final BotEngine engine;
+  private final MessageSink sink;
+  // Monte Carlo searcher owned by this bot so its tree survives between
+  // moves; null for an alpha-beta bot.
+  private final MctsSearcher mcts;
+  private final long playouts;
+  // Hash of the last position this bot started a search for. It is kept
+  // until an update shows another position, that is until the move has been
+  // applied, so repeated updates of a position never start a second search.
+  // Positions never repeat within a game.
+  private final AtomicLong searched = new AtomicLong();
+
+  /**
+   * @param clientId the id under which the hub knows this bot
+   * @param engine   computes the bot's moves
+   * @param eventBus the hub's event bus, which receives the moves
+   */
+  public BotPlayer(int clientId, BotEngine engine, EventBus eventBus) {
+    this(clientId, engine, eventBus, 0);
+  }
+
+  /**
+   * @param clientId the id under which the hub knows this bot
+   * @param engine   computes the bot's moves
+   * @param eventBus the hub's event bus, which receives the moves
+   * @param playouts the Monte Carlo playouts per move, which bound the CPU
+   *     the bot uses; 0 for an alpha-beta bot budgeted by the clock alone
+   */
+  public BotPlayer(int clientId, BotEngine engine, EventBus eventBus,
+                   long playouts) {
+    this(clientId, engine, MessageSink.of(eventBus), playouts);
+  }
+
+  /**
+   * @param clientId the id under which the hub knows this bot
+   * @param engine   computes the bot's moves
+   * @param sink     receives the moves, like those of network clients
+   * @param playouts the Monte Carlo playouts per move; 0 for alpha-beta
+   */
+  public BotPlayer(int clientId, BotEngine engine, MessageSink sink,
+                   long playouts) {
+    this.clientId = clientId;
+    this.engine = engine;
+    this.sink = sink;
+    this.playouts = playouts;
+    this.mcts = playouts > 0 ? new MctsSearcher() : null;
+  }
+
+  @Override
+  public int getClientId() {
+    return clientId;
+  }
+
+  /** Bots read the game directly, so encoded frames are dropped. */
+  @Override
+  public void sendFrame(Frame frame) {}
+
+  /** Bots read the game directly, so messages are not even encoded. */
+  @Override
+  public void sendMessage(Message msg) {}
+
+  /**
+   * Called by the hub after every change to the game; starts a search if it
+   * is this bot's turn.
+   *
+   * @param session the game this bot plays in
+   */
+  void onGameUpdate(GameSession session) {
+    if (session.isGameOver())
+      return;
+    ReversiGame game = session.copyGame();
+    Player player = session.getClientPlayer(this);
+    if (game.getCurrentPlayer() != player || game.getValidMoveMask() == 0)
+      return;
+    long key = game.getHash();
+    long previous = searched.get();
+    if (previous == key || !searched.compareAndSet(previous, key))
+      return;
+    engine.requestMove(game, session.getClock(), mcts, playouts, square -> {
+      // The game may have moved on while searching, e.g. ended on time.
+      if (session.isGameOver() || session.copyGame().getHash() != key)
+        return;
+      sink.publish(new Message(new Message.Move(square / 8, square % 8)),
+                   this);
+    });
+  }
+}
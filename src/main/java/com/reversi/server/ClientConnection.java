@@ -0,0 +1,51 @@
+package com.reversi.server;
+
+import com.reversi.common.Message;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A connected client as seen by {@link SessionHub} and {@link GameSession},
+ * independent of the transport that carries its messages.
+ */
+public interface ClientConnection {
+  /**
+   * Returns the server-assigned id of this client.
+   *
+   * @return the client id
+   */
+  int getClientId();
+
+  /**
+   * Sends an already encoded frame to this client. Implementations must be
+   * safe to call from any thread and must not modify the frame.
+   *
+   * @param frame the frame to send
+   */
+  void sendFrame(Frame frame);
+
+  /**
+   * Closes the connection, for instance because the client does not read
+   * its messages fast enough. Safe to call from any thread; frames sent
+   * afterwards are dropped. Does nothing by default.
+   */
+  default void disconnect() {}
+
+  /**
+   * Encodes a message and sends it to this client. To send the same message to
+   * several clients, encode it once with {@link Frame#encode(Message)} and use
+   * {@link #sendFrame(Frame)} instead.
+   *
+   * @param msg the message to send
+   */
+  default void sendMessage(Message msg) {
+    Frame frame;
+    try {
+      frame = Frame.encode(msg);
+    } catch (Exception e) {
+      LoggerFactory.getLogger(ClientConnection.class)
+          .error("Failed to send message: {}", msg.toString());
+      return;
+    }
+    sendFrame(frame);
+  }
+}
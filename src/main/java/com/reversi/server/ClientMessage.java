@@ -5,9 +5,10 @@ import com.reversi.common.Message;
 
 public class ClientMessage extends Event {
   private final Message msg;
-  private final ClientSocket handler; // handler to which this event comes from
+  // handler to which this event comes from
+  private final ClientConnection handler;
 
-  ClientMessage(Message msg, ClientSocket handler) {
+  ClientMessage(Message msg, ClientConnection handler) {
     super();
     this.msg = msg;
     this.handler = handler;
@@ -15,5 +16,9 @@ public class ClientMessage extends Event {
 
   public Message getMessage() { return this.msg; }
 
-  public ClientSocket getHandler() { return this.handler; }
+  public ClientConnection getHandler() { return this.handler; }
+
+  /** Messages of one client are handled in the order they arrived. */
+  @Override
+  public Object getPartitionKey() { return handler.getClientId(); }
 }
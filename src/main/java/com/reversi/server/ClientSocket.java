@@ -5,40 +5,65 @@ import com.reversi.common.JacksonObjMapper;
 import com.reversi.common.Message;
 import java.io.*;
 import java.net.*;
+import java.util.concurrent.locks.ReentrantLock;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public class ClientSocket implements Runnable {
+public class ClientSocket implements ClientConnection, Runnable {
   private static final Logger logger =
       LoggerFactory.getLogger(ClientSocket.class);
 
   private Socket socket;
-  private PrintWriter out;
+  private OutputStream out;
+  // Serializes writers so frames from different threads never interleave.
+  private final ReentrantLock writeLock = new ReentrantLock();
   private BufferedReader in;
-  private EventBus eventBus;
+  private MessageSink sink;
   private int id;
 
   public ClientSocket(int id, Socket s, EventBus eventBus) {
+    this(id, s, MessageSink.of(eventBus));
+  }
+
+  public ClientSocket(int id, Socket s, MessageSink sink) {
     this.id = id;
     this.socket = s;
-    this.eventBus = eventBus;
+    this.sink = sink;
 
     // Establish input/output stream with the client
     try {
-      out = new PrintWriter(socket.getOutputStream(), true);
+      out = socket.getOutputStream();
       in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
     } catch (IOException e) {
       logger.error("Error initializing streams for client {}", id, e);
     }
   }
 
+  @Override
   public int getClientId() { return id; }
 
-  public void sendMessage(Message msg) {
+  @Override
+  public void sendFrame(Frame frame) {
+    if (socket.isClosed())
+      return;
+    writeLock.lock();
     try {
-      out.println(JacksonObjMapper.get().writeValueAsString(msg));
+      frame.writeTo(out);
+      out.flush();
     } catch (Exception e) {
-      logger.error("Failed to send message: {}", msg.toString());
+      logger.error("Failed to send frame to client {}", id, e);
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  /** Closes the socket, which also ends {@link #run()}. */
+  @Override
+  public void disconnect() {
+    try {
+      socket.close();
+    } catch (IOException e) {
+      logger.error("Error closing socket for client {}", id, e);
     }
   }
 
@@ -52,7 +77,7 @@ public class ClientSocket implements Runnable {
         Message msg;
         try {
           msg = JacksonObjMapper.get().readValue(line, Message.class);
-          eventBus.post(new ClientMessage(msg, this));
+          sink.publish(msg, this);
         } catch (Exception e) {
           logger.error("Failed to process received data: {}\n", line, e);
         }
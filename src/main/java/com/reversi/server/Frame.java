@@ -0,0 +1,64 @@
+package com.reversi.server;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.reversi.common.JacksonObjMapper;
+import com.reversi.common.Message;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * A message encoded once into its newline-terminated wire form.
+ * <p>
+ * A frame is immutable, so the same instance can be handed to any number of
+ * connections; this is how broadcasts avoid serializing the message again for
+ * every recipient.
+ * </p>
+ */
+public final class Frame {
+  private final byte[] bytes;
+
+  private Frame(byte[] bytes) { this.bytes = bytes; }
+
+  /**
+   * Serializes a message to JSON followed by a newline.
+   *
+   * @param msg the message to encode
+   * @return the encoded frame
+   * @throws JsonProcessingException if the message cannot be serialized
+   */
+  public static Frame encode(Message msg) throws JsonProcessingException {
+    byte[] json = JacksonObjMapper.get().writeValueAsBytes(msg);
+    byte[] bytes = Arrays.copyOf(json, json.length + 1);
+    bytes[json.length] = '\n';
+    return new Frame(bytes);
+  }
+
+  /**
+   * Returns the length of the frame in bytes, including the newline.
+   *
+   * @return the frame length
+   */
+  public int length() { return bytes.length; }
+
+  /**
+   * Returns a read-only view of the frame. Each call returns a new view with
+   * its own position, all sharing the same underlying bytes.
+   *
+   * @return a read-only buffer positioned at the start of the frame
+   */
+  public ByteBuffer buffer() {
+    return ByteBuffer.wrap(bytes).asReadOnlyBuffer();
+  }
+
+  /**
+   * Writes the whole frame to a stream.
+   *
+   * @param out the destination stream
+   * @throws IOException if writing fails
+   */
+  public void writeTo(OutputStream out) throws IOException {
+    out.write(bytes);
+  }
+}
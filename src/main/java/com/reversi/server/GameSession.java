@@ -7,16 +7,29 @@ import com.reversi.common.Message;
 import com.reversi.common.Player;
 import com.reversi.common.ReversiGame;
 import com.reversi.common.Ticker;
+import com.reversi.server.events.GameSessionEnded;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
 
 public class GameSession {
   private ReversiGame game;
-  private ClientSocket blackPlayer;
-  private ClientSocket whitePlayer;
+  private ClientConnection blackPlayer;
+  private ClientConnection whitePlayer;
   private boolean gameOver = false;
 
+  // Guards game and gameOver. A ReentrantLock rather than a monitor so that a
+  // virtual thread waiting for it does not pin its carrier thread.
+  private final ReentrantLock lock = new ReentrantLock();
+
   private FischerClock clock;
 
-  public GameSession(ClientSocket black, ClientSocket white) {
+  // Receives a GameSessionEnded event when the game is over; may be null.
+  private volatile EventBus hubEventBus;
+  // Delivers this session's own messages, such as GameOver.
+  private volatile BiConsumer<ClientConnection, Message> sender =
+      ClientConnection::sendMessage;
+
+  public GameSession(ClientConnection black, ClientConnection white) {
     this.game = new ReversiGame();
     this.blackPlayer = black;
     this.whitePlayer = white;
@@ -36,34 +49,91 @@ public class GameSession {
     this.clock.start();
   }
 
-  private synchronized void onTimeout() {
-    if (gameOver)
-      return;
-    gameOver = true;
-    // The current player has timed out – they lose.
-    Player current = game.getCurrentPlayer();
+  /**
+   * Sets the event bus that is notified with a {@link GameSessionEnded} event
+   * once this game is over.
+   *
+   * @param eventBus the event bus of the owning hub
+   */
+  public void setEventBus(EventBus eventBus) { this.hubEventBus = eventBus; }
+
+  /**
+   * Routes the messages this session sends by itself through the hub, so
+   * they stay in order with the hub's own messages to the same clients.
+   *
+   * @param sender delivers a message to a client
+   */
+  void setSender(BiConsumer<ClientConnection, Message> sender) {
+    this.sender = sender;
+  }
+
+  private void send(ClientConnection client, Message msg) {
+    sender.accept(client, msg);
+  }
+
+  private void onTimeout() {
+    Player current;
+    lock.lock();
+    try {
+      if (gameOver)
+        return;
+      gameOver = true;
+      current = game.getCurrentPlayer();
+    } finally {
+      lock.unlock();
+    }
+
+    // The current player has timed out – they lose. Messages are sent outside
+    // the lock since they write to the client sockets.
     if (current == Player.Black) {
-      blackPlayer.sendMessage(
-          new Message(new Message.GameOver("Time expired, you lose")));
-      whitePlayer.sendMessage(
-          new Message(new Message.GameOver("Opponent timed out, you win")));
+      send(blackPlayer,
+           new Message(new Message.GameOver("Time expired, you lose")));
+      send(whitePlayer,
+           new Message(new Message.GameOver("Opponent timed out, you win")));
     } else if (current == Player.White) {
-      whitePlayer.sendMessage(
-          new Message(new Message.GameOver("Time expired, you lose")));
-      blackPlayer.sendMessage(
-          new Message(new Message.GameOver("Opponent timed out, you win")));
+      send(whitePlayer,
+           new Message(new Message.GameOver("Time expired, you lose")));
+      send(blackPlayer,
+           new Message(new Message.GameOver("Opponent timed out, you win")));
+    }
+
+    notifyEnded();
+  }
+
+  /**
+   * Tells both players the final score of a game that ended on the board.
+   */
+  private void onBoardFinished(int black, int white) {
+    String score = black + "-" + white;
+    if (black == white) {
+      Message draw = new Message(new Message.GameOver("Draw " + score));
+      send(blackPlayer, draw);
+      send(whitePlayer, draw);
+    } else {
+      boolean blackWins = black > white;
+      send(blackPlayer, new Message(new Message.GameOver(
+                            (blackWins ? "You win " : "You lose ") + score)));
+      send(whitePlayer, new Message(new Message.GameOver(
+                            (blackWins ? "You lose " : "You win ") + score)));
     }
+    notifyEnded();
+  }
+
+  private void notifyEnded() {
+    EventBus bus = hubEventBus;
+    if (bus != null)
+      bus.post(new GameSessionEnded(this));
   }
 
   // Helper method to check if a client is part of this game.
-  public boolean containsClient(ClientSocket handler) {
+  public boolean containsClient(ClientConnection handler) {
     return handler.equals(blackPlayer) || handler.equals(whitePlayer);
   }
 
   public int getBlackId() { return blackPlayer.getClientId(); }
   public int getWhiteId() { return whitePlayer.getClientId(); }
 
-  public Player getClientPlayer(ClientSocket handler) {
+  public Player getClientPlayer(ClientConnection handler) {
     if (handler == blackPlayer)
       return Player.Black;
     else if (handler == whitePlayer)
@@ -72,20 +142,72 @@ public class GameSession {
       return Player.None;
   }
 
-  public synchronized boolean makeMove(int row, int col, ClientSocket client) {
-    if (gameOver)
-      return false;
-    Player player = getClientPlayer(client);
-    if (player != game.getCurrentPlayer())
-      return false;
+  /**
+   * Plays a move for a client. If the opponent then has no move, the turn
+   * passes back to the mover; if neither side can move, the game ends and
+   * both players are told the score.
+   *
+   * @return {@code true} if the move was legal and played
+   */
+  public boolean makeMove(int row, int col, ClientConnection client) {
+    int black, white;
+    lock.lock();
+    try {
+      if (gameOver)
+        return false;
+      Player player = getClientPlayer(client);
+      if (player != game.getCurrentPlayer())
+        return false;
 
-    boolean moveMade = game.makeMove(row, col);
-    if (moveMade)
+      if (!game.makeMove(row, col))
+        return false;
       clock.swap();
-    return moveMade;
+      if (game.getValidMoveMask() != 0)
+        return true;
+      if (game.getBoard().getValidMoveMask(player) != 0) {
+        game.pass();
+        clock.swap();
+        return true;
+      }
+      gameOver = true;
+      clock.stop();
+      black = Long.bitCount(game.getBoard().getDiscs(Player.Black));
+      white = Long.bitCount(game.getBoard().getDiscs(Player.White));
+    } finally {
+      lock.unlock();
+    }
+    onBoardFinished(black, white);
+    return true;
+  }
+
+  /**
+   * Returns whether the game has ended, on the board or on time.
+   */
+  public boolean isGameOver() {
+    lock.lock();
+    try {
+      return gameOver;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Returns a copy of the game taken under the session lock, for readers
+   * such as bots that must not see a move half-applied.
+   *
+   * @return a copy of the current game
+   */
+  public ReversiGame copyGame() {
+    lock.lock();
+    try {
+      return game.copy();
+    } finally {
+      lock.unlock();
+    }
   }
 
-  public boolean isValidMove(int row, int col, ClientSocket client) {
+  public boolean isValidMove(int row, int col, ClientConnection client) {
     Player player = getClientPlayer(client);
     if (player != game.getCurrentPlayer())
       return false;
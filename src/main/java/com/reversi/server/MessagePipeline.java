@@ -0,0 +1,244 @@
+package com.reversi.server;
+
+import com.reversi.common.Message;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs the server core on one thread, fed by a {@link RingBuffer}.
+ * <p>
+ * Client readers publish decoded messages into the inbound ring instead of
+ * posting events. A single core thread takes them in order and applies them
+ * to {@link SessionHub}; as it is the only thread mutating lobby and session
+ * state for client messages, the hub's monitors stay uncontended. Replies and
+ * broadcasts are queued on a second ring, where an encoder thread turns each
+ * message into a {@link Frame} once, so slow encoding never holds up the
+ * core.
+ * </p>
+ * <p>
+ * The encoder does not write either. It appends each frame to a queue of the
+ * recipient's, which the transport's writer executor drains, one task per
+ * client at a time, so a socket that blocks only holds up its own client. A
+ * client that lets more than {@link #MAX_QUEUED_BYTES} pile up is
+ * disconnected.
+ * </p>
+ */
+public class MessagePipeline implements MessageSink, AutoCloseable {
+  private static final Logger logger =
+      LoggerFactory.getLogger(MessagePipeline.class);
+
+  /** Unwritten bytes after which a client is disconnected as too slow. */
+  static final long MAX_QUEUED_BYTES = 1024 * 1024;
+  // Messages between two sweeps of idle outlets.
+  private static final int PRUNE_INTERVAL = 1024;
+
+  private static final class Inbound {
+    Message message;
+    ClientConnection from;
+  }
+
+  private static final class Outbound {
+    Message message;
+    // Either one recipient or several.
+    ClientConnection recipient;
+    Iterable<? extends ClientConnection> recipients;
+  }
+
+  /** The frames waiting to be written to one client, in order. */
+  private final class Outlet implements Runnable {
+    final ClientConnection client;
+    final Queue<Frame> frames = new ConcurrentLinkedQueue<>();
+    // Bytes of the queued frames.
+    final AtomicLong bytes = new AtomicLong();
+    // Set while a drain is scheduled or running; there is at most one, so
+    // frames are written in order.
+    final AtomicBoolean scheduled = new AtomicBoolean();
+    // Read and written by the encoder only.
+    boolean disconnected;
+
+    Outlet(ClientConnection client) { this.client = client; }
+
+    /** Drains the queue; runs on the writer executor. */
+    @Override
+    public void run() {
+      do {
+        Frame frame;
+        while ((frame = frames.poll()) != null) {
+          client.sendFrame(frame);
+          bytes.addAndGet(-frame.length());
+        }
+        scheduled.set(false);
+        // The encoder may have queued a frame just before the flag cleared.
+      } while (!frames.isEmpty() && scheduled.compareAndSet(false, true));
+    }
+
+    boolean isIdle() { return !scheduled.get() && frames.isEmpty(); }
+  }
+
+  private final RingBuffer<Inbound> inbound;
+  private final RingBuffer<Outbound> outbound;
+  private final BiConsumer<Message, ClientConnection> handler;
+  private final Executor writers;
+  // Outlets of the clients written to lately; encoder thread only.
+  private final Map<ClientConnection, Outlet> outlets = new HashMap<>();
+  private int sincePrune;
+  private final Thread core;
+  private final Thread encoder;
+
+  /**
+   * Creates and starts a pipeline.
+   *
+   * @param capacity the number of slots in each ring; a power of two
+   * @param handler  applies a client message to the server state; called on
+   *     the core thread only
+   * @param writers  runs the tasks writing frames to clients; they block as
+   *     long as the connection's {@code sendFrame} does
+   */
+  MessagePipeline(int capacity, BiConsumer<Message, ClientConnection> handler,
+                  Executor writers) {
+    this.handler = handler;
+    this.writers = writers;
+    inbound = new RingBuffer<>(capacity, Inbound::new);
+    outbound = new RingBuffer<>(capacity, Outbound::new);
+    core = new Thread(() -> inbound.run(this::handle), "hub-core");
+    encoder = new Thread(() -> outbound.run(this::write), "hub-encoder");
+    core.setDaemon(true);
+    encoder.setDaemon(true);
+    core.start();
+    encoder.start();
+  }
+
+  @Override
+  public void publish(Message msg, ClientConnection from) {
+    // The core may produce client messages itself, e.g. a bot answering
+    // instantly; queueing them could wait forever on a full ring.
+    if (inbound.isConsumerThread()) {
+      handler.accept(msg, from);
+      return;
+    }
+    long seq = inbound.claim();
+    Inbound slot = inbound.get(seq);
+    slot.message = msg;
+    slot.from = from;
+    inbound.publish(seq);
+  }
+
+  /**
+   * Queues a message for one client.
+   *
+   * @param recipient the client
+   * @param msg       the message
+   */
+  void send(ClientConnection recipient, Message msg) {
+    long seq = outbound.claim();
+    Outbound slot = outbound.get(seq);
+    slot.message = msg;
+    slot.recipient = recipient;
+    outbound.publish(seq);
+  }
+
+  /**
+   * Queues a message for several clients; it is encoded once.
+   *
+   * @param msg        the message
+   * @param recipients the clients; null entries are skipped. The iterable
+   *     must not change afterwards.
+   */
+  void broadcast(Message msg, Iterable<? extends ClientConnection> recipients) {
+    long seq = outbound.claim();
+    Outbound slot = outbound.get(seq);
+    slot.message = msg;
+    slot.recipients = recipients;
+    outbound.publish(seq);
+  }
+
+  private void handle(Inbound slot) {
+    Message msg = slot.message;
+    ClientConnection from = slot.from;
+    slot.message = null;
+    slot.from = null;
+    handler.accept(msg, from);
+  }
+
+  private void write(Outbound slot) {
+    Message msg = slot.message;
+    ClientConnection recipient = slot.recipient;
+    Iterable<? extends ClientConnection> recipients = slot.recipients;
+    slot.message = null;
+    slot.recipient = null;
+    slot.recipients = null;
+
+    Frame frame;
+    try {
+      frame = Frame.encode(msg);
+    } catch (Exception e) {
+      logger.error("Failed to encode message: {}", msg, e);
+      return;
+    }
+    if (recipient != null) {
+      deliver(recipient, frame);
+    } else {
+      for (ClientConnection client : recipients) {
+        if (client != null)
+          deliver(client, frame);
+      }
+    }
+    if (++sincePrune == PRUNE_INTERVAL) {
+      sincePrune = 0;
+      prune();
+    }
+  }
+
+  /** Queues a frame for a client and makes sure a writer drains it. */
+  private void deliver(ClientConnection client, Frame frame) {
+    Outlet outlet = outlets.computeIfAbsent(client, Outlet::new);
+    if (outlet.disconnected)
+      return;
+    if (outlet.bytes.addAndGet(frame.length()) > MAX_QUEUED_BYTES) {
+      logger.warn("Client {} is not reading; disconnecting",
+                  client.getClientId());
+      outlet.disconnected = true;
+      outlet.frames.clear();
+      client.disconnect();
+      return;
+    }
+    outlet.frames.add(frame);
+    if (outlet.scheduled.compareAndSet(false, true)) {
+      try {
+        writers.execute(outlet);
+      } catch (RejectedExecutionException e) {
+        logger.error("No writer for client {}", client.getClientId(), e);
+      }
+    }
+  }
+
+  /**
+   * Forgets outlets with nothing left to write. An outlet whose drain has
+   * cleared its flag has written its last frame, so a new outlet for the
+   * same client cannot overtake it.
+   */
+  private void prune() {
+    Iterator<Outlet> it = outlets.values().iterator();
+    while (it.hasNext()) {
+      if (it.next().isIdle())
+        it.remove();
+    }
+  }
+
+  /** Stops both threads; queued messages are dropped. */
+  @Override
+  public void close() {
+    inbound.close();
+    outbound.close();
+  }
+}
@@ -0,0 +1,29 @@
+package com.reversi.server;
+
+import com.reversi.common.EventBus;
+import com.reversi.common.Message;
+
+/**
+ * Receives the messages decoded from clients, on the threads that read them.
+ */
+@FunctionalInterface
+public interface MessageSink {
+  /**
+   * Hands over one message.
+   *
+   * @param msg  the decoded message
+   * @param from the client that sent it
+   */
+  void publish(Message msg, ClientConnection from);
+
+  /**
+   * Returns a sink that posts every message to an event bus as a
+   * {@link ClientMessage}.
+   *
+   * @param eventBus the bus to post to
+   * @return the sink
+   */
+  static MessageSink of(EventBus eventBus) {
+    return (msg, from) -> eventBus.post(new ClientMessage(msg, from));
+  }
+}
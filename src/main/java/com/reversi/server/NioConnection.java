@@ -0,0 +1,172 @@
+package com.reversi.server;
+
+import com.reversi.common.JacksonObjMapper;
+import com.reversi.common.Message;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A client connection served by one of the {@link NioServer} event loops.
+ * <p>
+ * Incoming bytes are split into newline-delimited frames, each of which is
+ * decoded into a {@link Message} and handed to a {@link MessageSink}, just
+ * like {@link ClientSocket} does. Outgoing messages
+ * are queued and written by the owning event loop whenever the channel is
+ * writable, so {@link #sendMessage(Message)} never blocks the caller. A
+ * client that lets more than {@link #MAX_OUTBOUND_BYTES} pile up is too slow
+ * to keep up and is disconnected.
+ * </p>
+ * <p>
+ * All methods except {@link #sendFrame(Frame)} and {@link #disconnect()}
+ * must be called on the event loop thread.
+ * </p>
+ */
+public class NioConnection implements ClientConnection {
+  private static final Logger logger =
+      LoggerFactory.getLogger(NioConnection.class);
+
+  /** Frames longer than this are rejected and the connection is closed. */
+  static final int MAX_FRAME_BYTES = 64 * 1024;
+  /** Unsent bytes after which a client is disconnected as too slow. */
+  static final long MAX_OUTBOUND_BYTES = 1024 * 1024;
+
+  private final int id;
+  private final SocketChannel channel;
+  private final NioServer.EventLoop loop;
+  private final MessageSink sink;
+  private final Runnable onClose;
+  private SelectionKey key;
+  // Set once by close; frames sent afterwards are dropped.
+  private volatile boolean closed;
+
+  // Bytes of a frame whose terminating newline has not arrived yet.
+  private byte[] partial = new byte[256];
+  private int partialLength = 0;
+
+  private final Queue<ByteBuffer> outbound = new ConcurrentLinkedQueue<>();
+  // Bytes of the frames in the outbound queue, including written parts.
+  private final AtomicLong outboundBytes = new AtomicLong();
+
+  /**
+   * @param onClose run once on the event loop when the connection closes
+   */
+  NioConnection(int id, SocketChannel channel, NioServer.EventLoop loop,
+                MessageSink sink, Runnable onClose) {
+    this.id = id;
+    this.channel = channel;
+    this.loop = loop;
+    this.sink = sink;
+    this.onClose = onClose;
+  }
+
+  void setKey(SelectionKey key) { this.key = key; }
+
+  @Override
+  public int getClientId() {
+    return id;
+  }
+
+  @Override
+  public void sendFrame(Frame frame) {
+    if (closed)
+      return;
+    if (outboundBytes.addAndGet(frame.length()) > MAX_OUTBOUND_BYTES) {
+      outboundBytes.addAndGet(-frame.length());
+      logger.warn("Client {} is not reading; disconnecting", id);
+      loop.execute(this::close);
+      return;
+    }
+    outbound.add(frame.buffer());
+    loop.execute(this::enableWrite);
+  }
+
+  @Override
+  public void disconnect() {
+    loop.execute(this::close);
+  }
+
+  /**
+   * Consumes the bytes read into {@code buffer}, dispatching every complete
+   * frame. The buffer must be in read mode (flipped).
+   */
+  void onRead(ByteBuffer buffer) throws IOException {
+    while (buffer.hasRemaining()) {
+      byte b = buffer.get();
+      if (b == '\n') {
+        dispatchFrame();
+        partialLength = 0;
+        continue;
+      }
+      if (partialLength == MAX_FRAME_BYTES)
+        throw new IOException("Frame from client " + id + " exceeds " +
+                              MAX_FRAME_BYTES + " bytes");
+      if (partialLength == partial.length)
+        partial = Arrays.copyOf(
+            partial, Math.min(partial.length * 2, MAX_FRAME_BYTES));
+      partial[partialLength++] = b;
+    }
+  }
+
+  private void dispatchFrame() {
+    int length = partialLength;
+    if (length > 0 && partial[length - 1] == '\r')
+      length--;
+    if (length == 0)
+      return;
+    String line = new String(partial, 0, length, StandardCharsets.UTF_8);
+    logger.info("Received from client {}: {}", id, line);
+    try {
+      Message msg = JacksonObjMapper.get().readValue(line, Message.class);
+      sink.publish(msg, this);
+    } catch (Exception e) {
+      logger.error("Failed to process received data: {}\n", line, e);
+    }
+  }
+
+  /**
+   * Writes as much of the outbound queue as the socket accepts. Write
+   * interest stays registered only while data is left over.
+   */
+  void onWrite() throws IOException {
+    ByteBuffer head;
+    while ((head = outbound.peek()) != null) {
+      channel.write(head);
+      if (head.hasRemaining())
+        return;
+      outbound.poll();
+      outboundBytes.addAndGet(-head.limit());
+    }
+    if (key.isValid())
+      key.interestOps(SelectionKey.OP_READ);
+  }
+
+  private void enableWrite() {
+    if (key != null && key.isValid())
+      key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+  }
+
+  /** Closes the channel and lets the hub forget the client; idempotent. */
+  void close() {
+    if (closed)
+      return;
+    closed = true;
+    if (key != null)
+      key.cancel();
+    outbound.clear();
+    try {
+      channel.close();
+    } catch (IOException e) {
+      logger.error("Error closing channel for client {}", id, e);
+    }
+    onClose.run();
+  }
+}
@@ -0,0 +1,188 @@
+package com.reversi.server;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.IntSupplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A non-blocking server transport built on {@link Selector}.
+ * <p>
+ * The calling thread accepts connections and hands each one to a small, fixed
+ * set of event loop threads in round-robin order. An idle connection then costs
+ * a selection key and a few small buffers instead of a platform thread.
+ * Decoded messages are posted to the same {@link SessionHub} event bus that
+ * {@link ClientSocket} uses, so the rest of the server is unaware of which
+ * transport is in use.
+ * </p>
+ */
+public class NioServer {
+  private static final Logger logger = LoggerFactory.getLogger(NioServer.class);
+
+  private final int port;
+  private final SessionHub session;
+  private final IntSupplier idGenerator;
+  private final EventLoop[] loops;
+
+  /**
+   * @param port        the TCP port to listen on
+   * @param session     the hub receiving client events
+   * @param idGenerator supplies a fresh client id for each connection
+   * @param loopCount   the number of event loop threads
+   */
+  public NioServer(int port, SessionHub session, IntSupplier idGenerator,
+                   int loopCount) {
+    this.port = port;
+    this.session = session;
+    this.idGenerator = idGenerator;
+    this.loops = new EventLoop[loopCount];
+  }
+
+  /**
+   * Starts the event loops and accepts connections on the calling thread until
+   * the server socket fails.
+   *
+   * @throws IOException if the server socket cannot be opened
+   */
+  public void run() throws IOException {
+    for (int i = 0; i < loops.length; i++) {
+      loops[i] = new EventLoop("nio-loop-" + i);
+      loops[i].start();
+    }
+
+    try (ServerSocketChannel server = ServerSocketChannel.open()) {
+      server.bind(new InetSocketAddress(port));
+      logger.info("NIO server started on port {} with {} event loops", port,
+                  loops.length);
+      int next = 0;
+      while (true) {
+        SocketChannel channel = server.accept();
+        channel.configureBlocking(false);
+        int clientId = idGenerator.getAsInt();
+        EventLoop loop = loops[next];
+        next = (next + 1) % loops.length;
+
+        NioConnection connection =
+            new NioConnection(clientId, channel, loop, session.getMessageSink(),
+                              () -> session.removeClient(clientId));
+        loop.execute(() -> {
+          loop.register(connection, channel);
+          session.registerClient(connection);
+        });
+        logger.info("Client connected. Assigned client ID: {}", clientId);
+      }
+    } finally {
+      for (EventLoop loop : loops) {
+        if (loop != null)
+          loop.shutdown();
+      }
+    }
+  }
+
+  /**
+   * A single selector thread serving many connections. Work from other
+   * threads (registering channels, enabling write interest) is queued and run
+   * on the loop thread after waking the selector.
+   */
+  static class EventLoop extends Thread {
+    private final Selector selector;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    // One read buffer per loop, shared by all of its connections.
+    private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(16 * 1024);
+    private volatile boolean running = true;
+
+    EventLoop(String name) throws IOException {
+      super(name);
+      this.selector = Selector.open();
+      setDaemon(true);
+    }
+
+    /**
+     * Schedules a task on the loop thread.
+     *
+     * @param task the task to run
+     */
+    void execute(Runnable task) {
+      tasks.add(task);
+      selector.wakeup();
+    }
+
+    void register(NioConnection connection, SocketChannel channel) {
+      try {
+        SelectionKey key =
+            channel.register(selector, SelectionKey.OP_READ, connection);
+        connection.setKey(key);
+      } catch (IOException e) {
+        logger.error("Failed to register client {}",
+                     connection.getClientId(), e);
+        connection.close();
+      }
+    }
+
+    void shutdown() {
+      running = false;
+      selector.wakeup();
+    }
+
+    @Override
+    public void run() {
+      while (running) {
+        try {
+          selector.select();
+        } catch (IOException e) {
+          logger.error("Selector failed on {}", getName(), e);
+          break;
+        }
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+          task.run();
+        }
+
+        Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+        while (it.hasNext()) {
+          SelectionKey key = it.next();
+          it.remove();
+          handle(key);
+        }
+      }
+      try {
+        selector.close();
+      } catch (IOException e) {
+        logger.error("Error closing selector on {}", getName(), e);
+      }
+    }
+
+    private void handle(SelectionKey key) {
+      NioConnection connection = (NioConnection)key.attachment();
+      try {
+        if (key.isValid() && key.isReadable()) {
+          readBuffer.clear();
+          int n = ((SocketChannel)key.channel()).read(readBuffer);
+          if (n < 0) {
+            logger.info("Client {} disconnected.", connection.getClientId());
+            connection.close();
+            return;
+          }
+          readBuffer.flip();
+          connection.onRead(readBuffer);
+        }
+        if (key.isValid() && key.isWritable()) {
+          connection.onWrite();
+        }
+      } catch (IOException e) {
+        logger.error("Connection with client {} lost.",
+                     connection.getClientId(), e);
+        connection.close();
+      }
+    }
+  }
+}
@@ -0,0 +1,155 @@
+package com.reversi.server;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A bounded queue of pre-allocated, reusable slots for many producers and a
+ * single consumer, in the style of the LMAX Disruptor.
+ * <p>
+ * A producer claims a sequence number with {@link #claim()}, fills in the
+ * slot returned by {@link #get(long)} and makes it visible with
+ * {@link #publish(long)}. Claiming is one atomic increment; when the ring is
+ * full the producer waits for the consumer. The consumer thread, running
+ * {@link #run(Consumer)}, handles slots strictly in sequence order, spinning
+ * briefly and then parking while the next slot is not yet published. Slots
+ * are never reallocated, so steady-state traffic allocates nothing.
+ * </p>
+ *
+ * @param <S> the type of the slots
+ */
+final class RingBuffer<S> {
+  private static final Logger logger =
+      LoggerFactory.getLogger(RingBuffer.class);
+
+  private static final VarHandle AVAILABLE =
+      MethodHandles.arrayElementVarHandle(int[].class);
+  private static final int SPINS = 200;
+
+  private final Object[] slots;
+  private final int mask;
+  private final int shift;
+  // The round (sequence / capacity) whose slot contents are published, per
+  // index; lets producers publish out of order without a shared cursor.
+  private final int[] available;
+  private final AtomicLong next = new AtomicLong();
+  // The last sequence the consumer has finished with.
+  private volatile long consumed = -1;
+  private volatile Thread consumer;
+  private volatile boolean consumerParked;
+  private volatile boolean closed;
+
+  /**
+   * @param capacity the number of slots; a power of two
+   * @param factory  creates the slots
+   */
+  RingBuffer(int capacity, Supplier<S> factory) {
+    if (capacity < 1 || Integer.bitCount(capacity) != 1)
+      throw new IllegalArgumentException("capacity must be a power of two");
+    slots = new Object[capacity];
+    for (int i = 0; i < capacity; i++)
+      slots[i] = factory.get();
+    mask = capacity - 1;
+    shift = Integer.numberOfTrailingZeros(capacity);
+    available = new int[capacity];
+    Arrays.fill(available, -1);
+  }
+
+  /**
+   * Claims the next slot, waiting while the ring is full.
+   *
+   * @return the sequence number of the claimed slot
+   */
+  long claim() {
+    long seq = next.getAndIncrement();
+    long wrapPoint = seq - slots.length;
+    for (int spins = 0; consumed < wrapPoint && !closed; spins++) {
+      if (spins < SPINS)
+        Thread.onSpinWait();
+      else
+        LockSupport.parkNanos(10_000);
+    }
+    return seq;
+  }
+
+  /**
+   * Returns the slot of a sequence number.
+   *
+   * @param seq a claimed sequence number
+   * @return the slot
+   */
+  @SuppressWarnings("unchecked")
+  S get(long seq) {
+    return (S)slots[(int)seq & mask];
+  }
+
+  /**
+   * Makes a filled-in slot visible to the consumer.
+   *
+   * @param seq the claimed sequence number
+   */
+  void publish(long seq) {
+    AVAILABLE.setVolatile(available, (int)seq & mask, (int)(seq >>> shift));
+    if (consumerParked)
+      LockSupport.unpark(consumer);
+  }
+
+  /**
+   * Handles published slots in order on the calling thread until
+   * {@link #close()} is called. Handler failures are logged and skipped.
+   *
+   * @param handler processes one slot and clears it for reuse
+   */
+  void run(Consumer<? super S> handler) {
+    consumer = Thread.currentThread();
+    long seq = consumed + 1;
+    while (!closed) {
+      int index = (int)seq & mask;
+      int round = (int)(seq >>> shift);
+      if (!awaitPublished(index, round))
+        continue;
+      try {
+        handler.accept(get(seq));
+      } catch (RuntimeException e) {
+        logger.error("Ring buffer handler failed", e);
+      }
+      consumed = seq++;
+    }
+  }
+
+  /** Returns whether the caller is the consumer thread. */
+  boolean isConsumerThread() { return Thread.currentThread() == consumer; }
+
+  /**
+   * Waits a little for a slot to be published; returns whether it was.
+   */
+  private boolean awaitPublished(int index, int round) {
+    for (int spins = 0; spins < SPINS; spins++) {
+      if ((int)AVAILABLE.getAcquire(available, index) == round)
+        return true;
+      Thread.onSpinWait();
+    }
+    consumerParked = true;
+    // Checked again after announcing the park, so a producer publishing in
+    // between either is seen here or sees the flag and unparks us.
+    if ((int)AVAILABLE.getVolatile(available, index) != round && !closed)
+      LockSupport.park(this);
+    consumerParked = false;
+    return (int)AVAILABLE.getAcquire(available, index) == round;
+  }
+
+  /** Stops the consumer and releases waiting producers. */
+  void close() {
+    closed = true;
+    Thread t = consumer;
+    if (t != null)
+      LockSupport.unpark(t);
+  }
+}
@@ -1,41 +1,161 @@
 package com.reversi.server;
 
+import com.reversi.common.EventBus;
+import com.reversi.engine.OpeningBook;
 import java.io.IOException;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.nio.file.Path;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicInteger;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Server entry point.
+ * <p>
+ * Options:
+ * <ul>
+ * <li>{@code --transport=threads} (default) serves every client with a
+ * blocking {@link ClientSocket} on its own platform thread.</li>
+ * <li>{@code --transport=virtual} runs the same blocking {@link ClientSocket}
+ * handlers on virtual threads.</li>
+ * <li>{@code --transport=nio} serves all clients from a few {@link NioServer}
+ * event loops.</li>
+ * <li>{@code --event-loops=N} sets the number of NIO event loops (default:
+ * available processors).</li>
+ * <li>{@code --bot-threads=N} sets the number of threads computing the moves
+ * of server-side bots (default: available processors).</li>
+ * <li>{@code --book=<file>} gives bots an {@link OpeningBook}.</li>
+ * <li>{@code --bot-playouts=N} makes bots Monte Carlo players limited to N
+ * playouts per move.</li>
+ * <li>{@code --analysis-threads=N} sets the number of threads answering
+ * clients' analysis requests (default: half the available processors).</li>
+ * <li>{@code --event-partitions=N} handles client messages and game events on
+ * N threads, partitioned by client and game, instead of on the thread that
+ * received them (default: 0, on the receiving thread).</li>
+ * <li>{@code --pipeline=N} applies client messages on a single core thread
+ * fed by a {@link MessagePipeline} ring of N slots (a power of two), with
+ * outbound encoding on a separate thread. Replies are written by the
+ * transport: on the client executor for blocking sockets, and by the event
+ * loops for NIO.</li>
+ * </ul>
+ * </p>
+ */
 public class ServerMain {
   private static final Logger logger =
       LoggerFactory.getLogger(ServerMain.class);
   public static final int PORT = 5000;
 
-  public static void main(String[] args) { new ServerMain().startServer(); }
+  public static void main(String[] args) {
+    String transport = "threads";
+    int eventLoops = Runtime.getRuntime().availableProcessors();
+    int botThreads = Runtime.getRuntime().availableProcessors();
+    String book = null;
+    long botPlayouts = 0;
+    int analysisThreads =
+        Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+    int eventPartitions = 0;
+    int pipelineSlots = 0;
+    for (String arg : args) {
+      if (arg.startsWith("--transport=")) {
+        transport = arg.substring("--transport=".length());
+      } else if (arg.startsWith("--event-loops=")) {
+        eventLoops = Integer.parseInt(arg.substring("--event-loops=".length()));
+      } else if (arg.startsWith("--bot-threads=")) {
+        botThreads = Integer.parseInt(arg.substring("--bot-threads=".length()));
+      } else if (arg.startsWith("--bot-playouts=")) {
+        botPlayouts = Long.parseLong(arg.substring("--bot-playouts=".length()));
+      } else if (arg.startsWith("--analysis-threads=")) {
+        analysisThreads =
+            Integer.parseInt(arg.substring("--analysis-threads=".length()));
+      } else if (arg.startsWith("--event-partitions=")) {
+        eventPartitions =
+            Integer.parseInt(arg.substring("--event-partitions=".length()));
+      } else if (arg.startsWith("--pipeline=")) {
+        pipelineSlots = Integer.parseInt(arg.substring("--pipeline=".length()));
+      } else if (arg.startsWith("--book=")) {
+        book = arg.substring("--book=".length());
+      } else {
+        logger.warn("Ignoring unknown option: {}", arg);
+      }
+    }
+
+    BotEngine botEngine = new BotEngine(botThreads, 1024);
+    if (book != null) {
+      try {
+        botEngine.setOpeningBook(OpeningBook.open(Path.of(book)));
+      } catch (IOException e) {
+        logger.error("Cannot open opening book {}", book, e);
+      }
+    }
+
+    EventBus eventBus = eventPartitions > 0 ? new EventBus(eventPartitions)
+                                            : new EventBus();
+    SessionHub hub = new SessionHub(
+        botEngine, new AnalysisService(analysisThreads, 64), eventBus);
+    ExecutorService clientThreads;
+    switch (transport) {
+    case "nio":
+      clientThreads = null;
+      break;
+    case "threads":
+      clientThreads = Executors.newCachedThreadPool();
+      break;
+    case "virtual":
+      clientThreads = Executors.newVirtualThreadPerTaskExecutor();
+      break;
+    default:
+      logger.error("Unknown transport: {}", transport);
+      return;
+    }
+    if (pipelineSlots > 0) {
+      // NIO connections only queue frames, so they are written inline.
+      hub.startPipeline(pipelineSlots, clientThreads != null ? clientThreads
+                                                             : Runnable::run);
+    }
+    hub.setBotPlayouts(botPlayouts);
+    ServerMain server = new ServerMain(hub);
+    if (clientThreads == null)
+      server.startNioServer(eventLoops);
+    else
+      server.startServer(clientThreads);
+  }
 
-  // ExecutorService for managing client tasks
-  private final ExecutorService clientThreadPool =
-      Executors.newCachedThreadPool();
   // SessionHub takes care of all server-client messaging and game
   // state updates.
-  private final SessionHub session = new SessionHub();
+  private final SessionHub session;
+
+  public ServerMain() { this(new SessionHub()); }
+
+  public ServerMain(SessionHub session) { this.session = session; }
 
   private static final AtomicInteger clientCounter = new AtomicInteger(0);
   private int genClientId() { return clientCounter.incrementAndGet(); }
 
-  public void startServer() {
+  /**
+   * Accepts connections and runs one blocking {@link ClientSocket} handler per
+   * client on the given executor.
+   *
+   * @param clientThreadPool the executor managing client tasks
+   */
+  public void startServer(ExecutorService clientThreadPool) {
     try (ServerSocket serverSocket = new ServerSocket(PORT)) {
       logger.info("Server started on port {}", PORT);
       while (true) {
         Socket socket = serverSocket.accept();
         int clientId = genClientId();
         ClientSocket handler =
-            new ClientSocket(clientId, socket, session.getEventBus());
+            new ClientSocket(clientId, socket, session.getMessageSink());
         session.registerClient(handler);
-        clientThreadPool.submit(handler);
+        clientThreadPool.submit(() -> {
+          try {
+            handler.run();
+          } finally {
+            session.removeClient(clientId);
+          }
+        });
         logger.info("Client connected. Assigned client ID: {}", clientId);
       }
     } catch (IOException e) {
@@ -44,4 +164,12 @@ public class ServerMain {
       clientThreadPool.shutdown();
     }
   }
+
+  public void startNioServer(int eventLoops) {
+    try {
+      new NioServer(PORT, session, this::genClientId, eventLoops).run();
+    } catch (IOException e) {
+      logger.error("Error starting server", e);
+    }
+  }
 }
@@ -5,13 +5,19 @@ import com.reversi.common.EventListener;
 import com.reversi.common.FischerClock;
 import com.reversi.common.LobbyRoom;
 import com.reversi.common.Message;
+import com.reversi.common.Player;
 import com.reversi.common.PlayerStatus;
 import com.reversi.common.ReversiGame;
+import com.reversi.server.events.GameSessionEnded;
 import com.reversi.server.events.GameStateChange;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -20,138 +26,366 @@ public class SessionHub {
       LoggerFactory.getLogger(SessionHub.class);
 
   // Maps to manage clients, lobby rooms, and active game sessions.
-  private final Map<Integer, ClientSocket> clients = new HashMap<>();
+  private final Map<Integer, ClientConnection> clients = new HashMap<>();
   private final Map<String, LobbyRoom> lobbyRooms = new HashMap<>();
   private final Map<String, GameSession> activeGameSessions = new HashMap<>();
+  // Routes a client id to the game session it plays in, so that handling a
+  // move does not depend on the number of running games.
+  private final Map<Integer, GameSession> sessionsByClient =
+      new ConcurrentHashMap<>();
 
-  private final EventBus eventBus = new EventBus();
+  private final EventBus eventBus;
+  private final MessageSink busSink;
+  // Set once by startPipeline; null while messages go through the event bus.
+  private volatile MessagePipeline pipeline;
   private final List<Object> listeners = new ArrayList<>();
 
+  private final BotEngine botEngine;
+  private final AnalysisService analysisService;
+  // Bots get negative ids so they never collide with network clients.
+  private final AtomicInteger botCounter = new AtomicInteger();
+  private volatile long botPlayouts;
+
   public SessionHub() {
+    this(new BotEngine(Runtime.getRuntime().availableProcessors(), 1024));
+  }
+
+  /**
+   * @param botEngine computes the moves of server-side bots
+   */
+  public SessionHub(BotEngine botEngine) {
+    this(botEngine,
+         new AnalysisService(
+             Math.max(1, Runtime.getRuntime().availableProcessors() / 2), 64));
+  }
+
+  /**
+   * @param botEngine       computes the moves of server-side bots
+   * @param analysisService answers clients' analysis requests
+   */
+  public SessionHub(BotEngine botEngine, AnalysisService analysisService) {
+    this(botEngine, analysisService, new EventBus());
+  }
+
+  /**
+   * @param botEngine       computes the moves of server-side bots
+   * @param analysisService answers clients' analysis requests
+   * @param eventBus        carries client messages and game events; an
+   *     asynchronous bus keeps slow clients from stalling the threads that
+   *     read messages
+   */
+  public SessionHub(BotEngine botEngine, AnalysisService analysisService,
+                    EventBus eventBus) {
+    this.eventBus = eventBus;
+    this.busSink = MessageSink.of(eventBus);
+    this.botEngine = botEngine;
+    this.analysisService = analysisService;
     // Register event listeners.
     ClientMessageListener clientListener = new ClientMessageListener();
     GameSessionUpdateListener gameListener = new GameSessionUpdateListener();
+    GameSessionEndedListener endedListener = new GameSessionEndedListener();
     listeners.add(clientListener);
     listeners.add(gameListener);
+    listeners.add(endedListener);
     eventBus.register(ClientMessage.class, clientListener);
     eventBus.register(GameStateChange.class, gameListener);
+    eventBus.register(GameSessionEnded.class, endedListener);
   }
 
   /**
    * Adds a new client to the managed clients.
    *
-   * @param client The ClientSocket instance.
+   * @param client The client connection.
    */
-  public void registerClient(ClientSocket client) {
+  public void registerClient(ClientConnection client) {
     synchronized (clients) { clients.put(client.getClientId(), client); }
     sendLobbyUpdate(client);
   }
 
+  /**
+   * Forgets a disconnected client. A game it was playing goes on until its
+   * clock runs out, but no longer routes the client's moves or analyses.
+   *
+   * @param clientId the id of the client
+   */
+  public void removeClient(int clientId) {
+    synchronized (clients) { clients.remove(clientId); }
+    sessionsByClient.remove(clientId);
+    analysisService.forgetClient(clientId);
+  }
+
   public EventBus getEventBus() { return this.eventBus; }
 
-  private void sendLobbyUpdate(ClientSocket client) {
-    var message = new Message(new Message.LobbyUpdate(lobbyRooms));
+  /**
+   * Switches client messages to a {@link MessagePipeline}: one core thread
+   * applies them in arrival order and another encodes replies, which are
+   * written on the transport's writers. Must be called before clients
+   * connect.
+   *
+   * @param capacity the number of slots in each ring; a power of two
+   * @param writers  runs the tasks writing to clients: the client threads of
+   *     a blocking transport, or the caller for one that never blocks
+   */
+  public void startPipeline(int capacity, Executor writers) {
+    pipeline =
+        new MessagePipeline(capacity, this::handleClientMessage, writers);
+  }
+
+  /**
+   * Returns where client readers should hand decoded messages: the pipeline
+   * if one was started, otherwise the event bus.
+   *
+   * @return the sink for client messages
+   */
+  public MessageSink getMessageSink() {
+    MessagePipeline current = pipeline;
+    return current != null ? current : busSink;
+  }
+
+  /**
+   * Makes new bots Monte Carlo players with a fixed playout budget per move,
+   * which caps the CPU each bot game costs.
+   *
+   * @param playouts the playouts per move; 0 (the default) for alpha-beta
+   *     bots that spend the time their clock allows
+   */
+  public void setBotPlayouts(long playouts) { this.botPlayouts = playouts; }
+
+  /**
+   * Starts a game between a client and a server-side bot without going
+   * through a lobby room.
+   *
+   * @param roomName   the name under which the game is tracked
+   * @param human      the client playing against the bot
+   * @param humanColor the colour of the client, Black or White
+   * @return the new game session, or {@code null} if a lobby room or game
+   *     of that name exists or the client already plays a game
+   */
+  public GameSession startBotGame(String roomName, ClientConnection human,
+                                  Player humanColor) {
+    BotPlayer bot = new BotPlayer(-botCounter.incrementAndGet(), botEngine,
+                                  getMessageSink(), botPlayouts);
+    synchronized (clients) { clients.put(bot.getClientId(), bot); }
+    GameSession session = humanColor == Player.White
+                              ? startGame(roomName, bot, human, false)
+                              : startGame(roomName, human, bot, false);
+    if (session == null) {
+      synchronized (clients) { clients.remove(bot.getClientId()); }
+    }
+    return session;
+  }
+
+  /**
+   * Starts a game and registers it under a room name. Checking that the name
+   * and the players are free and claiming them is atomic: new games and
+   * lobby rooms are only added under the {@code activeGameSessions} monitor.
+   *
+   * @param fromLobby whether the game starts from the lobby room of that
+   *     name, which is then expected to exist
+   * @return the new game session, or {@code null} if the name or one of the
+   *     players is taken
+   */
+  private GameSession startGame(String roomName, ClientConnection blackPlayer,
+                                ClientConnection whitePlayer,
+                                boolean fromLobby) {
+    GameSession gameSession;
+    synchronized (activeGameSessions) {
+      boolean lobbyTaken;
+      synchronized (lobbyRooms) {
+        lobbyTaken = !fromLobby && lobbyRooms.containsKey(roomName);
+      }
+      if (lobbyTaken || activeGameSessions.containsKey(roomName) ||
+          sessionsByClient.containsKey(blackPlayer.getClientId()) ||
+          sessionsByClient.containsKey(whitePlayer.getClientId()))
+        return null;
+      gameSession = new GameSession(blackPlayer, whitePlayer);
+      gameSession.setEventBus(eventBus);
+      gameSession.setSender(this::send);
+      activeGameSessions.put(roomName, gameSession);
+      sessionsByClient.put(blackPlayer.getClientId(), gameSession);
+      sessionsByClient.put(whitePlayer.getClientId(), gameSession);
+    }
+    // Notify players that the game just started.
+    send(blackPlayer, new Message(new Message.Start('B')));
+    send(whitePlayer, new Message(new Message.Start('W')));
+    eventBus.post(new GameStateChange(gameSession));
+    logger.info("Game session started for room {}", roomName);
+    return gameSession;
+  }
+
+  private void sendLobbyUpdate(ClientConnection client) {
+    // Copy the rooms: the message may be encoded after they change.
+    Map<String, LobbyRoom> rooms;
+    synchronized (lobbyRooms) { rooms = new HashMap<>(lobbyRooms); }
+    var message = new Message(new Message.LobbyUpdate(rooms));
 
     if (client != null)
-      client.sendMessage(message);
+      send(client, message);
     else {
-      for (var it : clients.values())
-        it.sendMessage(message);
+      // Snapshot the recipients so no monitor is held while writing.
+      List<ClientConnection> recipients;
+      synchronized (clients) { recipients = new ArrayList<>(clients.values()); }
+      broadcast(message, recipients);
     }
   }
 
-  // --- Inner classes for event listeners ---
-  class ClientMessageListener implements EventListener<ClientMessage> {
-    @Override
-    public void onEvent(ClientMessage e) {
-      Message msg = e.getMessage();
-      ClientSocket handler = e.getHandler();
-
-      switch (msg.getType()) {
-      case LobbyCreate: {
-        Message.LobbyCreate lobbyCreate = (Message.LobbyCreate)msg.getMessage();
-        LobbyRoom room = lobbyCreate.getRoom();
-        room.addPlayer(new PlayerStatus(handler.getClientId()));
+  /** Sends a message to one client, through the pipeline if there is one. */
+  private void send(ClientConnection client, Message message) {
+    MessagePipeline current = pipeline;
+    if (current != null)
+      current.send(client, message);
+    else
+      client.sendMessage(message);
+  }
+
+  /**
+   * Sends one message to several clients, serializing it only once.
+   *
+   * @param message    the message to send
+   * @param recipients the clients to send it to; null entries are skipped
+   */
+  private void broadcast(Message message,
+                         Iterable<? extends ClientConnection> recipients) {
+    MessagePipeline current = pipeline;
+    if (current != null) {
+      current.broadcast(message, recipients);
+      return;
+    }
+    Frame frame;
+    try {
+      frame = Frame.encode(message);
+    } catch (Exception e) {
+      logger.error("Failed to encode message: {}", message.toString(), e);
+      return;
+    }
+    for (ClientConnection recipient : recipients) {
+      if (recipient != null)
+        recipient.sendFrame(frame);
+    }
+  }
+
+  /**
+   * Applies one client message to the lobby and game state. Runs on the
+   * thread that posted the message, or on the pipeline's core thread.
+   *
+   * @param msg     the message
+   * @param handler the client that sent it
+   */
+  void handleClientMessage(Message msg, ClientConnection handler) {
+    switch (msg.getType()) {
+    case LobbyCreate: {
+      Message.LobbyCreate lobbyCreate = (Message.LobbyCreate)msg.getMessage();
+      LobbyRoom room = lobbyCreate.getRoom();
+      if (lobbyCreate.isBot()) {
+        // The room never enters the lobby; the game starts at once.
+        if (startBotGame(room.getRoomName(), handler, Player.Black) == null) {
+          String reason =
+              sessionsByClient.containsKey(handler.getClientId())
+                  ? "Already in a game."
+                  : "Room " + room.getRoomName() + " already exists.";
+          send(handler, new Message(new Message.Invalid(reason)));
+        }
+        break;
+      }
+      room.addPlayer(new PlayerStatus(handler.getClientId()));
+      boolean created;
+      // Lobby rooms and games share one namespace; see startGame.
+      synchronized (activeGameSessions) {
         synchronized (lobbyRooms) {
-          if (lobbyRooms.containsKey(room.getRoomName())) {
-            handler.sendMessage(new Message(new Message.Invalid(
-                "Room " + room.getRoomName() + " already exists.")));
-            break;
-          }
-          lobbyRooms.put(room.getRoomName(), room);
+          created =
+              !activeGameSessions.containsKey(room.getRoomName()) &&
+              lobbyRooms.putIfAbsent(room.getRoomName(), room) == null;
         }
+      }
+      if (!created) {
+        // Reply outside the monitor; sending may block on the socket.
+        send(handler, new Message(new Message.Invalid(
+                          "Room " + room.getRoomName() + " already exists.")));
+        break;
+      }
 
-        sendLobbyUpdate(null);
-        logger.info("Client {} created room {}", handler.getClientId(),
-                    room.getRoomName());
+      sendLobbyUpdate(null);
+      logger.info("Client {} created room {}", handler.getClientId(),
+                  room.getRoomName());
+      break;
+    }
+    case LobbyJoin: {
+      Message.LobbyJoin lobbyJoin = (Message.LobbyJoin)msg.getMessage();
+      String roomId = lobbyJoin.getRoomNumber();
+      LobbyRoom room;
+      synchronized (lobbyRooms) { room = lobbyRooms.get(roomId); }
+      if (room == null) {
+        send(handler,
+             new Message(new Message.Invalid("Room " + roomId + " invalid.")));
         break;
       }
-      case LobbyJoin: {
-        Message.LobbyJoin lobbyJoin = (Message.LobbyJoin)msg.getMessage();
-        String roomId = lobbyJoin.getRoomNumber();
-        LobbyRoom room;
-        synchronized (lobbyRooms) { room = lobbyRooms.get(roomId); }
-        if (room == null) {
-          handler.sendMessage(
-              new Message(new Message.Invalid("Room " + roomId + " invalid.")));
-          break;
-        }
 
-        room.addPlayer(new PlayerStatus(handler.getClientId()));
-        sendLobbyUpdate(null);
-        logger.info("Client {} joined room {}", handler.getClientId(), roomId);
-
-        if (room.isReadyToStart()) {
-          var players = room.getPlayers().keySet().toArray();
-          if (players.length == 2) {
-            ClientSocket blackPlayer = clients.get(players[0]);
-            ClientSocket whitePlayer = clients.get(players[1]);
-            GameSession gameSession = new GameSession(blackPlayer, whitePlayer);
-            synchronized (activeGameSessions) {
-              activeGameSessions.put(room.getRoomName(), gameSession);
-            }
-            // Notify players that the game just started.
-            blackPlayer.sendMessage(new Message(new Message.Start('B')));
-            whitePlayer.sendMessage(new Message(new Message.Start('W')));
-            eventBus.post(new GameStateChange(gameSession));
-            logger.info("Game session started for room {}", room.getRoomName());
-            synchronized (lobbyRooms) { lobbyRooms.remove(room.getRoomName()); }
-          }
+      room.addPlayer(new PlayerStatus(handler.getClientId()));
+      sendLobbyUpdate(null);
+      logger.info("Client {} joined room {}", handler.getClientId(), roomId);
+
+      if (room.isReadyToStart()) {
+        var players = room.getPlayers().keySet().toArray();
+        if (players.length == 2) {
+          ClientConnection blackPlayer = clients.get(players[0]);
+          ClientConnection whitePlayer = clients.get(players[1]);
+          if (startGame(room.getRoomName(), blackPlayer, whitePlayer,
+                        true) == null)
+            send(handler,
+                 new Message(new Message.Invalid("Already in a game.")));
+          synchronized (lobbyRooms) { lobbyRooms.remove(room.getRoomName()); }
         }
+      }
 
-        break;
+      break;
+    }
+    case Move: {
+      // Route move messages to the appropriate game session.
+      GameSession session = sessionsByClient.get(handler.getClientId());
+      if (session != null) {
+        Message.Move move = (Message.Move)msg.getMessage();
+        boolean valid = session.makeMove(move.getRow(), move.getCol(), handler);
+        if (!valid)
+          send(handler, new Message(new Message.Invalid("Invalid move")));
+        eventBus.post(new GameStateChange(session));
+      } else {
+        logger.error(
+            "Received move from client {} with no active game session.",
+            handler.getClientId());
       }
-      case Move: {
-        // Route move messages to the appropriate game session.
-        GameSession session = null;
-        synchronized (activeGameSessions) {
-          for (GameSession gs : activeGameSessions.values()) {
-            if (gs.containsClient(handler)) {
-              session = gs;
-              break;
-            }
-          }
-        }
-        if (session != null) {
-          Message.Move move = (Message.Move)msg.getMessage();
-          boolean valid =
-              session.makeMove(move.getRow(), move.getCol(), handler);
-          if (!valid) {
-            handler.sendMessage(
-                new Message(new Message.Invalid("Invalid move")));
-          }
-          eventBus.post(new GameStateChange(session));
-        } else {
-          logger.error(
-              "Received move from client {} with no active game session.",
-              handler.getClientId());
-        }
+      break;
+    }
+    case AnalyzeRequest: {
+      // Analyse the position of the client's current game.
+      GameSession session = sessionsByClient.get(handler.getClientId());
+      if (session == null) {
+        send(handler, new Message(new Message.Invalid("No game to analyze")));
         break;
       }
-      default:
-        logger.warn("Message ignored: {}", msg.toString());
-        break;
+      Message.AnalyzeRequest request = (Message.AnalyzeRequest)msg.getMessage();
+      AnalysisService.Admission admission = analysisService.submit(
+          handler.getClientId(), session.copyGame(), request,
+          result -> send(handler, new Message(result)));
+      if (admission == AnalysisService.Admission.RATE_LIMITED) {
+        send(handler,
+             new Message(new Message.Invalid("Too many analysis requests")));
+      } else if (admission == AnalysisService.Admission.BUSY) {
+        send(handler,
+             new Message(new Message.Invalid("Analysis server busy")));
       }
+      break;
+    }
+    default:
+      logger.warn("Message ignored: {}", msg.toString());
+      break;
+    }
+  }
+
+  // --- Inner classes for event listeners ---
+  class ClientMessageListener implements EventListener<ClientMessage> {
+    @Override
+    public void onEvent(ClientMessage e) {
+      handleClientMessage(e.getMessage(), e.getHandler());
     }
   }
 
@@ -160,24 +394,47 @@ public class SessionHub {
 
     public void onEvent(GameStateChange e) {
       GameSession session = e.getSession();
-      ReversiGame game = session.getGame();
+      // A copy, as the update may be encoded after further moves.
+      ReversiGame game = session.copyGame();
       FischerClock clock = session.getClock();
 
       var gameUpd = new Message.GameUpdate(game, clock.getBlackTimeMillis(),
                                            clock.getWhiteTimeMillis());
       var message = new Message(gameUpd);
-      ClientSocket blackPlayer;
-      ClientSocket whitePlayer;
+      ClientConnection blackPlayer;
+      ClientConnection whitePlayer;
       synchronized (clients) {
         blackPlayer = clients.get(session.getBlackId());
         whitePlayer = clients.get(session.getWhiteId());
       }
-      if (blackPlayer != null) {
-        blackPlayer.sendMessage(message);
+      broadcast(message, Arrays.asList(blackPlayer, whitePlayer));
+
+      // Bots have no socket to read the update from; wake them directly.
+      if (blackPlayer instanceof BotPlayer bot)
+        bot.onGameUpdate(session);
+      if (whitePlayer instanceof BotPlayer bot)
+        bot.onGameUpdate(session);
+    }
+  }
+
+  class GameSessionEndedListener implements EventListener<GameSessionEnded> {
+    @Override
+    public void onEvent(GameSessionEnded e) {
+      GameSession session = e.getSession();
+      sessionsByClient.remove(session.getBlackId(), session);
+      sessionsByClient.remove(session.getWhiteId(), session);
+      synchronized (activeGameSessions) {
+        activeGameSessions.values().remove(session);
       }
-      if (whitePlayer != null) {
-        whitePlayer.sendMessage(message);
+      synchronized (clients) {
+        // Bots live only as long as their game.
+        if (session.getBlackId() < 0)
+          clients.remove(session.getBlackId());
+        if (session.getWhiteId() < 0)
+          clients.remove(session.getWhiteId());
       }
+      logger.info("Game session between clients {} and {} ended",
+                  session.getBlackId(), session.getWhiteId());
     }
   }
 }
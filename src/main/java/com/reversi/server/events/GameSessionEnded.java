@@ -0,0 +1,22 @@
+package com.reversi.server.events;
+
+import com.reversi.common.Event;
+import com.reversi.server.GameSession;
+
+/**
+ * Posted once when a game session is over and its players are free again.
+ */
+public class GameSessionEnded extends Event {
+  private final GameSession session;
+
+  public GameSessionEnded(GameSession session) {
+    super();
+    this.session = session;
+  }
+
+  public GameSession getSession() { return session; }
+
+  /** Ordered after the updates of the same game. */
+  @Override
+  public Object getPartitionKey() { return session; }
+}
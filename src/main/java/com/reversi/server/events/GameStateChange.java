@@ -12,4 +12,8 @@ public class GameStateChange extends Event {
   }
 
   public GameSession getSession() { return session; }
+
+  /** Updates of one game are sent in order. */
+  @Override
+  public Object getPartitionKey() { return session; }
 }
@@ -3,7 +3,9 @@ package com.reversi.common;
 import static org.junit.jupiter.api.Assertions.*;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
 import org.junit.jupiter.api.Test;
 
 public class BoardTest {
@@ -114,6 +116,47 @@ public class BoardTest {
     assertFalse(board.equals(new Board()));
   }
 
+  /**
+   * Verify that the incrementally maintained hash always matches a hash
+   * computed from scratch, and that it returns to its old value on undo.
+   */
+  @Test
+  public void testIncrementalHash() {
+    Random random = new Random(7);
+    Board board = Board.createDefault();
+    assertEquals(Zobrist.hash(board.getDiscs(Player.Black),
+                              board.getDiscs(Player.White)),
+                 board.getHash());
+    assertEquals(Board.createDefault().hashCode(), board.hashCode());
+
+    Player player = Player.Black;
+    for (int ply = 0; ply < 60; ply++) {
+      List<int[]> moves = board.getValidMoves(player);
+      if (moves.isEmpty()) {
+        player = player.opponent();
+        if (board.getValidMoves(player).isEmpty())
+          break;
+        continue;
+      }
+      int[] move = moves.get(random.nextInt(moves.size()));
+      int sq = Board.square(move[0], move[1]);
+      long before = board.getHash();
+      long flips = board.play(sq, player);
+      assertEquals(Zobrist.hash(board.getDiscs(Player.Black),
+                                board.getDiscs(Player.White)),
+                   board.getHash());
+
+      board.unmakeMove(sq, flips, player);
+      assertEquals(before, board.getHash());
+      board.play(sq, player);
+      player = player.opponent();
+    }
+
+    Board copy = new Board(board.toString());
+    assertEquals(board, copy);
+    assertEquals(board.getHash(), copy.getHash());
+  }
+
   /**
    * Verify that encoding to and then decoding from a string preserves the board
    * state.
@@ -197,6 +240,24 @@ public class BoardTest {
                 "occupied.");
   }
 
+  /**
+   * Verify that play returns the flipped discs as a bitmask and leaves the
+   * board untouched for an illegal move.
+   */
+  @Test
+  public void testPlayReturnsFlipMask() {
+    Board board = Board.createDefault();
+    long flips = board.play(Board.square(2, 3), Player.Black);
+    assertEquals(1L << Board.square(3, 3), flips);
+    assertEquals(Player.Black, board.get(2, 3));
+    assertEquals(Player.Black, board.get(3, 3));
+
+    String before = board.toString();
+    assertEquals(0L, board.play(Board.square(0, 0), Player.White));
+    assertEquals(0L, board.play(Board.square(2, 3), Player.White));
+    assertEquals(before, board.toString());
+  }
+
   /**
    * Verify that getValidMoves returns the correct list of valid moves for a
    * player. <p> For the default board, it is expected that both Black and White
@@ -230,4 +291,95 @@ public class BoardTest {
     assertEquals(4, whiteValidMoves.size(),
                  "Expected 4 valid moves for White on a default board.");
   }
+
+  /**
+   * Verify that the move bitmask matches the list form and that discs on one
+   * edge do not wrap around to capture on the opposite edge.
+   */
+  @Test
+  public void testValidMoveMask() {
+    Board board = Board.createDefault();
+    long expected = 0L;
+    for (int[] move : board.getValidMoves(Player.Black)) {
+      expected |= 1L << Board.square(move[0], move[1]);
+    }
+    assertEquals(expected, board.getValidMoveMask(Player.Black));
+    assertEquals(0L, board.getValidMoveMask(Player.None));
+
+    // A white disc on the H file must not be bracketed by a black disc that
+    // sits on the A file of the next row.
+    Board wrap = new Board("........0"
+                           + ".......W0"
+                           + "B.......0"
+                           + "........0"
+                           + "........0"
+                           + "........0"
+                           + "........0"
+                           + "........0");
+    assertFalse(wrap.isValidMove(1, 6, Player.Black));
+    assertEquals(0L, wrap.getValidMoveMask(Player.Black));
+  }
+
+  /**
+   * Verify move generation and flipping against a straightforward reference
+   * implementation over a number of random games.
+   */
+  @Test
+  public void testMovesMatchReference() {
+    Random random = new Random(42);
+    for (int game = 0; game < 200; game++) {
+      Board board = Board.createDefault();
+      Player player = Player.Black;
+      for (int ply = 0; ply < 60; ply++) {
+        List<int[]> moves = board.getValidMoves(player);
+        int count = 0;
+        for (int r = 0; r < Board.BOARD_SIZE; r++) {
+          for (int c = 0; c < Board.BOARD_SIZE; c++) {
+            boolean expected = !referenceFlips(board, r, c, player).isEmpty();
+            assertEquals(expected, board.isValidMove(r, c, player));
+            if (expected)
+              count++;
+          }
+        }
+        assertEquals(count, moves.size());
+        if (moves.isEmpty()) {
+          player = player.opponent();
+          if (board.getValidMoves(player).isEmpty())
+            break;
+          continue;
+        }
+
+        int[] move = moves.get(random.nextInt(moves.size()));
+        List<int[]> flips = referenceFlips(board, move[0], move[1], player);
+        assertTrue(board.makeMove(move[0], move[1], player));
+        assertEquals(player, board.get(move[0], move[1]));
+        for (int[] f : flips) {
+          assertEquals(player, board.get(f[0], f[1]));
+        }
+        player = player.opponent();
+      }
+    }
+  }
+
+  private static List<int[]> referenceFlips(Board board, int row, int col,
+                                            Player player) {
+    int[][] directions = {{-1, 0}, {-1, 1}, {0, 1},  {1, 1},
+                          {1, 0},  {1, -1}, {0, -1}, {-1, -1}};
+    List<int[]> result = new ArrayList<>();
+    if (board.get(row, col) != Player.None)
+      return result;
+    for (int[] d : directions) {
+      List<int[]> run = new ArrayList<>();
+      int r = row + d[0], c = col + d[1];
+      while (r >= 0 && r < 8 && c >= 0 && c < 8 &&
+             board.get(r, c) == player.opponent()) {
+        run.add(new int[] {r, c});
+        r += d[0];
+        c += d[1];
+      }
+      if (r >= 0 && r < 8 && c >= 0 && c < 8 && board.get(r, c) == player)
+        result.addAll(run);
+    }
+    return result;
+  }
 }
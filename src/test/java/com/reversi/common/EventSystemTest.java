@@ -2,7 +2,7 @@ package com.reversi.common;
 
 import static org.junit.jupiter.api.Assertions.*;
 
-import java.time.LocalTime;
+import java.lang.ref.WeakReference;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -20,7 +20,7 @@ class CustomEvent extends Event {
    *
    * @param message the message associated with this event
    */
-  public CustomEvent(LocalTime time, String message) {
+  public CustomEvent(long time, String message) {
     super(time);
     this.message = message;
   }
@@ -32,6 +32,43 @@ class CustomEvent extends Event {
   public String getMessage() { return message; }
 }
 
+/**
+ * An event routed by an explicit partition key.
+ */
+class KeyedEvent extends Event {
+  private final Object key;
+  private final int index;
+
+  public KeyedEvent(Object key, int index) {
+    this.key = key;
+    this.index = index;
+  }
+
+  public int getIndex() { return index; }
+
+  @Override
+  public Object getPartitionKey() { return key; }
+}
+
+/**
+ * A marker for events some listeners want regardless of their class.
+ */
+interface Audited {
+  String getActor();
+}
+
+/**
+ * An event seen both as itself and as {@link Audited}.
+ */
+class AuditedEvent extends CustomEvent implements Audited {
+  public AuditedEvent(String message) { super(System.nanoTime(), message); }
+
+  @Override
+  public String getActor() {
+    return "tester";
+  }
+}
+
 public class EventSystemTest {
   @Test
   public void testSingleListenerIsInvoked() {
@@ -41,7 +78,7 @@ public class EventSystemTest {
     // Use an AtomicBoolean to capture if the event was received
     AtomicBoolean eventReceived = new AtomicBoolean(false);
     String testMessage = "Test Message";
-    LocalTime time = LocalTime.now();
+    long time = System.nanoTime();
     CustomEvent event = new CustomEvent(time, testMessage);
 
     // Register a listener for the CustomEvent that checks the event's message
@@ -52,7 +89,7 @@ public class EventSystemTest {
         eventReceived.set(true);
         assertEquals(testMessage, event.getMessage());
         // Verify that the timestamp is set to a positive value
-        assertEquals(time, event.getTimestamp());
+        assertEquals(time, event.getTimestampNanos());
       }
     });
 
@@ -70,7 +107,7 @@ public class EventSystemTest {
     // Use an AtomicInteger to count how many listeners have been invoked
     AtomicInteger invocationCount = new AtomicInteger(0);
     String testMessage = "Another Test Message";
-    LocalTime time = LocalTime.now();
+    long time = System.nanoTime();
     CustomEvent event = new CustomEvent(time, testMessage);
 
     // Create a single listener that increments the count when invoked
@@ -99,7 +136,7 @@ public class EventSystemTest {
 
     // Post an event for which no listener is registered.
     // The system should not throw an exception.
-    CustomEvent event = new CustomEvent(LocalTime.now(), "No Listener");
+    CustomEvent event = new CustomEvent(System.nanoTime(), "No Listener");
     assertDoesNotThrow(
         ()
             -> eventBus.post(event),
@@ -134,7 +171,7 @@ public class EventSystemTest {
     assertEquals(1, myListenerCnt.get());
     assertEquals(0, customListenerCnt.get());
 
-    eventBus.post(new CustomEvent(LocalTime.now(), "whatever"));
+    eventBus.post(new CustomEvent(System.nanoTime(), "whatever"));
     assertEquals(1, myListenerCnt.get());
     assertEquals(1, customListenerCnt.get());
   }
@@ -185,7 +222,7 @@ public class EventSystemTest {
         try {
           registrationLatch.await();
           for (int j = 0; j < postsPerThread; j++) {
-            eventBus.post(new CustomEvent(LocalTime.now(), "Stress Test"));
+            eventBus.post(new CustomEvent(System.nanoTime(), "Stress Test"));
           }
         } catch (InterruptedException e) {
           Thread.currentThread().interrupt();
@@ -249,7 +286,7 @@ public class EventSystemTest {
 
     // At this point, the listener should be reclaimed by the garbage collector.
     // Posting an event should not invoke the collected listener.
-    eventBus.post(new CustomEvent(LocalTime.now(), "GC Test"));
+    eventBus.post(new CustomEvent(System.nanoTime(), "GC Test"));
     assertFalse(invoked.get(), "The weak listener should have been garbage "
                                    + "collected and not invoked.");
 
@@ -296,7 +333,7 @@ public class EventSystemTest {
     }
 
     // Post an event.
-    eventBus.post(new CustomEvent(LocalTime.now(), "Mixed Test"));
+    eventBus.post(new CustomEvent(System.nanoTime(), "Mixed Test"));
 
     // Only the strong listener should be invoked.
     assertEquals(
@@ -307,4 +344,291 @@ public class EventSystemTest {
     assertEquals(1, eventBus.getActiveListenersCount(CustomEvent.class),
                  "Only the strongly referenced listener should remain active.");
   }
+
+  @Test
+  public void testAsyncBusKeepsOrderPerKey() throws InterruptedException {
+    final int keys = 8;
+    final int postsPerKey = 500;
+    try (EventBus eventBus = new EventBus(4)) {
+      ConcurrentHashMap<Object, Integer> last = new ConcurrentHashMap<>();
+      AtomicBoolean outOfOrder = new AtomicBoolean(false);
+      CountDownLatch done = new CountDownLatch(keys * postsPerKey);
+      EventListener<KeyedEvent> listener = event -> {
+        Integer previous = last.put(event.getPartitionKey(), event.getIndex());
+        if (previous != null && previous + 1 != event.getIndex())
+          outOfOrder.set(true);
+        done.countDown();
+      };
+      eventBus.register(KeyedEvent.class, listener);
+
+      for (int i = 0; i < postsPerKey; i++)
+        for (int key = 0; key < keys; key++)
+          eventBus.post(new KeyedEvent(key, i));
+
+      assertTrue(done.await(10, TimeUnit.SECONDS),
+                 "All events should be delivered");
+      assertFalse(outOfOrder.get(),
+                  "Events with the same key should arrive in order");
+    }
+  }
+
+  @Test
+  public void testAsyncBusIsolatesSlowPartition() throws InterruptedException {
+    try (EventBus eventBus = new EventBus(2)) {
+      CountDownLatch release = new CountDownLatch(1);
+      CountDownLatch fastDelivered = new CountDownLatch(1);
+      Thread poster = Thread.currentThread();
+      AtomicBoolean inlineDispatch = new AtomicBoolean(false);
+      EventListener<KeyedEvent> listener = event -> {
+        if (Thread.currentThread() == poster)
+          inlineDispatch.set(true);
+        if (event.getIndex() == 0) {
+          try {
+            release.await();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+        } else {
+          fastDelivered.countDown();
+        }
+      };
+      eventBus.register(KeyedEvent.class, listener);
+
+      // Keys 0 and 1 land on different partitions of a two-partition bus.
+      eventBus.post(new KeyedEvent(0, 0));
+      eventBus.post(new KeyedEvent(1, 1));
+      assertTrue(fastDelivered.await(5, TimeUnit.SECONDS),
+                 "A blocked partition should not delay the others");
+      release.countDown();
+      assertFalse(inlineDispatch.get(),
+                  "Listeners should not run on the posting thread");
+    }
+  }
+
+  @Test
+  public void testUnregisterRemovesOneRegistration() {
+    EventBus eventBus = new EventBus();
+    AtomicInteger invocationCount = new AtomicInteger(0);
+    EventListener<CustomEvent> listener =
+        event -> invocationCount.incrementAndGet();
+    eventBus.register(CustomEvent.class, listener)
+        .register(CustomEvent.class, listener);
+
+    eventBus.unregister(CustomEvent.class, listener);
+    eventBus.post(new CustomEvent(System.nanoTime(), "Once"));
+    assertEquals(1, invocationCount.get());
+
+    eventBus.unregister(CustomEvent.class, listener);
+    eventBus.post(new CustomEvent(System.nanoTime(), "Never"));
+    assertEquals(1, invocationCount.get());
+    assertEquals(0, eventBus.getRegistrationCount(CustomEvent.class));
+  }
+
+  @Test
+  public void testCollectedListenerIsSweptWithoutPosting()
+      throws InterruptedException {
+    EventBus eventBus = new EventBus();
+    AtomicInteger invocationCount = new AtomicInteger(0);
+    EventListener<CustomEvent> strongListener =
+        event -> invocationCount.incrementAndGet();
+    eventBus.register(CustomEvent.class, strongListener);
+    // Capturing lambdas are fresh objects; others are cached and never die.
+    eventBus.register(CustomEvent.class,
+                      event -> invocationCount.incrementAndGet());
+    assertEquals(2, eventBus.getRegistrationCount(CustomEvent.class));
+
+    for (int i = 0;
+         i < 50 && eventBus.getRegistrationCount(CustomEvent.class) > 1; i++) {
+      System.gc();
+      Thread.sleep(100);
+    }
+    assertEquals(1, eventBus.getRegistrationCount(CustomEvent.class),
+                 "The sweeper should drop the collected listener");
+    assertEquals(1, eventBus.getActiveListenersCount(CustomEvent.class));
+  }
+
+  @Test
+  public void testPostDoesNotAllocate() {
+    if (!(java.lang.management.ManagementFactory.getThreadMXBean()
+              instanceof com.sun.management.ThreadMXBean threads) ||
+        !threads.isThreadAllocatedMemorySupported())
+      return;
+    EventBus eventBus = new EventBus();
+    AtomicInteger invocationCount = new AtomicInteger(0);
+    EventListener<CustomEvent> first =
+        event -> invocationCount.incrementAndGet();
+    EventListener<CustomEvent> second =
+        event -> invocationCount.incrementAndGet();
+    eventBus.register(CustomEvent.class, first)
+        .register(CustomEvent.class, second);
+    CustomEvent event = new CustomEvent(System.nanoTime(), "Steady");
+    for (int i = 0; i < 20_000; i++)
+      eventBus.post(event);
+
+    long thread = Thread.currentThread().getId();
+    long before = threads.getThreadAllocatedBytes(thread);
+    for (int i = 0; i < 100_000; i++)
+      eventBus.post(event);
+    long allocated = threads.getThreadAllocatedBytes(thread) - before;
+    assertEquals(240_000, invocationCount.get());
+    assertTrue(allocated < 10_000,
+               "post allocated " + allocated + " bytes for 100000 events");
+  }
+
+  @Test
+  public void testSupertypeListenerReceivesSubclassEvents() {
+    EventBus eventBus = new EventBus();
+    AtomicInteger allEvents = new AtomicInteger(0);
+    AtomicInteger customEvents = new AtomicInteger(0);
+    EventListener<Event> auditor = event -> allEvents.incrementAndGet();
+    EventListener<CustomEvent> custom =
+        event -> customEvents.incrementAndGet();
+    eventBus.register(Event.class, auditor)
+        .register(CustomEvent.class, custom);
+
+    eventBus.post(new CustomEvent(System.nanoTime(), "Custom"));
+    eventBus.post(new AuditedEvent("Subclass"));
+    eventBus.post(new KeyedEvent("key", 0));
+
+    assertEquals(3, allEvents.get());
+    assertEquals(2, customEvents.get());
+  }
+
+  @Test
+  public void testInterfaceListenerAndDispatchOrder() {
+    EventBus eventBus = new EventBus();
+    StringBuilder calls = new StringBuilder();
+    EventListener<Audited> audited =
+        event -> calls.append("audited:").append(event.getActor()).append(' ');
+    EventListener<AuditedEvent> exact = event -> calls.append("exact ");
+    EventListener<Event> base = event -> calls.append("event ");
+    // Registration order does not matter: the exact class comes first, then
+    // superclasses, then interfaces.
+    eventBus.register(Audited.class, audited)
+        .register(Event.class, base)
+        .register(AuditedEvent.class, exact);
+
+    eventBus.post(new AuditedEvent("Ordered"));
+    assertEquals("exact event audited:tester ", calls.toString());
+
+    calls.setLength(0);
+    eventBus.post(new CustomEvent(System.nanoTime(), "Not audited"));
+    assertEquals("event ", calls.toString());
+  }
+
+  @Test
+  public void testCachedResolutionFollowsRegistrationChanges() {
+    EventBus eventBus = new EventBus();
+    AtomicInteger invocationCount = new AtomicInteger(0);
+    CustomEvent event = new CustomEvent(System.nanoTime(), "Cached");
+    // Resolve the event class once with no listeners at all.
+    eventBus.post(event);
+
+    EventListener<Event> listener = e -> invocationCount.incrementAndGet();
+    eventBus.register(Event.class, listener);
+    eventBus.post(event);
+    assertEquals(1, invocationCount.get());
+
+    eventBus.unregister(Event.class, listener);
+    eventBus.post(event);
+    assertEquals(1, invocationCount.get());
+  }
+
+  @Test
+  public void testUnusedBusIsCollected() throws InterruptedException {
+    EventListener<Event> listener = event -> {};
+    EventBus eventBus = new EventBus();
+    eventBus.register(Event.class, listener);
+    eventBus.post(new CustomEvent(System.nanoTime(), "Resolved"));
+    WeakReference<EventBus> busRef = new WeakReference<>(eventBus);
+    eventBus = null;
+
+    // The resolution caches of the event classes must not keep it alive.
+    for (int i = 0; i < 50 && busRef.get() != null; i++) {
+      System.gc();
+      Thread.sleep(100);
+    }
+    assertNull(busRef.get(), "The bus should be collected");
+    assertNotNull(listener);
+  }
+
+  /** A clock that only moves when told to, numbering events from 1. */
+  private static final class ManualEventClock implements EventClock {
+    long now;
+    long sequence;
+
+    @Override
+    public long nanoTime() {
+      return now;
+    }
+
+    @Override
+    public long nextSequence() {
+      return ++sequence;
+    }
+  }
+
+  @Test
+  public void testInjectedClockStampsEvents() {
+    ManualEventClock clock = new ManualEventClock();
+    clock.now = 1_000;
+    Event.setEventClock(clock);
+    try {
+      Event first = new Event();
+      clock.now = 1_500;
+      Event second = new Event();
+      assertEquals(1_000, first.getTimestampNanos());
+      assertEquals(1, first.getSequence());
+      assertEquals(1_500, second.getTimestampNanos());
+      assertEquals(2, second.getSequence());
+
+      // The time an event waited is measured on the same clock.
+      clock.now = 4_000;
+      assertEquals(3_000, first.getAgeNanos());
+    } finally {
+      Event.setEventClock(EventClock.SYSTEM);
+    }
+  }
+
+  @Test
+  public void testDefaultClockIsMonotonicAndUnnumbered() {
+    Event previous = new Event();
+    for (int i = 0; i < 1000; i++) {
+      Event next = new Event();
+      assertTrue(next.getTimestampNanos() - previous.getTimestampNanos() >= 0);
+      assertEquals(0, next.getSequence());
+      previous = next;
+    }
+    assertTrue(previous.getAgeNanos() >= 0);
+  }
+
+  @Test
+  public void testSequencedClockOrdersConcurrentEvents()
+      throws InterruptedException {
+    Event.setEventClock(EventClock.sequenced());
+    try {
+      final int threads = 4;
+      final int perThread = 1000;
+      ConcurrentHashMap<Long, Boolean> seen = new ConcurrentHashMap<>();
+      Thread[] workers = new Thread[threads];
+      for (int t = 0; t < threads; t++) {
+        workers[t] = new Thread(() -> {
+          long last = 0;
+          for (int i = 0; i < perThread; i++) {
+            long sequence = new Event().getSequence();
+            assertTrue(sequence > last);
+            last = sequence;
+            seen.put(sequence, Boolean.TRUE);
+          }
+        });
+        workers[t].start();
+      }
+      for (Thread worker : workers)
+        worker.join();
+      assertEquals(threads * perThread, seen.size(),
+                   "Every event should get a distinct number");
+    } finally {
+      Event.setEventClock(EventClock.SYSTEM);
+    }
+  }
 }
@@ -266,4 +266,38 @@ class FischerClockTest {
         "A timeout event should be posted when Black runs out of time.");
     assertTrue(clock.equals(received.getClock()));
   }
+
+  @Test
+  void testVirtualTickerChargesElapsedTime() {
+    VirtualTicker ticker = new VirtualTicker();
+    clock.setTicker(ticker);
+    clock.start();
+
+    // Ticks run only for whole intervals; the rest carries over.
+    ticker.advance(250);
+    assertEquals(initialTime - 200, clock.getWhiteTimeMillis());
+    ticker.advance(50);
+    assertEquals(initialTime - 300, clock.getWhiteTimeMillis());
+
+    clock.swap();
+    ticker.advance(1000);
+    assertEquals(initialTime - 1000, clock.getBlackTimeMillis());
+  }
+
+  @Test
+  void testVirtualTickerStopsAtTimeout() {
+    VirtualTicker ticker = new VirtualTicker();
+    clock.setTicker(ticker);
+    clock.setWhiteTimeMillis(300);
+    clock.start();
+
+    ticker.advance(10_000);
+    assertEquals(0, clock.getWhiteTimeMillis());
+    assertNotNull(listener.getReceivedEvent());
+    assertTrue(listener.getReceivedEvent().isWhiteTimeout);
+    // The stopped ticker no longer charges anyone.
+    clock.swap();
+    ticker.advance(1000);
+    assertEquals(initialTime, clock.getBlackTimeMillis());
+  }
 }
@@ -4,6 +4,7 @@ import static org.junit.jupiter.api.Assertions.*;
 
 import java.io.IOException;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
 
@@ -147,6 +148,48 @@ public class MessageTest {
                  "LobbyRoom name does not match");
   }
 
+  @Test
+  void testLobbyCreateBotFlag() {
+    Message msg =
+        new Message(new Message.LobbyCreate(new LobbyRoom("BotRoom"), true));
+    String json = assertDoesNotThrow(() -> serialize(msg));
+    Message deserialized = assertDoesNotThrow(() -> deserialize(json), json);
+    assertTrue(((Message.LobbyCreate)deserialized.getMessage()).isBot());
+
+    // Messages from clients that do not know the flag create a normal room.
+    String legacy = json.replace(",\"bot\":true", "");
+    assertNotEquals(json, legacy);
+    Message old = assertDoesNotThrow(() -> deserialize(legacy), legacy);
+    assertFalse(((Message.LobbyCreate)old.getMessage()).isBot());
+  }
+
+  @Test
+  void testSerializeDeserializeAnalysis() {
+    Message request = new Message(new Message.AnalyzeRequest(12, 500));
+    String json = assertDoesNotThrow(() -> serialize(request));
+    Message parsed = assertDoesNotThrow(() -> deserialize(json), json);
+    assertEquals(Message.Type.AnalyzeRequest, parsed.getType());
+    Message.AnalyzeRequest body = (Message.AnalyzeRequest)parsed.getMessage();
+    assertEquals(12, body.getDepth());
+    assertEquals(500, body.getTimeMs());
+
+    Message result = new Message(new Message.AnalyzeResult(
+        List.of(new Message.MoveScore(2, 3, 150),
+                new Message.MoveScore(5, 4, -40)),
+        7, true));
+    String resultJson = assertDoesNotThrow(() -> serialize(result));
+    Message parsedResult =
+        assertDoesNotThrow(() -> deserialize(resultJson), resultJson);
+    assertEquals(Message.Type.AnalyzeResult, parsedResult.getType());
+    Message.AnalyzeResult scores =
+        (Message.AnalyzeResult)parsedResult.getMessage();
+    assertEquals(7, scores.getDepth());
+    assertTrue(scores.isComplete());
+    assertEquals(2, scores.getMoves().size());
+    assertEquals(4, scores.getMoves().get(1).getCol());
+    assertEquals(-40, scores.getMoves().get(1).getScore());
+  }
+
   @Test
   void testSerializeDeserializeLobbyUpdate() {
     // Create a map of LobbyRooms for LobbyUpdate
@@ -0,0 +1,68 @@
+package com.reversi.common;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.ForkJoinPool;
+import org.junit.jupiter.api.Test;
+
+public class PerftTest {
+  /**
+   * Known leaf counts from the default starting position for depths 0..9.
+   */
+  private static final long[] EXPECTED = {
+      1, 4, 12, 56, 244, 1396, 8200, 55092, 390216, 3005288};
+
+  @Test
+  public void testKnownNodeCounts() {
+    for (int depth = 0; depth < EXPECTED.length; depth++) {
+      assertEquals(EXPECTED[depth], Perft.perft(new ReversiGame(), depth),
+                   "Unexpected perft result at depth " + depth);
+    }
+  }
+
+  @Test
+  public void testParallelMatchesSequential() {
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      for (int depth = 1; depth < EXPECTED.length; depth++) {
+        assertEquals(EXPECTED[depth],
+                     Perft.perft(new ReversiGame(), depth, pool),
+                     "Unexpected parallel perft result at depth " + depth);
+      }
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  public void testPerftRestoresPosition() {
+    ReversiGame game = new ReversiGame();
+    game.makeMove(2, 3);
+    ReversiGame before = game.copy();
+    Perft.perft(game, 6);
+    assertEquals(before, game);
+    assertEquals(before.getHash(), game.getHash());
+  }
+
+  @Test
+  public void testGameOverCountsAsLeaf() {
+    // Black has wiped out White, so neither side can move.
+    Board board = new Board("BB......0"
+                            + "........0"
+                            + "........0"
+                            + "........0"
+                            + "........0"
+                            + "........0"
+                            + "........0"
+                            + "........0");
+    assertEquals(1, Perft.perft(new ReversiGame(board, Player.White), 5));
+  }
+
+  @Test
+  public void testRunReportsThroughput() {
+    Perft.Result result = Perft.run(new ReversiGame(), 7, null);
+    assertEquals(EXPECTED[7], result.getNodes());
+    assertTrue(result.getElapsedNanos() > 0);
+    assertTrue(result.getNodesPerSecond() > 0);
+  }
+}
@@ -97,6 +97,69 @@ public class ReversiGameTest {
                  "Turn should switch back to Black after White's move.");
   }
 
+  @Test
+  public void testUnmakeMoveRestoresPosition() {
+    ReversiGame game = new ReversiGame();
+    String initial = game.getBoard().toString();
+
+    MoveRecord first = game.play(2, 3);
+    assertNotNull(first);
+    assertEquals(Player.Black, first.getPreviousPlayer());
+    assertFalse(first.isPass());
+    String afterFirst = game.getBoard().toString();
+
+    MoveRecord second = game.play(2, 2);
+    assertNotNull(second);
+    assertNull(game.play(0, 0), "An invalid move should produce no record.");
+
+    game.unmakeMove(second);
+    assertEquals(afterFirst, game.getBoard().toString());
+    assertEquals(Player.White, game.getCurrentPlayer());
+
+    game.unmakeMove(first);
+    assertEquals(initial, game.getBoard().toString());
+    assertEquals(Player.Black, game.getCurrentPlayer());
+  }
+
+  @Test
+  public void testHashIncludesSideToMove() {
+    ReversiGame black = new ReversiGame(Board.createDefault(), Player.Black);
+    ReversiGame white = new ReversiGame(Board.createDefault(), Player.White);
+    assertNotEquals(black.getHash(), white.getHash());
+    assertEquals(new ReversiGame().getHash(), black.getHash());
+    assertEquals(new ReversiGame().hashCode(), black.hashCode());
+
+    long initial = black.getHash();
+    MoveRecord move = black.play(2, 3);
+    assertNotEquals(initial, black.getHash());
+    black.unmakeMove(move);
+    assertEquals(initial, black.getHash());
+  }
+
+  @Test
+  public void testPassOnlyWithoutValidMoves() {
+    ReversiGame game = new ReversiGame();
+    assertNull(game.pass(), "Black has moves, so passing is not allowed.");
+
+    // The only white disc sits in the corner, so Black cannot bracket it.
+    Board board = new Board("WB......0"
+                            + "........0"
+                            + "........0"
+                            + "........0"
+                            + "........0"
+                            + "........0"
+                            + "........0"
+                            + "........0");
+    ReversiGame stuck = new ReversiGame(board, Player.Black);
+    MoveRecord pass = stuck.pass();
+    assertNotNull(pass);
+    assertTrue(pass.isPass());
+    assertEquals(Player.White, stuck.getCurrentPlayer());
+
+    stuck.unmakeMove(pass);
+    assertEquals(Player.Black, stuck.getCurrentPlayer());
+  }
+
   @Test
   public void testBoardSerialization() throws Exception {
     ObjectMapper mapper = new ObjectMapper();
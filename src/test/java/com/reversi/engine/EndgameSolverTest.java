@@ -0,0 +1,144 @@
+package com.reversi.engine;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.reversi.common.Board;
+import com.reversi.common.Player;
+import com.reversi.common.ReversiGame;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+public class EndgameSolverTest {
+  /** Plain negamax to the end of the game, used as the reference. */
+  private static int bruteForce(long own, long opp) {
+    long moves = Board.legalMoves(own, opp);
+    if (moves == 0) {
+      if (Board.legalMoves(opp, own) == 0)
+        return EndgameSolver.finalScore(own, opp);
+      return -bruteForce(opp, own);
+    }
+    int best = -65;
+    while (moves != 0) {
+      int sq = Long.numberOfTrailingZeros(moves);
+      moves &= moves - 1;
+      long flips = Board.flips(own, opp, sq);
+      best = Math.max(best,
+                      -bruteForce(opp & ~flips, own | flips | (1L << sq)));
+    }
+    return best;
+  }
+
+  private static ReversiGame endgame(Random random, int empties) {
+    ReversiGame game;
+    do {
+      game = SearcherTest.randomPosition(random, 60 - empties);
+    } while (isOver(game));
+    return game;
+  }
+
+  private static boolean isOver(ReversiGame game) {
+    long black = game.getBoard().getDiscs(Player.Black);
+    long white = game.getBoard().getDiscs(Player.White);
+    return Board.legalMoves(black, white) == 0 &&
+           Board.legalMoves(white, black) == 0;
+  }
+
+  @Test
+  public void testMatchesBruteForce() {
+    Random random = new Random(13);
+    EndgameSolver solver = new EndgameSolver(new TranspositionTable(1 << 16));
+    for (int i = 0; i < 30; i++) {
+      ReversiGame game = endgame(random, 8 + random.nextInt(3));
+      Player player = game.getCurrentPlayer();
+      long own = game.getBoard().getDiscs(player);
+      long opp = game.getBoard().getDiscs(player.opponent());
+      SearchResult result = solver.solve(game);
+      assertEquals(bruteForce(own, opp), result.getScore(),
+                   "Score mismatch for " + game.getBoard());
+    }
+  }
+
+  @Test
+  public void testBestMoveAchievesScore() {
+    Random random = new Random(21);
+    EndgameSolver solver = new EndgameSolver(new TranspositionTable(1 << 16));
+    for (int i = 0; i < 10; i++) {
+      ReversiGame game = endgame(random, 10);
+      SearchResult result = solver.solve(game);
+      if (result.getMove() == SearchResult.PASS)
+        continue;
+      Player player = game.getCurrentPlayer();
+      ReversiGame child = game.copy();
+      assertTrue(child.makeMove(result.getRow(), result.getCol()));
+      long own = child.getBoard().getDiscs(player);
+      long opp = child.getBoard().getDiscs(player.opponent());
+      int after = child.getCurrentPlayer() == player ? bruteForce(own, opp)
+                                                     : -bruteForce(opp, own);
+      assertEquals(result.getScore(), after);
+    }
+  }
+
+  @Test
+  public void testAgreesWithSearcher() {
+    Random random = new Random(5);
+    ReversiGame game = endgame(random, 14);
+    SearchResult exact = new EndgameSolver().solve(game);
+    SearchResult search = new Searcher().search(game, SearchLimits.depth(14));
+    int score = search.getScore();
+    int discs = score > 0   ? (score - Searcher.WIN_SCORE) / 100
+                : score < 0 ? (score + Searcher.WIN_SCORE) / 100
+                            : 0;
+    assertEquals(discs, exact.getScore());
+  }
+
+  @Test
+  public void testStableDiscs() {
+    // A full top row, owned by Black, is stable; a lone corner disc too.
+    Board board = Board.createDefault();
+    board.set(3, 3, Player.None);
+    board.set(4, 4, Player.None);
+    board.set(3, 4, Player.None);
+    for (int col = 0; col < 8; col++)
+      board.set(0, col, Player.Black);
+    board.set(7, 7, Player.Black);
+    board.set(4, 4, Player.Black);
+    board.set(4, 3, Player.White);
+    long black = board.getDiscs(Player.Black);
+    long white = board.getDiscs(Player.White);
+    long stable = EndgameSolver.stableDiscs(black, white);
+    assertEquals(0xFFL | (1L << 63), stable);
+  }
+
+  @Test
+  public void testNodeBudgetReturnsNull() {
+    ReversiGame game = endgame(new Random(3), 20);
+    EndgameSolver solver = new EndgameSolver();
+    assertNull(solver.solve(game.getBoard(), game.getCurrentPlayer(),
+                            new SearchLimits(0, 1000, 0)));
+  }
+
+  @Test
+  public void testPositionWithManyMoves() {
+    long own = 0x08107406213c0800L;
+    long opp = 0x006a024052405600L;
+    Board board = Board.createDefault();
+    for (int sq = 0; sq < 64; sq++) {
+      Player disc = (own >>> sq & 1) != 0   ? Player.Black
+                    : (opp >>> sq & 1) != 0 ? Player.White
+                                            : Player.None;
+      board.set(sq / 8, sq % 8, disc);
+    }
+    assertEquals(35, Long.bitCount(board.getValidMoveMask(Player.Black)));
+    // More moves than the old per-ply scratch space held.
+    assertNull(new EndgameSolver().solve(board, Player.Black,
+                                         new SearchLimits(0, 1000, 0)));
+  }
+
+  @Test
+  public void testSolveDoesNotModifyGame() {
+    ReversiGame game = endgame(new Random(8), 10);
+    Board before = new Board(game.getBoard());
+    new EndgameSolver().solve(game);
+    assertEquals(before, game.getBoard());
+  }
+}
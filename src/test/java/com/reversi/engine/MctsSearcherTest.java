@@ -0,0 +1,111 @@
+package com.reversi.engine;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.reversi.common.Board;
+import com.reversi.common.Player;
+import com.reversi.common.ReversiGame;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+public class MctsSearcherTest {
+  private static ReversiGame endgame(Random random, int empties) {
+    while (true) {
+      ReversiGame game = SearcherTest.randomPosition(random, 60 - empties);
+      if (Long.bitCount(game.getValidMoveMask()) > 1)
+        return game;
+    }
+  }
+
+  @Test
+  public void testPlayoutBudgetIsExact() {
+    ReversiGame game = SearcherTest.randomPosition(new Random(1), 20);
+    MctsSearcher searcher = new MctsSearcher();
+    SearchResult result = searcher.search(game, new SearchLimits(0, 5000, 0));
+    assertEquals(5000, result.getNodes());
+    assertTrue(game.isValidMove(result.getRow(), result.getCol()));
+    assertTrue(result.getScore() >= -100 && result.getScore() <= 100);
+  }
+
+  @Test
+  public void testFindsWinningSideOfSmallEndgames() {
+    Random random = new Random(7);
+    EndgameSolver solver = new EndgameSolver();
+    MctsSearcher searcher = new MctsSearcher();
+    searcher.setSeed(11);
+    for (int i = 0; i < 10; i++) {
+      ReversiGame game = endgame(random, 6);
+      int exact = solver.solve(game).getScore();
+      SearchResult result =
+          searcher.search(game, new SearchLimits(0, 20_000, 0));
+      ReversiGame child = game.copy();
+      child.makeMove(result.getRow(), result.getCol());
+      // The chosen move must keep the exact outcome: win, draw or loss. The
+      // solver scores the child for the opponent, passing if it must.
+      int after = -solver.solve(child).getScore();
+      assertEquals(Integer.signum(exact), Integer.signum(after),
+                   "Wrong outcome in " + game.getBoard());
+    }
+  }
+
+  @Test
+  public void testTreeIsReusedAfterTwoMoves() {
+    ReversiGame game = SearcherTest.randomPosition(new Random(3), 16);
+    MctsSearcher searcher = new MctsSearcher();
+    searcher.setSeed(5);
+    SearchResult first = searcher.search(game, new SearchLimits(0, 20_000, 0));
+    game.makeMove(first.getRow(), first.getCol());
+    // Any reply was expanded: every move got playouts above.
+    long replies = game.getValidMoveMask();
+    int reply = Long.numberOfTrailingZeros(replies);
+    game.makeMove(reply / 8, reply % 8);
+    searcher.search(game, new SearchLimits(0, 1000, 0));
+    assertTrue(searcher.getRootVisits() > 1000,
+               "Root visits " + searcher.getRootVisits());
+  }
+
+  @Test
+  public void testUnrelatedPositionStartsFreshTree() {
+    MctsSearcher searcher = new MctsSearcher();
+    searcher.search(SearcherTest.randomPosition(new Random(3), 16),
+                    new SearchLimits(0, 2000, 0));
+    searcher.search(SearcherTest.randomPosition(new Random(4), 30),
+                    new SearchLimits(0, 500, 0));
+    assertEquals(500, searcher.getRootVisits());
+  }
+
+  @Test
+  public void testParallelPlayoutsShareBudget() {
+    ReversiGame game = SearcherTest.randomPosition(new Random(2), 24);
+    try (MctsSearcher searcher =
+             new MctsSearcher(3, MctsSearcher.DEFAULT_EXPLORATION, true)) {
+      SearchResult result =
+          searcher.search(game, new SearchLimits(0, 9000, 0));
+      assertEquals(9000, result.getNodes());
+      assertEquals(9000, searcher.getRootVisits());
+      assertTrue(game.isValidMove(result.getRow(), result.getCol()));
+    }
+  }
+
+  @Test
+  public void testTimeLimit() {
+    ReversiGame game = SearcherTest.randomPosition(new Random(6), 10);
+    SearchResult result =
+        new MctsSearcher().search(game, SearchLimits.time(100));
+    assertTrue(result.getElapsedNanos() < 1_000_000_000L);
+    assertTrue(result.getNodes() > 0);
+  }
+
+  @Test
+  public void testPassWhenNoMove() {
+    Board board = Board.createDefault();
+    for (int r = 3; r <= 4; r++)
+      for (int c = 3; c <= 4; c++)
+        board.set(r, c, Player.None);
+    board.set(0, 0, Player.White);
+    board.set(0, 1, Player.Black);
+    SearchResult result = new MctsSearcher().search(
+        board, Player.Black, new SearchLimits(0, 100, 0));
+    assertEquals(SearchResult.PASS, result.getMove());
+  }
+}
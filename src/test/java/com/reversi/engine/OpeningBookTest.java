@@ -0,0 +1,173 @@
+package com.reversi.engine;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.reversi.common.Board;
+import com.reversi.common.Player;
+import com.reversi.common.ReversiGame;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class OpeningBookTest {
+  @TempDir Path dir;
+
+  /** Plays a random game to the end and returns its transcript. */
+  private static String randomGame(Random random) {
+    ReversiGame game = new ReversiGame();
+    StringBuilder transcript = new StringBuilder();
+    int passes = 0;
+    while (passes < 2) {
+      long mask = game.getValidMoveMask();
+      if (mask == 0) {
+        game.pass();
+        passes++;
+        continue;
+      }
+      passes = 0;
+      int pick = random.nextInt(Long.bitCount(mask));
+      for (int i = 0; i < pick; i++)
+        mask &= mask - 1;
+      int sq = Long.numberOfTrailingZeros(mask);
+      game.play(sq / 8, sq % 8);
+      transcript.append((char)('a' + sq % 8)).append(sq / 8 + 1);
+    }
+    return transcript.toString();
+  }
+
+  @Test
+  public void testSymmetriesPreserveMoves() {
+    Random random = new Random(4);
+    for (int i = 0; i < 20; i++) {
+      ReversiGame game = SearcherTest.randomPosition(random, 20);
+      long black = game.getBoard().getDiscs(Player.Black);
+      long white = game.getBoard().getDiscs(Player.White);
+      long moves = Board.legalMoves(black, white);
+      for (int s = 0; s < BoardSymmetry.COUNT; s++) {
+        long b = BoardSymmetry.transform(black, s);
+        long w = BoardSymmetry.transform(white, s);
+        assertEquals(BoardSymmetry.transform(moves, s), Board.legalMoves(b, w));
+        int inverse = BoardSymmetry.inverse(s);
+        assertEquals(black, BoardSymmetry.transform(b, inverse));
+        for (int sq = 0; sq < 64; sq++)
+          assertEquals(sq, BoardSymmetry.square(BoardSymmetry.square(sq, s),
+                                                inverse));
+      }
+    }
+  }
+
+  @Test
+  public void testSymmetriesAreDistinct() {
+    long asymmetric = 0x0000000000000106L;
+    for (int s = 0; s < BoardSymmetry.COUNT; s++) {
+      for (int t = s + 1; t < BoardSymmetry.COUNT; t++)
+        assertNotEquals(BoardSymmetry.transform(asymmetric, s),
+                        BoardSymmetry.transform(asymmetric, t));
+    }
+  }
+
+  @Test
+  public void testBookMovesFollowGames() throws IOException {
+    Random random = new Random(9);
+    OpeningBookBuilder builder = new OpeningBookBuilder(12, 1);
+    String[] games = new String[50];
+    for (int i = 0; i < games.length; i++) {
+      games[i] = randomGame(random);
+      assertTrue(builder.addGame(games[i]));
+    }
+    Path path = dir.resolve("book.bin");
+    int written = builder.write(path);
+    assertEquals(builder.getPositions(), written);
+
+    try (OpeningBook book = OpeningBook.open(path)) {
+      assertEquals(written, book.size());
+      // The four first moves are equivalent, so they share one record.
+      assertEquals(50, book.lookup(new ReversiGame()).getVisits());
+      // Every recorded position is in the book with a legal move.
+      for (String transcript : games) {
+        ReversiGame game = new ReversiGame();
+        for (int ply = 0; ply < 12; ply++) {
+          if (game.getValidMoveMask() == 0)
+            game.pass();
+          OpeningBook.Entry entry = book.lookup(game);
+          assertNotNull(entry);
+          assertTrue(game.isValidMove(entry.getRow(), entry.getCol()));
+          game.play(transcript.charAt(2 * ply + 1) - '1',
+                    transcript.charAt(2 * ply) - 'a');
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testLookupFoldsSymmetries() throws IOException {
+    OpeningBookBuilder builder = new OpeningBookBuilder(20, 1);
+    String transcript = randomGame(new Random(17));
+    assertTrue(builder.addGame(transcript));
+    Path path = dir.resolve("book.bin");
+    builder.write(path);
+
+    ReversiGame game = new ReversiGame();
+    for (int ply = 0; ply < 6; ply++) {
+      int col = transcript.charAt(2 * ply) - 'a';
+      int row = transcript.charAt(2 * ply + 1) - '1';
+      game.play(row, col);
+    }
+    int expected = Board.square(transcript.charAt(13) - '1',
+                                transcript.charAt(12) - 'a');
+    long black = game.getBoard().getDiscs(Player.Black);
+    long white = game.getBoard().getDiscs(Player.White);
+
+    try (OpeningBook book = OpeningBook.open(path)) {
+      for (int s = 0; s < BoardSymmetry.COUNT; s++) {
+        Board board = Board.createDefault();
+        for (int sq = 0; sq < 64; sq++) {
+          Player p = (black >>> sq & 1) != 0   ? Player.Black
+                     : (white >>> sq & 1) != 0 ? Player.White
+                                               : Player.None;
+          int image = BoardSymmetry.square(sq, s);
+          board.set(image / 8, image % 8, p);
+        }
+        OpeningBook.Entry entry = book.lookup(board, game.getCurrentPlayer());
+        assertNotNull(entry, "Missing symmetry " + s);
+        assertEquals(BoardSymmetry.square(expected, s), entry.getMove());
+      }
+    }
+  }
+
+  @Test
+  public void testRejectsIllegalOrIncompleteGames() {
+    OpeningBookBuilder builder = new OpeningBookBuilder(20, 1);
+    assertFalse(builder.addGame("a1"));
+    assertFalse(builder.addGame("f5d6c3"));
+    assertFalse(builder.addGame("z9"));
+    assertEquals(0, builder.getGames());
+  }
+
+  @Test
+  public void testMinVisitsFiltersRareMoves() throws IOException {
+    OpeningBookBuilder builder = new OpeningBookBuilder(10, 2);
+    Random random = new Random(1);
+    String game = randomGame(random);
+    builder.addGame(game);
+    builder.addGame(game);
+    builder.addGame(randomGame(random));
+    Path path = dir.resolve("book.bin");
+    builder.write(path);
+    try (OpeningBook book = OpeningBook.open(path)) {
+      OpeningBook.Entry entry = book.lookup(new ReversiGame());
+      assertNotNull(entry);
+      assertTrue(entry.getVisits() >= 2);
+    }
+  }
+
+  @Test
+  public void testOpenRejectsInvalidFile() throws IOException {
+    Path path = dir.resolve("bad.bin");
+    Files.write(path, new byte[20]);
+    assertThrows(IOException.class, () -> OpeningBook.open(path));
+  }
+}
@@ -0,0 +1,55 @@
+package com.reversi.engine;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.reversi.common.Board;
+import com.reversi.common.Player;
+import com.reversi.common.ReversiGame;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+public class ParallelSearcherTest {
+  @Test
+  public void testReturnsLegalMoveWithinBudget() {
+    ReversiGame game = SearcherTest.randomPosition(new Random(21), 20);
+    ReversiGame before = game.copy();
+    try (ParallelSearcher searcher = new ParallelSearcher(
+             4, new HeuristicEvaluator(), new TranspositionTable(1 << 18))) {
+      SearchResult result = searcher.search(game, SearchLimits.time(200));
+      assertTrue(game.isValidMove(result.getRow(), result.getCol()));
+      assertTrue(result.getDepth() >= 1);
+      assertTrue(result.getElapsedNanos() < 2_000_000_000L);
+    }
+    assertEquals(before, game);
+  }
+
+  @Test
+  public void testSolvedScoreMatchesSingleThread() {
+    Random random = new Random(17);
+    try (ParallelSearcher searcher = new ParallelSearcher(
+             3, new HeuristicEvaluator(), new TranspositionTable(1 << 18))) {
+      for (int i = 0; i < 4; i++) {
+        ReversiGame game = SearcherTest.randomPosition(random, 50);
+        Player player = game.getCurrentPlayer();
+        Board board = game.getBoard();
+        if (Long.bitCount(board.getValidMoveMask(player)) < 2)
+          continue;
+        SearchLimits exact = new SearchLimits(0, 0, 0);
+        int expected = new Searcher().search(game, exact).getScore();
+        assertEquals(expected, searcher.search(game, exact).getScore());
+      }
+    }
+  }
+
+  @Test
+  public void testNodeBudgetIsShared() {
+    ReversiGame game = SearcherTest.randomPosition(new Random(4), 24);
+    try (ParallelSearcher searcher = new ParallelSearcher(
+             2, new HeuristicEvaluator(), new TranspositionTable(1 << 16))) {
+      SearchResult result =
+          searcher.search(game, new SearchLimits(0, 40_000, 0));
+      assertTrue(result.getNodes() <= 40_000 + 2 * 1024,
+                 "Searched " + result.getNodes() + " nodes");
+    }
+  }
+}
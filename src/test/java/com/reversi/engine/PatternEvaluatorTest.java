@@ -0,0 +1,108 @@
+package com.reversi.engine;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.reversi.common.Player;
+import com.reversi.common.ReversiGame;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+public class PatternEvaluatorTest {
+  private static GameRecord randomGame(Random random) {
+    ReversiGame game = new ReversiGame();
+    int[] moves = new int[60];
+    int count = 0;
+    while (!GameRecord.isOver(game)) {
+      long mask = game.getValidMoveMask();
+      if (mask == 0) {
+        game.pass();
+        continue;
+      }
+      int pick = random.nextInt(Long.bitCount(mask));
+      for (int i = 0; i < pick; i++)
+        mask &= mask - 1;
+      int sq = Long.numberOfTrailingZeros(mask);
+      game.play(sq / 8, sq % 8);
+      moves[count++] = sq;
+    }
+    return GameRecord.replay(Arrays.copyOf(moves, count));
+  }
+
+  @Test
+  public void testPatternOrientations() {
+    // 4 edges, 4 corners, 8 2x5 blocks, 2 + 4 * 4 diagonals.
+    assertEquals(34, PatternEvaluator.INSTANCE_COUNT);
+  }
+
+  @Test
+  public void testIndicesMatchPatternOrder() {
+    Random random = new Random(15);
+    int[] indices = new int[PatternEvaluator.INSTANCE_COUNT];
+    for (int n = 0; n < 50; n++) {
+      ReversiGame game = SearcherTest.randomPosition(random, 50);
+      long own = game.getBoard().getDiscs(Player.Black);
+      long opp = game.getBoard().getDiscs(Player.White);
+      PatternEvaluator.indices(own, opp, indices);
+      for (int i = 0; i < indices.length; i++) {
+        int expected = 0;
+        for (int sq : PatternEvaluator.INSTANCE_SQUARES[i]) {
+          int digit = (own >>> sq & 1) != 0   ? 1
+                      : (opp >>> sq & 1) != 0 ? 2
+                                              : 0;
+          expected = expected * 3 + digit;
+        }
+        assertEquals(expected, indices[i]);
+      }
+    }
+  }
+
+  @Test
+  public void testZeroWeights() {
+    ReversiGame game = new ReversiGame();
+    assertEquals(0, new PatternEvaluator().evaluate(
+                        game.getBoard().getDiscs(Player.Black),
+                        game.getBoard().getDiscs(Player.White)));
+  }
+
+  @Test
+  public void testTrainingReducesError() {
+    Random random = new Random(2);
+    PatternTrainer trainer = new PatternTrainer();
+    for (int i = 0; i < 200; i++)
+      trainer.addGame(randomGame(random));
+    double first = trainer.train(1, 0.002, random);
+    double later = trainer.train(5, 0.002, random);
+    assertTrue(later < first, later + " >= " + first);
+  }
+
+  @Test
+  public void testSaveAndLoad() throws IOException {
+    Random random = new Random(6);
+    PatternTrainer trainer = new PatternTrainer();
+    for (int i = 0; i < 50; i++)
+      trainer.addGame(randomGame(random));
+    trainer.train(2, 0.002, random);
+    PatternEvaluator evaluator = trainer.toEvaluator();
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    evaluator.save(out);
+    PatternEvaluator loaded =
+        PatternEvaluator.load(new ByteArrayInputStream(out.toByteArray()));
+    for (int i = 0; i < 50; i++) {
+      ReversiGame game = SearcherTest.randomPosition(random, 40);
+      long own = game.getBoard().getDiscs(game.getCurrentPlayer());
+      long opp = game.getBoard().getDiscs(game.getCurrentPlayer().opponent());
+      assertEquals(evaluator.evaluate(own, opp), loaded.evaluate(own, opp));
+    }
+  }
+
+  @Test
+  public void testLoadRejectsOtherFiles() {
+    ByteArrayInputStream in = new ByteArrayInputStream(new byte[16]);
+    assertThrows(IOException.class, () -> PatternEvaluator.load(in));
+  }
+}
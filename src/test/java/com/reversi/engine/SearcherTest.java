@@ -0,0 +1,190 @@
+package com.reversi.engine;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.reversi.common.Board;
+import com.reversi.common.Player;
+import com.reversi.common.ReversiGame;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+public class SearcherTest {
+  /**
+   * Plays random moves from the starting position, passing when forced, and
+   * returns the resulting game.
+   */
+  static ReversiGame randomPosition(Random random, int plies) {
+    ReversiGame game = new ReversiGame();
+    for (int i = 0; i < plies; i++) {
+      List<int[]> moves =
+          game.getBoard().getValidMoves(game.getCurrentPlayer());
+      if (moves.isEmpty()) {
+        if (game.pass() == null)
+          break;
+        continue;
+      }
+      int[] move = moves.get(random.nextInt(moves.size()));
+      game.makeMove(move[0], move[1]);
+    }
+    return game;
+  }
+
+  /**
+   * Plain negamax without pruning or caching, with the same pass and scoring
+   * rules as the searcher.
+   */
+  private static int minimax(Evaluator evaluator, long own, long opp,
+                             int depth) {
+    long moves = Board.legalMoves(own, opp);
+    if (moves == 0) {
+      if (Board.legalMoves(opp, own) == 0)
+        return Searcher.finalScore(own, opp);
+      return -minimax(evaluator, opp, own, depth);
+    }
+    if (depth == 0)
+      return Math.max(-Searcher.WIN_SCORE + 1,
+                      Math.min(Searcher.WIN_SCORE - 1,
+                               evaluator.evaluate(own, opp)));
+    int best = Integer.MIN_VALUE;
+    while (moves != 0) {
+      int sq = Long.numberOfTrailingZeros(moves);
+      moves &= moves - 1;
+      long flips = Board.flips(own, opp, sq);
+      best = Math.max(best, -minimax(evaluator, opp & ~flips,
+                                     own | flips | (1L << sq), depth - 1));
+    }
+    return best;
+  }
+
+  @Test
+  public void testScoreMatchesMinimax() {
+    Random random = new Random(11);
+    Evaluator evaluator = new HeuristicEvaluator();
+    for (int i = 0; i < 20; i++) {
+      ReversiGame game = randomPosition(random, 10 + random.nextInt(40));
+      Player player = game.getCurrentPlayer();
+      long own = game.getBoard().getDiscs(player);
+      long opp = game.getBoard().getDiscs(player.opponent());
+      if (Long.bitCount(Board.legalMoves(own, opp)) < 2)
+        continue;
+      for (int depth = 1; depth <= 4; depth++) {
+        Searcher searcher =
+            new Searcher(evaluator, new TranspositionTable(1 << 16));
+        SearchResult result = searcher.search(game, SearchLimits.depth(depth));
+        assertEquals(minimax(evaluator, own, opp, depth), result.getScore(),
+                     "Score mismatch at depth " + depth + " for " +
+                         game.getBoard());
+        assertTrue(game.isValidMove(result.getRow(), result.getCol()));
+      }
+    }
+  }
+
+  @Test
+  public void testAnalyzeScoresEveryMove() {
+    Random random = new Random(17);
+    Evaluator evaluator = new HeuristicEvaluator();
+    for (int i = 0; i < 10; i++) {
+      ReversiGame game = randomPosition(random, 10 + random.nextInt(40));
+      Player player = game.getCurrentPlayer();
+      long own = game.getBoard().getDiscs(player);
+      long opp = game.getBoard().getDiscs(player.opponent());
+      long legal = Board.legalMoves(own, opp);
+      if (legal == 0)
+        continue;
+      int[] iterations = new int[1];
+      Searcher searcher =
+          new Searcher(evaluator, new TranspositionTable(1 << 16));
+      searcher.analyze(
+          game.getBoard(), player, SearchLimits.depth(3),
+          (depth, moves, scores) -> {
+            assertEquals(++iterations[0], depth);
+            assertEquals(Long.bitCount(legal), moves.length);
+            for (int k = 0; k < moves.length; k++) {
+              assertTrue((legal & (1L << moves[k])) != 0);
+              if (k > 0)
+                assertTrue(scores[k - 1] >= scores[k]);
+              long flips = Board.flips(own, opp, moves[k]);
+              assertEquals(-minimax(evaluator, opp & ~flips,
+                                    own | flips | (1L << moves[k]),
+                                    depth - 1),
+                           scores[k], "Move " + moves[k] + " at depth " +
+                                          depth + " for " + game.getBoard());
+            }
+          });
+      assertTrue(iterations[0] > 0);
+    }
+  }
+
+  @Test
+  public void testSolvesEndgameExactly() {
+    Random random = new Random(5);
+    Evaluator evaluator = new HeuristicEvaluator();
+    for (int i = 0; i < 5; i++) {
+      ReversiGame game = randomPosition(random, 52);
+      Player player = game.getCurrentPlayer();
+      long own = game.getBoard().getDiscs(player);
+      long opp = game.getBoard().getDiscs(player.opponent());
+      if (Long.bitCount(Board.legalMoves(own, opp)) < 2)
+        continue;
+      SearchResult result =
+          new Searcher().search(game, new SearchLimits(0, 0, 0));
+      assertEquals(minimax(evaluator, own, opp, 64), result.getScore());
+    }
+  }
+
+  @Test
+  public void testSearchDoesNotModifyGame() {
+    ReversiGame game = randomPosition(new Random(3), 20);
+    ReversiGame before = game.copy();
+    new Searcher().search(game, SearchLimits.depth(6));
+    assertEquals(before, game);
+  }
+
+  @Test
+  public void testRepeatedSearchReturnsLegalMove() {
+    // A second search of a position finds it in the table at full depth; it
+    // must still report a move of that position, not of the last search.
+    Searcher searcher = new Searcher();
+    ReversiGame first = randomPosition(new Random(12), 20);
+    ReversiGame second = randomPosition(new Random(13), 22);
+    searcher.search(second, SearchLimits.depth(5));
+    searcher.search(first, SearchLimits.depth(5));
+    SearchResult result = searcher.search(second, SearchLimits.depth(5));
+    assertTrue(second.isValidMove(result.getRow(), result.getCol()));
+  }
+
+  @Test
+  public void testNodeBudgetIsRespected() {
+    ReversiGame game = randomPosition(new Random(8), 24);
+    SearchResult result =
+        new Searcher().search(game, new SearchLimits(0, 20_000, 0));
+    assertTrue(result.getNodes() <= 20_000 + 1024,
+               "Searched " + result.getNodes() + " nodes");
+    assertTrue(result.getDepth() >= 1);
+    assertTrue(game.isValidMove(result.getRow(), result.getCol()));
+  }
+
+  @Test
+  public void testTimeBudgetIsRespected() {
+    ReversiGame game = randomPosition(new Random(9), 20);
+    SearchResult result = new Searcher().search(game, SearchLimits.time(100));
+    assertTrue(result.getElapsedNanos() < 1_000_000_000L,
+               "Search took " + result.getElapsedNanos() + " ns");
+    assertTrue(game.isValidMove(result.getRow(), result.getCol()));
+  }
+
+  @Test
+  public void testPassWhenNoMove() {
+    // The only white disc sits in the corner, so Black cannot bracket it.
+    Board board = Board.createDefault();
+    for (int r = 3; r <= 4; r++)
+      for (int c = 3; c <= 4; c++)
+        board.set(r, c, Player.None);
+    board.set(0, 0, Player.White);
+    board.set(0, 1, Player.Black);
+    ReversiGame stuck = new ReversiGame(board, Player.Black);
+    assertEquals(SearchResult.PASS,
+                 new Searcher().search(stuck, SearchLimits.depth(3)).getMove());
+  }
+}
@@ -0,0 +1,103 @@
+package com.reversi.engine;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.reversi.common.ReversiGame;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+public class TimeManagerTest {
+  /** A clock the test advances by hand. */
+  private static final class ManualClock {
+    long nanos;
+
+    void advanceMillis(long millis) { nanos += millis * 1_000_000L; }
+  }
+
+  @Test
+  public void testBudgetsStayWithinClock() {
+    for (int empties = 1; empties <= 60; empties++) {
+      TimeManager time = new TimeManager(10_000, 500, empties, 0);
+      assertTrue(time.getSoftMillis() <= time.getHardMillis());
+      assertTrue(time.getHardMillis() <=
+                 10_000 - TimeManager.SAFETY_MILLIS);
+    }
+    TimeManager broke = new TimeManager(20, 0, 30, 0);
+    assertEquals(0, broke.getHardMillis());
+  }
+
+  @Test
+  public void testMoreMovesLeftMeansLessTime() {
+    TimeManager opening = new TimeManager(60_000, 0, 56, 0);
+    TimeManager endgame = new TimeManager(60_000, 0, 12, 0);
+    assertTrue(opening.getSoftMillis() < endgame.getSoftMillis());
+  }
+
+  @Test
+  public void testBonusAddsTime() {
+    TimeManager without = new TimeManager(60_000, 0, 40, 0);
+    TimeManager with = new TimeManager(60_000, 2_000, 40, 0);
+    assertTrue(with.getSoftMillis() > without.getSoftMillis());
+  }
+
+  @Test
+  public void testStopsWhenHalfTheBudgetIsSpent() {
+    ManualClock clock = new ManualClock();
+    TimeManager time = new TimeManager(40_000, 0, 40, 0, () -> clock.nanos);
+    long soft = time.getSoftMillis();
+    clock.advanceMillis(soft / 4);
+    assertTrue(time.onIteration(1, 10, 0));
+    clock.advanceMillis(soft / 2);
+    assertFalse(time.onIteration(2, 10, 0));
+  }
+
+  @Test
+  public void testUnstableBestMoveExtendsSearch() {
+    ManualClock stableClock = new ManualClock();
+    ManualClock unstableClock = new ManualClock();
+    TimeManager stable =
+        new TimeManager(40_000, 0, 40, 0, () -> stableClock.nanos);
+    TimeManager unstable =
+        new TimeManager(40_000, 0, 40, 0, () -> unstableClock.nanos);
+    long step = stable.getSoftMillis() / 5;
+    stable.onIteration(1, 10, 0);
+    unstable.onIteration(1, 10, 0);
+    stableClock.advanceMillis(3 * step);
+    unstableClock.advanceMillis(3 * step);
+    // 60% of the soft budget is spent: only a changing best move justifies
+    // another iteration.
+    assertFalse(stable.onIteration(2, 10, 0));
+    assertTrue(unstable.onIteration(2, 20, 0));
+  }
+
+  @Test
+  public void testStopsOnProvenResult() {
+    TimeManager time = new TimeManager(40_000, 0, 40, 0, () -> 0L);
+    assertFalse(time.onIteration(3, 10, Searcher.WIN_SCORE + 200));
+    assertFalse(time.onIteration(4, 10, -Searcher.WIN_SCORE));
+  }
+
+  @Test
+  public void testStopsWhenBestMoveIsStable() {
+    ManualClock clock = new ManualClock();
+    TimeManager time = new TimeManager(40_000, 0, 40, 0, () -> clock.nanos);
+    clock.advanceMillis(time.getSoftMillis() / 3);
+    boolean more = true;
+    int depth = 0;
+    while (more && depth < 20)
+      more = time.onIteration(++depth, 10, 0);
+    assertEquals(6, depth);
+  }
+
+  @Test
+  public void testSearchRespectsHardDeadline() {
+    ReversiGame game = SearcherTest.randomPosition(new Random(4), 20);
+    TimeManager time = new TimeManager(1_000, 0, 40, System.nanoTime());
+    SearchResult result =
+        new Searcher().search(game, new SearchLimits(0, 0, 0), time);
+    assertTrue(result.getElapsedNanos() <
+                   (time.getHardMillis() + 100) * 1_000_000L,
+               "Search took " + result.getElapsedNanos() + " ns");
+    assertTrue(game.isValidMove(result.getRow(), result.getCol()));
+  }
+}
@@ -0,0 +1,94 @@
+package com.reversi.engine;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.reversi.common.ReversiGame;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+public class TournamentTest {
+  @Test
+  public void testEloConversion() {
+    assertEquals(0, Tournament.elo(0.5), 1e-9);
+    assertEquals(190.85, Tournament.elo(0.75), 0.01);
+    assertEquals(-Tournament.elo(0.9), Tournament.elo(0.1), 1e-9);
+  }
+
+  @Test
+  public void testBalancedOpeningsAreLegalAndDistinct() {
+    List<int[]> openings =
+        Tournament.balancedOpenings(4, 10, 300, new Random(3));
+    assertFalse(openings.isEmpty());
+    Set<String> positions = new HashSet<>();
+    for (int[] opening : openings) {
+      assertEquals(4, opening.length);
+      ReversiGame game = new ReversiGame();
+      for (int sq : opening)
+        assertTrue(game.makeMove(sq / 8, sq % 8));
+      assertTrue(positions.add(game.getBoard().toString()));
+    }
+  }
+
+  @Test
+  public void testMatchCountsEveryGame() {
+    Tournament tournament = new Tournament(
+        Tournament.parseEngine("ab:depth=2"),
+        Tournament.parseEngine("mcts:playouts=50,light"), 60_000, 0, 2);
+    List<int[]> openings =
+        Tournament.balancedOpenings(4, 3, 300, new Random(5));
+    Tournament.Result result = tournament.run(openings, 3);
+    assertEquals(6, result.getGames());
+    assertEquals(6,
+                 result.getWins() + result.getDraws() + result.getLosses());
+    assertTrue(result.getNodesPerSecond(0) > 0);
+    assertTrue(result.getNodesPerSecond(1) > 0);
+    assertTrue(Double.isFinite(result.getElo()));
+    assertTrue(result.getEloMargin() > 0);
+  }
+
+  @Test
+  public void testOneSidedMatchHasMargin() {
+    Tournament.Result sweep =
+        new Tournament.Result(6, 0, 0, new long[2], new long[2], 0);
+    assertTrue(sweep.getEloMargin() > 0);
+    assertTrue(Double.isFinite(sweep.getEloMargin()));
+    Tournament.Result even =
+        new Tournament.Result(30, 40, 30, new long[2], new long[2], 0);
+    Tournament.Result longer =
+        new Tournament.Result(300, 400, 300, new long[2], new long[2], 0);
+    assertTrue(longer.getEloMargin() < even.getEloMargin());
+  }
+
+  @Test
+  public void testSlowEngineLosesOnTime() {
+    Tournament.Engine fast = (game, clock) -> {
+      long moves = game.getValidMoveMask();
+      return new SearchResult(Long.numberOfTrailingZeros(moves), 0, 1, 1,
+                              1_000_000L);
+    };
+    Tournament.Engine slow = (game, clock) -> {
+      long moves = game.getValidMoveMask();
+      return new SearchResult(Long.numberOfTrailingZeros(moves), 0, 1, 1,
+                              2_000_000_000L);
+    };
+    Tournament tournament =
+        new Tournament(() -> fast, () -> slow, 10_000, 0, 1);
+    assertEquals(1, tournament.playGame(fast, slow, new int[0],
+                                        new long[2], new long[2]));
+    assertEquals(-1, tournament.playGame(slow, fast, new int[0],
+                                         new long[2], new long[2]));
+  }
+
+  @Test
+  public void testRejectsUnknownEngine() {
+    assertThrows(IllegalArgumentException.class,
+                 () -> Tournament.parseEngine("random"));
+    assertThrows(IllegalArgumentException.class,
+                 () -> Tournament.parseEngine("ab:depth=x"));
+    assertThrows(IllegalArgumentException.class,
+                 () -> Tournament.parseEngine("ab:width=3"));
+  }
+}
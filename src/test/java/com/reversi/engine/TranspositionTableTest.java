@@ -0,0 +1,38 @@
+package com.reversi.engine;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+public class TranspositionTableTest {
+  @Test
+  public void testStoreAndProbe() {
+    TranspositionTable table = new TranspositionTable(1000);
+    assertEquals(1024, table.capacity());
+    assertEquals(0L, table.probe(42L));
+
+    table.store(42L, -1234, 7, TranspositionTable.LOWER, 63);
+    long entry = table.probe(42L);
+    assertNotEquals(0L, entry);
+    assertEquals(-1234, TranspositionTable.score(entry));
+    assertEquals(7, TranspositionTable.depth(entry));
+    assertEquals(TranspositionTable.LOWER, TranspositionTable.bound(entry));
+    assertEquals(63, TranspositionTable.move(entry));
+
+    // A different key mapping to the same slot is a miss.
+    assertEquals(0L, table.probe(42L + 1024));
+  }
+
+  @Test
+  public void testZeroEntryIsDistinguishable() {
+    TranspositionTable table = new TranspositionTable(16);
+    table.store(5L, 0, 0, TranspositionTable.EXACT, 0);
+    long entry = table.probe(5L);
+    assertNotEquals(0L, entry);
+    assertEquals(0, TranspositionTable.score(entry));
+    assertEquals(0, TranspositionTable.move(entry));
+
+    table.clear();
+    assertEquals(0L, table.probe(5L));
+  }
+}
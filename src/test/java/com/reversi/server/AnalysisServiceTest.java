@@ -0,0 +1,104 @@
+package com.reversi.server;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.reversi.common.Message;
+import com.reversi.common.ReversiGame;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+public class AnalysisServiceTest {
+  private static final class Results {
+    final List<Message.AnalyzeResult> received = new CopyOnWriteArrayList<>();
+    final CountDownLatch complete = new CountDownLatch(1);
+
+    void accept(Message.AnalyzeResult result) {
+      received.add(result);
+      if (result.isComplete())
+        complete.countDown();
+    }
+
+    Message.AnalyzeResult await() throws InterruptedException {
+      assertTrue(complete.await(10, TimeUnit.SECONDS));
+      return received.get(received.size() - 1);
+    }
+  }
+
+  @Test
+  public void testStreamsProgressiveResults() throws Exception {
+    try (AnalysisService service = new AnalysisService(1, 4)) {
+      Results results = new Results();
+      assertEquals(AnalysisService.Admission.ACCEPTED,
+                   service.submit(1, new ReversiGame(),
+                                  new Message.AnalyzeRequest(4, 0),
+                                  results::accept));
+      Message.AnalyzeResult last = results.await();
+      assertEquals(4, last.getDepth());
+      assertEquals(4, last.getMoves().size());
+      // One partial result per iteration, then the complete one.
+      assertEquals(5, results.received.size());
+      for (int i = 0; i < 4; i++) {
+        assertFalse(results.received.get(i).isComplete());
+        assertEquals(i + 1, results.received.get(i).getDepth());
+      }
+    }
+  }
+
+  @Test
+  public void testCachesFinishedPositions() throws Exception {
+    try (AnalysisService service = new AnalysisService(1, 4)) {
+      Results first = new Results();
+      service.submit(1, new ReversiGame(), new Message.AnalyzeRequest(3, 0),
+                     first::accept);
+      first.await();
+      assertEquals(1, service.getCacheSize());
+
+      // Another client asking for the same or a shallower depth gets the
+      // cached result at once, on its own thread.
+      Results second = new Results();
+      service.submit(2, new ReversiGame(), new Message.AnalyzeRequest(2, 0),
+                     second::accept);
+      assertEquals(1, second.received.size());
+      assertSame(first.await(), second.await());
+    }
+  }
+
+  @Test
+  public void testRateLimitsEachClient() {
+    long[] now = {0};
+    try (AnalysisService service =
+             new AnalysisService(1, 4, () -> now[0])) {
+      ReversiGame game = new ReversiGame();
+      Message.AnalyzeRequest request = new Message.AnalyzeRequest(1, 0);
+      for (int i = 0; i < AnalysisService.BURST; i++)
+        assertEquals(AnalysisService.Admission.ACCEPTED,
+                     service.submit(1, game.copy(), request, r -> {}));
+      assertEquals(AnalysisService.Admission.RATE_LIMITED,
+                   service.submit(1, game.copy(), request, r -> {}));
+      // Other clients have their own allowance.
+      assertEquals(AnalysisService.Admission.ACCEPTED,
+                   service.submit(2, game.copy(), request, r -> {}));
+
+      now[0] += AnalysisService.REFILL_MILLIS;
+      assertEquals(AnalysisService.Admission.ACCEPTED,
+                   service.submit(1, game.copy(), request, r -> {}));
+      assertEquals(AnalysisService.Admission.RATE_LIMITED,
+                   service.submit(1, game.copy(), request, r -> {}));
+    }
+  }
+
+  @Test
+  public void testForgetsDisconnectedClients() {
+    try (AnalysisService service = new AnalysisService(1, 4, () -> 0)) {
+      Message.AnalyzeRequest request = new Message.AnalyzeRequest(1, 0);
+      service.submit(1, new ReversiGame(), request, r -> {});
+      service.submit(2, new ReversiGame(), request, r -> {});
+      assertEquals(2, service.getClientCount());
+      service.forgetClient(1);
+      assertEquals(1, service.getClientCount());
+    }
+  }
+}
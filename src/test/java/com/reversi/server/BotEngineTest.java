@@ -0,0 +1,73 @@
+package com.reversi.server;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.reversi.common.FischerClock;
+import com.reversi.common.ReversiGame;
+import com.reversi.engine.GameRecord;
+import com.reversi.engine.OpeningBook;
+import com.reversi.engine.OpeningBookBuilder;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class BotEngineTest {
+  @TempDir Path dir;
+
+  /** Plays the lowest legal square until the end of the game. */
+  private static int[] firstMoveGame() {
+    ReversiGame game = new ReversiGame();
+    List<Integer> squares = new ArrayList<>();
+    while (!GameRecord.isOver(game)) {
+      long mask = game.getValidMoveMask();
+      if (mask == 0) {
+        game.pass();
+        continue;
+      }
+      int sq = Long.numberOfTrailingZeros(mask);
+      game.play(sq / 8, sq % 8);
+      squares.add(sq);
+    }
+    return squares.stream().mapToInt(Integer::intValue).toArray();
+  }
+
+  private static int requestMove(BotEngine engine, ReversiGame game)
+      throws Exception {
+    CompletableFuture<Integer> move = new CompletableFuture<>();
+    engine.requestMove(game, new FischerClock(10_000, 0, false),
+                       move::complete);
+    return move.get(10, TimeUnit.SECONDS);
+  }
+
+  @Test
+  public void testIllegalBookMoveFallsBackToSearch() throws Exception {
+    OpeningBookBuilder builder = new OpeningBookBuilder(1, 1);
+    assertTrue(builder.addGame(firstMoveGame()));
+    Path path = dir.resolve("corrupt.book");
+    assertEquals(1, builder.write(path));
+    // Replace the move of the only record, after the 16-byte header and the
+    // 8-byte key, with d4, which is occupied in every orientation.
+    try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+      file.seek(24);
+      file.writeShort(27);
+    }
+
+    try (OpeningBook book = OpeningBook.open(path);
+         BotEngine engine = new BotEngine(1, 4)) {
+      ReversiGame game = new ReversiGame();
+      assertNotNull(book.lookup(game));
+      assertEquals(0, game.getValidMoveMask() &
+                          (1L << book.lookup(game).getMove()));
+      engine.setOpeningBook(book);
+
+      int move = requestMove(engine, game.copy());
+      assertNotEquals(0, game.getValidMoveMask() & (1L << move),
+                      "Bot played illegal move " + move);
+    }
+  }
+}
@@ -0,0 +1,50 @@
+package com.reversi.server;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.reversi.common.Message;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+public class BotPlayerTest {
+  @Test
+  public void testUpdatesBeforeTheMoveIsAppliedDoNotSearchAgain()
+      throws Exception {
+    BlockingQueue<Message> moves = new LinkedBlockingQueue<>();
+    try (BotEngine engine = new BotEngine(2, 16)) {
+      // The sink does not apply the moves, as if they were still queued.
+      BotPlayer bot =
+          new BotPlayer(-1, engine, (msg, from) -> moves.add(msg), 50);
+      ClientConnection opponent = new ClientConnection() {
+        @Override
+        public int getClientId() {
+          return 1;
+        }
+
+        @Override
+        public void sendFrame(Frame frame) {}
+      };
+      GameSession session = new GameSession(bot, opponent);
+
+      bot.onGameUpdate(session);
+      bot.onGameUpdate(session);
+      Message first = moves.poll(10, TimeUnit.SECONDS);
+      assertNotNull(first);
+      // The position is unchanged: these repeat the update, not the turn.
+      bot.onGameUpdate(session);
+      bot.onGameUpdate(session);
+      assertNull(moves.poll(500, TimeUnit.MILLISECONDS));
+
+      Message.Move move = (Message.Move)first.getMessage();
+      assertTrue(session.makeMove(move.getRow(), move.getCol(), bot));
+      long reply = session.copyGame().getValidMoveMask();
+      int sq = Long.numberOfTrailingZeros(reply);
+      assertTrue(session.makeMove(sq / 8, sq % 8, opponent));
+      bot.onGameUpdate(session);
+      assertNotNull(moves.poll(10, TimeUnit.SECONDS));
+      assertNull(moves.poll(500, TimeUnit.MILLISECONDS));
+    }
+  }
+}
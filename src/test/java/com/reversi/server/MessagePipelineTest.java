@@ -0,0 +1,110 @@
+package com.reversi.server;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.reversi.common.Message;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+public class MessagePipelineTest {
+  /** A client whose writes block until it is disconnected. */
+  private static final class StuckClient implements ClientConnection {
+    final CountDownLatch disconnected = new CountDownLatch(1);
+
+    @Override
+    public int getClientId() {
+      return 1;
+    }
+
+    @Override
+    public void sendFrame(Frame frame) {
+      try {
+        disconnected.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    @Override
+    public void disconnect() {
+      disconnected.countDown();
+    }
+  }
+
+  @Test
+  public void testStuckClientDoesNotStallOthers() throws Exception {
+    ExecutorService writers = Executors.newCachedThreadPool();
+    try (MessagePipeline pipeline =
+             new MessagePipeline(64, (msg, from) -> {}, writers)) {
+      StuckClient stuck = new StuckClient();
+      CountDownLatch received = new CountDownLatch(1);
+      ClientConnection fast = new ClientConnection() {
+        @Override
+        public int getClientId() {
+          return 2;
+        }
+
+        @Override
+        public void sendFrame(Frame frame) {
+          received.countDown();
+        }
+      };
+
+      // Far more than the ring holds, and than the stuck client may queue.
+      Message large = new Message(new Message.Invalid("x".repeat(32 * 1024)));
+      for (int i = 0; i < 200; i++)
+        pipeline.send(stuck, large);
+      pipeline.send(fast, new Message(new Message.Invalid("Hello")));
+      assertTrue(received.await(10, TimeUnit.SECONDS),
+                 "The other client should get its message");
+      assertTrue(stuck.disconnected.await(10, TimeUnit.SECONDS),
+                 "The stuck client should be disconnected");
+    } finally {
+      writers.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testFramesToOneClientStayInOrder() throws Exception {
+    // Several writers, of which at most one may serve a client at a time.
+    ExecutorService writers = Executors.newFixedThreadPool(4);
+    final int count = 10_000;
+    int[] next = {0};
+    CountDownLatch done = new CountDownLatch(1);
+    boolean[] outOfOrder = {false};
+    ClientConnection client = new ClientConnection() {
+      @Override
+      public int getClientId() {
+        return 1;
+      }
+
+      @Override
+      public void sendFrame(Frame frame) {
+        ByteBuffer buffer = frame.buffer();
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        String text = new String(bytes, StandardCharsets.UTF_8);
+        synchronized (next) {
+          if (!text.contains("\"" + next[0] + "\""))
+            outOfOrder[0] = true;
+          if (++next[0] == count)
+            done.countDown();
+        }
+      }
+    };
+    try (MessagePipeline pipeline =
+             new MessagePipeline(64, (msg, from) -> {}, writers)) {
+      for (int i = 0; i < count; i++)
+        pipeline.send(client, new Message(new Message.Invalid("" + i)));
+      assertTrue(done.await(10, TimeUnit.SECONDS));
+      assertFalse(outOfOrder[0]);
+    } finally {
+      writers.shutdownNow();
+    }
+  }
+}
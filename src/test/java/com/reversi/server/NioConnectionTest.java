@@ -0,0 +1,45 @@
+package com.reversi.server;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.reversi.common.Message;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+public class NioConnectionTest {
+  @Test
+  public void testSlowClientIsDisconnected() throws Exception {
+    NioServer.EventLoop loop = new NioServer.EventLoop("nio-test-loop");
+    loop.start();
+    try (ServerSocketChannel server = ServerSocketChannel.open();
+         SocketChannel client = SocketChannel.open()) {
+      server.bind(new InetSocketAddress("localhost", 0));
+      // The client connects but never reads.
+      client.connect(server.getLocalAddress());
+      SocketChannel channel = server.accept();
+      channel.configureBlocking(false);
+
+      CountDownLatch closed = new CountDownLatch(1);
+      NioConnection connection = new NioConnection(
+          1, channel, loop, (msg, handler) -> {}, closed::countDown);
+      loop.execute(() -> loop.register(connection, channel));
+
+      Frame frame = Frame.encode(new Message(new Message.Invalid(
+          "x".repeat(NioConnection.MAX_FRAME_BYTES / 2))));
+      long frames = NioConnection.MAX_OUTBOUND_BYTES / frame.length() * 64;
+      for (long i = 0; i < frames && closed.getCount() > 0; i++)
+        connection.sendFrame(frame);
+      assertTrue(closed.await(10, TimeUnit.SECONDS),
+                 "The connection should close once its queue is full");
+      assertFalse(channel.isOpen());
+      // Frames sent after closing are dropped.
+      connection.sendFrame(frame);
+    } finally {
+      loop.shutdown();
+    }
+  }
+}
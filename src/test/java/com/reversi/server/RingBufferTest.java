@@ -0,0 +1,62 @@
+package com.reversi.server;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.jupiter.api.Test;
+
+public class RingBufferTest {
+  private static final class Slot {
+    int producer;
+    int value;
+  }
+
+  @Test
+  public void testDeliversEverySlotInProducerOrder() throws Exception {
+    final int producers = 4;
+    final int perProducer = 50_000;
+    // A small ring forces producers to wait and slots to be reused.
+    RingBuffer<Slot> ring = new RingBuffer<>(64, Slot::new);
+    int[] lastSeen = new int[producers];
+    java.util.Arrays.fill(lastSeen, -1);
+    AtomicBoolean outOfOrder = new AtomicBoolean();
+    CountDownLatch done = new CountDownLatch(producers * perProducer);
+    Thread consumer = new Thread(() -> ring.run(slot -> {
+      if (slot.value != lastSeen[slot.producer] + 1)
+        outOfOrder.set(true);
+      lastSeen[slot.producer] = slot.value;
+      done.countDown();
+    }));
+    consumer.start();
+
+    Thread[] threads = new Thread[producers];
+    for (int p = 0; p < producers; p++) {
+      int producer = p;
+      threads[p] = new Thread(() -> {
+        for (int i = 0; i < perProducer; i++) {
+          long seq = ring.claim();
+          Slot slot = ring.get(seq);
+          slot.producer = producer;
+          slot.value = i;
+          ring.publish(seq);
+        }
+      });
+      threads[p].start();
+    }
+    for (Thread t : threads)
+      t.join();
+    assertTrue(done.await(20, TimeUnit.SECONDS), "Slots were lost");
+    ring.close();
+    consumer.join(5000);
+    assertFalse(outOfOrder.get(), "Each producer's slots must stay in order");
+    assertFalse(consumer.isAlive());
+  }
+
+  @Test
+  public void testRejectsCapacityThatIsNotPowerOfTwo() {
+    assertThrows(IllegalArgumentException.class,
+                 () -> new RingBuffer<>(100, Slot::new));
+  }
+}
@@ -0,0 +1,164 @@
+package com.reversi.server;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.reversi.common.LobbyRoom;
+import com.reversi.common.Message;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CyclicBarrier;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class SessionHubTest {
+  /** A client that keeps the messages sent to it one by one. */
+  private static final class RecordingClient implements ClientConnection {
+    final int id;
+    final List<Message> messages = new CopyOnWriteArrayList<>();
+
+    RecordingClient(int id) { this.id = id; }
+
+    @Override
+    public int getClientId() {
+      return id;
+    }
+
+    @Override
+    public void sendFrame(Frame frame) {}
+
+    @Override
+    public void sendMessage(Message msg) {
+      messages.add(msg);
+    }
+
+    List<String> invalidReasons() {
+      return messages.stream()
+          .filter(m -> m.getType() == Message.Type.Invalid)
+          .map(m -> ((Message.Invalid)m.getMessage()).getReason())
+          .toList();
+    }
+  }
+
+  private BotEngine botEngine;
+  private AnalysisService analysisService;
+  private SessionHub hub;
+
+  @BeforeEach
+  public void setUp() {
+    botEngine = new BotEngine(1, 16);
+    analysisService = new AnalysisService(1, 4);
+    hub = new SessionHub(botEngine, analysisService);
+  }
+
+  @AfterEach
+  public void tearDown() {
+    botEngine.close();
+    analysisService.close();
+  }
+
+  private static Message botGame(String roomName) {
+    return new Message(new Message.LobbyCreate(new LobbyRoom(roomName), true));
+  }
+
+  @Test
+  public void testBotGameRejectsRunningRoomName() {
+    RecordingClient first = new RecordingClient(1);
+    RecordingClient second = new RecordingClient(2);
+    hub.registerClient(first);
+    hub.registerClient(second);
+
+    hub.handleClientMessage(botGame("Practice"), first);
+    assertEquals(List.of(), first.invalidReasons());
+    hub.handleClientMessage(botGame("Practice"), second);
+    assertEquals(List.of("Room Practice already exists."),
+                 second.invalidReasons());
+    assertFalse(second.messages.stream().anyMatch(
+        m -> m.getType() == Message.Type.Start));
+  }
+
+  @Test
+  public void testBotGameRejectsClientAlreadyPlaying() {
+    RecordingClient client = new RecordingClient(1);
+    hub.registerClient(client);
+
+    hub.handleClientMessage(botGame("First"), client);
+    hub.handleClientMessage(botGame("Second"), client);
+    assertEquals(List.of("Already in a game."), client.invalidReasons());
+    assertEquals(1, client.messages.stream()
+                        .filter(m -> m.getType() == Message.Type.Start)
+                        .count());
+  }
+
+  @Test
+  public void testLobbyRoomsAndGamesShareNames() {
+    RecordingClient host = new RecordingClient(1);
+    RecordingClient player = new RecordingClient(2);
+    hub.registerClient(host);
+    hub.registerClient(player);
+
+    hub.handleClientMessage(
+        new Message(new Message.LobbyCreate(new LobbyRoom("Open"))), host);
+    hub.handleClientMessage(botGame("Open"), player);
+    assertEquals(List.of("Room Open already exists."),
+                 player.invalidReasons());
+
+    hub.handleClientMessage(botGame("Busy"), player);
+    hub.handleClientMessage(
+        new Message(new Message.LobbyCreate(new LobbyRoom("Busy"))), host);
+    assertEquals(List.of("Room Busy already exists."), host.invalidReasons());
+  }
+
+  @Test
+  public void testConcurrentBotGamesClaimARoomOnce() throws Exception {
+    final int clients = 8;
+    for (int round = 0; round < 20; round++) {
+      String name = "Arena" + round;
+      List<RecordingClient> contenders = new ArrayList<>();
+      for (int i = 0; i < clients; i++) {
+        RecordingClient client = new RecordingClient(round * clients + i);
+        hub.registerClient(client);
+        contenders.add(client);
+      }
+      CyclicBarrier start = new CyclicBarrier(clients);
+      List<Thread> threads = new ArrayList<>();
+      for (RecordingClient client : contenders) {
+        Thread thread = new Thread(() -> {
+          try {
+            start.await();
+          } catch (Exception e) {
+            return;
+          }
+          hub.handleClientMessage(botGame(name), client);
+        });
+        thread.start();
+        threads.add(thread);
+      }
+      for (Thread thread : threads)
+        thread.join();
+
+      long started = contenders.stream()
+                         .flatMap(c -> c.messages.stream())
+                         .filter(m -> m.getType() == Message.Type.Start)
+                         .count();
+      long rejected = contenders.stream()
+                          .mapToLong(c -> c.invalidReasons().size())
+                          .sum();
+      assertEquals(1, started);
+      assertEquals(clients - 1, rejected);
+    }
+  }
+
+  @Test
+  public void testRemovedClientLeavesItsGame() {
+    RecordingClient client = new RecordingClient(1);
+    hub.registerClient(client);
+    hub.handleClientMessage(botGame("Abandoned"), client);
+
+    hub.removeClient(client.getClientId());
+    hub.handleClientMessage(
+        new Message(new Message.AnalyzeRequest(1, 0)), client);
+    assertEquals(List.of("No game to analyze"), client.invalidReasons());
+  }
+}